@@ -0,0 +1,52 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Расположение файлов приложения: шаблоны отчетов, готовые PDF, пакетные отчеты и all_data.xml.
+// Каталог задается -Dprojectmanager.home=..., по умолчанию - рабочий каталог (там же лежат *.jrxml)
+public final class AppPaths {
+    private AppPaths() {
+    }
+
+    public static Path home() {
+        return Paths.get(System.getProperty("projectmanager.home", System.getProperty("user.dir")));
+    }
+
+    // Шаблон отчета по имени без расширения (clients -> clients.jrxml)
+    public static Path template(String report) {
+        return home().resolve(report + ".jrxml");
+    }
+
+    // Готовый отчет (clients -> clients_report.pdf)
+    public static Path pdf(String report) {
+        return home().resolve(report + "_report.pdf");
+    }
+
+    // Каталог пакетных отчетов по клиентам и сотрудникам
+    public static Path reportDir() {
+        return home().resolve("reports");
+    }
+
+    // Каталог выгрузок для анализа (CSV, XLSX, JSON)
+    public static Path exportDir() {
+        return home().resolve("exports");
+    }
+
+    // Файл выгрузки и загрузки всех данных
+    public static Path dataFile() {
+        return home().resolve("all_data.xml");
+    }
+
+    // Инкрементальная выгрузка и время последней синхронизации (см. DeltaSync)
+    public static Path deltaFile() {
+        return home().resolve("all_data.delta.xml");
+    }
+
+    public static Path syncStateFile() {
+        return home().resolve("sync.properties");
+    }
+
+    // Бинарный снимок для резервного копирования (см. BinarySnapshot)
+    public static Path snapshotFile() {
+        return home().resolve("all_data.snapshot");
+    }
+}
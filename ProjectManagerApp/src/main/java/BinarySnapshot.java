@@ -0,0 +1,469 @@
+import javax.persistence.EntityManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.apache.log4j.Logger;
+
+// Компактный бинарный снимок всех данных для резервного копирования (альтернатива all_data.xml).
+// Формат: заголовок PMSNAP, версия, затем сжатое deflate тело из разделов клиентов, сотрудников,
+// проектов (с id участников) и задач. Каждая запись - длина и поля: числа в varint, строки в UTF-8 с длиной,
+// даты - номер дня. Связи хранятся только id, поэтому в отличие от XML ничего не повторяется.
+// Длина записи позволяет следующим версиям добавлять поля в конец: старый загрузчик их пропустит.
+// Загрузка идет через тот же пакетный писатель, что и импорт XML (XmlImporter.BatchWriter).
+public final class BinarySnapshot {
+    private static final Logger logger = Logger.getLogger(BinarySnapshot.class);
+    private static final byte[] MAGIC = {'P', 'M', 'S', 'N', 'A', 'P'};
+    private static final short VERSION = 1;
+    // Уровень сжатия 0-9 (можно переопределить -Dsnapshot.level=...)
+    static final int LEVEL = Integer.getInteger("snapshot.level", Deflater.BEST_SPEED);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Разделы в порядке внешних ключей; END завершает файл
+    private static final int END = 0;
+    private static final int CLIENTS = 1;
+    private static final int EMPLOYEES = 2;
+    private static final int PROJECTS = 3;
+    private static final int TASKS = 4;
+
+    private static final String CLIENT_SELECT = "SELECT c.client_id, c.client_name FROM Client c";
+    private static final String EMPLOYEE_SELECT = "SELECT e.employee_id, e.employee_name FROM Employee e";
+    private static final String PROJECT_SELECT = "SELECT p.project_id, p.project_name, p.project_status, "
+            + "p.project_due_date, p.project_end_date, c.client_id FROM Project p LEFT JOIN p.client c";
+    private static final String MEMBER_SELECT = "SELECT p.project_id, e.employee_id FROM Project p JOIN p.employees e";
+    private static final String TASK_SELECT = "SELECT t.task_id, t.task_name, t.task_description, t.task_status, "
+            + "t.due_date, p.project_id, e.employee_id FROM Task t LEFT JOIN t.project p LEFT JOIN t.assignedEmployee e";
+
+    private BinarySnapshot() {
+    }
+
+    // Запись снимка во временный файл через FileChannel и замена им прежнего
+    public static ExportResult save(EntityManager em, Path file) throws IOException {
+        long start = System.nanoTime();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long rows;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Short.BYTES).put(MAGIC).putShort(VERSION);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // Потоки не закрываются: их закрытие закрыло бы канал до force
+            Deflater deflater = new Deflater(LEVEL);
+            try {
+                DeflaterOutputStream deflated =
+                    new DeflaterOutputStream(Channels.newOutputStream(channel), deflater, BUFFER_SIZE);
+                OutputStream out = new BufferedOutputStream(deflated, BUFFER_SIZE);
+                rows = writeSections(em, new RecordWriter(out));
+                out.flush();
+                deflated.finish();
+            } finally {
+                deflater.end();
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        ExportResult result = new ExportResult(rows, Files.size(file), System.nanoTime() - start);
+        logger.info("Снимок сохранен в " + file + ": " + result);
+        return result;
+    }
+
+    // Все разделы читаются в одной транзакции, как и в XmlExporter
+    private static long writeSections(EntityManager em, RecordWriter out) throws IOException {
+        boolean ownTransaction = !em.getTransaction().isActive();
+        if (ownTransaction) {
+            em.getTransaction().begin();
+        }
+        try {
+            int pageSize = XmlExporter.PAGE_SIZE;
+
+            out.section(CLIENTS);
+            KeysetCursor clients = new KeysetCursor(em, CLIENT_SELECT, pageSize, "c.client_id");
+            for (Object[] row = clients.next(); row != null; row = clients.next()) {
+                out.writeId((Integer) row[0]).writeString((String) row[1]).endRecord();
+            }
+            out.endSection();
+
+            out.section(EMPLOYEES);
+            KeysetCursor employees = new KeysetCursor(em, EMPLOYEE_SELECT, pageSize, "e.employee_id");
+            for (Object[] row = employees.next(); row != null; row = employees.next()) {
+                out.writeId((Integer) row[0]).writeString((String) row[1]).endRecord();
+            }
+            out.endSection();
+
+            out.section(PROJECTS);
+            KeysetCursor projects = new KeysetCursor(em, PROJECT_SELECT, pageSize, "p.project_id");
+            KeysetCursor members = new KeysetCursor(em, MEMBER_SELECT, pageSize, "p.project_id", "e.employee_id");
+            List<Integer> memberIds = new ArrayList<>();
+            for (Object[] row = projects.next(); row != null; row = projects.next()) {
+                int projectId = (Integer) row[0];
+                memberIds.clear();
+                for (Object[] member = members.nextFor(projectId); member != null; member = members.nextFor(projectId)) {
+                    memberIds.add((Integer) member[1]);
+                }
+                out.writeId(projectId).writeString((String) row[1]).writeString((String) row[2])
+                    .writeDate((Date) row[3]).writeDate((Date) row[4]).writeId((Integer) row[5]);
+                out.writeCount(memberIds.size());
+                for (Integer employeeId : memberIds) {
+                    out.writeId(employeeId);
+                }
+                out.endRecord();
+            }
+            out.endSection();
+
+            out.section(TASKS);
+            KeysetCursor tasks = new KeysetCursor(em, TASK_SELECT, pageSize, "t.task_id");
+            for (Object[] row = tasks.next(); row != null; row = tasks.next()) {
+                out.writeId((Integer) row[0]).writeString((String) row[1]).writeString((String) row[2])
+                    .writeString((String) row[3]).writeDate((Date) row[4]).writeId((Integer) row[5])
+                    .writeId((Integer) row[6]).endRecord();
+            }
+            out.endSection();
+            out.section(END);
+
+            return clients.getRows() + employees.getRows() + projects.getRows() + members.getRows() + tasks.getRows();
+        } finally {
+            if (ownTransaction && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+    }
+
+    // Восстановление из снимка: записи с существующими id обновляются, новые вставляются с id из файла
+    public static XmlImporter.Result load(Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Short.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // заголовок может прийти по частям
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            if (header.remaining() < header.capacity() || !Arrays.equals(readMagic(header, magic), MAGIC)) {
+                throw new IOException("Файл " + file + " не является снимком данных");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Неподдерживаемая версия снимка: " + version);
+            }
+            Inflater inflater = new Inflater();
+            try (InputStream in = new BufferedInputStream(
+                    new InflaterInputStream(Channels.newInputStream(channel), inflater, BUFFER_SIZE), BUFFER_SIZE)) {
+                XmlImporter.Result result = readSections(new RecordReader(in), start);
+                logger.info("Снимок загружен из " + file + ": " + result);
+                return result;
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static byte[] readMagic(ByteBuffer header, byte[] magic) {
+        header.get(magic);
+        return magic;
+    }
+
+    private static XmlImporter.Result readSections(RecordReader in, long start) throws IOException, SQLException {
+        try (Connection connection = PersistenceManager.getDataSource().getConnection()) {
+            XmlImporter.IdSets ids = XmlImporter.IdSets.load(connection);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (XmlImporter.BatchWriter writer = new XmlImporter.BatchWriter(connection, XmlImporter.BATCH_SIZE, ids)) {
+                long skipped = 0;
+                int sinceCommit = 0;
+                for (int section = in.section(); section != END; section = in.section()) {
+                    while (in.nextRecord()) {
+                        XmlImporter.Row row = readRow(section, in);
+                        if (row == null) {
+                            skipped++;
+                            continue;
+                        }
+                        writer.write(row);
+                        if (++sinceCommit >= XmlImporter.CHUNK_SIZE) {
+                            writer.commit();
+                            sinceCommit = 0;
+                        }
+                    }
+                }
+                writer.commit();
+                return new XmlImporter.Result(writer.getInserted(), writer.getUpdated(), skipped, writer.getCommits(),
+                    System.nanoTime() - start);
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                // Строки записаны мимо Hibernate (в том числе уже зафиксированные части при ошибке)
+                IdGenerators.advanceAfterImport();
+                PersistenceManager.evictCaches();
+            }
+        }
+    }
+
+    // Запись с некорректным id пропускается (null), как в XmlImporter: запись читается
+    // в буфер целиком, поэтому пропуск не сбивает чтение следующих
+    private static XmlImporter.Row readRow(int section, RecordReader in) throws IOException {
+        switch (section) {
+            case CLIENTS: {
+                Integer id = in.readNullableId();
+                String name = in.readString();
+                return id == null ? null : new XmlImporter.Row(XmlImporter.Type.CLIENT, id, name, null, null, null,
+                    null, null, null, List.of());
+            }
+            case EMPLOYEES: {
+                Integer id = in.readNullableId();
+                String name = in.readString();
+                return id == null ? null : new XmlImporter.Row(XmlImporter.Type.EMPLOYEE, id, name, null, null, null,
+                    null, null, null, List.of());
+            }
+            case PROJECTS: {
+                Integer id = in.readNullableId();
+                String name = in.readString();
+                String status = in.readString();
+                java.sql.Date dueDate = in.readDate();
+                java.sql.Date endDate = in.readDate();
+                Integer clientId = in.readNullableId();
+                int count = in.readCount();
+                List<Integer> members = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    Integer member = in.readNullableId();
+                    if (member != null) {
+                        members.add(member);
+                    }
+                }
+                return id == null ? null : new XmlImporter.Row(XmlImporter.Type.PROJECT, id, name, status, null, dueDate, endDate,
+                    clientId, null, members);
+            }
+            case TASKS: {
+                Integer id = in.readNullableId();
+                String name = in.readString();
+                String description = in.readString();
+                String status = in.readString();
+                java.sql.Date dueDate = in.readDate();
+                Integer projectId = in.readNullableId();
+                Integer employeeId = in.readNullableId();
+                return id == null ? null : new XmlImporter.Row(XmlImporter.Type.TASK, id, name, status, description, dueDate, null,
+                    projectId, employeeId, List.of());
+            }
+            default:
+                throw new IOException("Неизвестный раздел снимка: " + section);
+        }
+    }
+
+    // Запись: поля собираются в буфер, затем пишутся с длиной. Null кодируется нулем,
+    // поэтому id, количества и длины строк хранятся со сдвигом на 1
+    private static final class RecordWriter {
+        private final OutputStream out;
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        RecordWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void section(int tag) throws IOException {
+            out.write(tag);
+        }
+
+        void endSection() throws IOException {
+            writeVarLong(out, 0);
+        }
+
+        RecordWriter writeId(Integer id) {
+            return putVarLong(id == null ? 0 : id + 1L);
+        }
+
+        RecordWriter writeCount(int count) {
+            return putVarLong(count);
+        }
+
+        RecordWriter writeString(String value) {
+            if (value == null) {
+                return putVarLong(0);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+            return this;
+        }
+
+        // Номер дня от 1970-01-01 в зигзаг-кодировке (даты до 1970 года отрицательны)
+        RecordWriter writeDate(Date date) {
+            if (date == null) {
+                return putVarLong(0);
+            }
+            long day = DateFormats.toLocalDate(date).toEpochDay();
+            return putVarLong(((day << 1) ^ (day >> 63)) + 1);
+        }
+
+        // Длина записи всегда больше нуля: ноль означает конец раздела
+        void endRecord() throws IOException {
+            writeVarLong(out, size);
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+
+        private RecordWriter putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+            return this;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private static void writeVarLong(OutputStream out, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    // Чтение записей: запись целиком читается в буфер, лишние поля в конце (из новых версий) пропускаются
+    private static final class RecordReader {
+        private final DataInputStream in;
+        private byte[] buffer = new byte[256];
+        private int size;
+        private int position;
+
+        RecordReader(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        int section() throws IOException {
+            int tag = in.read();
+            if (tag < 0) {
+                throw new EOFException("Снимок оборван: нет признака конца");
+            }
+            return tag;
+        }
+
+        boolean nextRecord() throws IOException {
+            long length = readVarLong(in);
+            if (length == 0) {
+                return false;
+            }
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Слишком длинная запись снимка: " + length);
+            }
+            size = (int) length;
+            if (size > buffer.length) {
+                buffer = new byte[Math.max(size, buffer.length * 2)];
+            }
+            in.readFully(buffer, 0, size);
+            position = 0;
+            return true;
+        }
+
+        // Null для пустого id и, с предупреждением, для id вне 1..Integer.MAX_VALUE
+        Integer readNullableId() throws IOException {
+            long value = getVarLong();
+            if (value == 0) {
+                return null;
+            }
+            long id = value - 1;
+            if (id <= 0 || id > Integer.MAX_VALUE) {
+                logger.warn("Некорректный id в снимке: " + id);
+                return null;
+            }
+            return (int) id;
+        }
+
+        int readCount() throws IOException {
+            return (int) getVarLong();
+        }
+
+        String readString() throws IOException {
+            long length = getVarLong();
+            if (length == 0) {
+                return null;
+            }
+            int bytes = (int) (length - 1);
+            check(bytes);
+            String value = new String(buffer, position, bytes, StandardCharsets.UTF_8);
+            position += bytes;
+            return value;
+        }
+
+        java.sql.Date readDate() throws IOException {
+            long value = getVarLong();
+            if (value == 0) {
+                return null;
+            }
+            long zigzag = value - 1;
+            return java.sql.Date.valueOf(LocalDate.ofEpochDay((zigzag >>> 1) ^ -(zigzag & 1)));
+        }
+
+        private long getVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                check(1);
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Поврежденное число в снимке");
+        }
+
+        private void check(int bytes) throws IOException {
+            if (position + bytes > size) {
+                throw new IOException("Запись снимка короче ожидаемой");
+            }
+        }
+
+        private static long readVarLong(DataInputStream in) throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Поврежденная длина записи в снимке");
+        }
+    }
+}
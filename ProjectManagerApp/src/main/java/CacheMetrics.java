@@ -0,0 +1,77 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+// Статистика кэша второго уровня (справочники Client, Employee, Project и состав проекта) и кэша запросов.
+// Попадания и промахи считает Hibernate (hibernate.generate_statistics), вытеснения - сам кэш Ehcache
+// через JCache MBean (enable-statistics в ehcache.xml)
+public final class CacheMetrics {
+    private static final String EHCACHE_STATISTICS = "javax.cache:type=CacheStatistics,*";
+
+    private CacheMetrics() {
+    }
+
+    public static Snapshot snapshot(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        return new Snapshot(
+            statistics.getSecondLevelCacheHitCount(),
+            statistics.getSecondLevelCacheMissCount(),
+            statistics.getSecondLevelCachePutCount(),
+            statistics.getQueryCacheHitCount(),
+            statistics.getQueryCacheMissCount(),
+            statistics.getQueryCachePutCount(),
+            evictions()
+        );
+    }
+
+    // Сумма вытеснений по всем кэшам Ehcache (0, если статистика JCache не зарегистрирована)
+    static long evictions() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        long evictions = 0;
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(EHCACHE_STATISTICS), null)) {
+                evictions += ((Number) server.getAttribute(name, "CacheEvictions")).longValue();
+            }
+        } catch (JMException e) {
+            return 0;
+        }
+        return evictions;
+    }
+
+    // Снимок счетчиков кэша
+    public static class Snapshot {
+        public final long hits;
+        public final long misses;
+        public final long puts;
+        public final long queryHits;
+        public final long queryMisses;
+        public final long queryPuts;
+        public final long evictions;
+
+        Snapshot(long hits, long misses, long puts, long queryHits, long queryMisses, long queryPuts, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.queryHits = queryHits;
+            this.queryMisses = queryMisses;
+            this.queryPuts = queryPuts;
+            this.evictions = evictions;
+        }
+
+        // Доля попаданий в кэш сущностей и коллекций
+        public double hitRatio() {
+            return hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("сущности: попаданий=%d, промахов=%d, записей=%d (попаданий %.0f%%); "
+                    + "запросы: попаданий=%d, промахов=%d, записей=%d; вытеснений=%d",
+                hits, misses, puts, hitRatio() * 100, queryHits, queryMisses, queryPuts, evictions);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+// CSV по RFC 4180 в UTF-8 с BOM (иначе Excel открывает кириллицу в ANSI).
+// Разделитель задается -Dexport.csv.separator=... (по умолчанию ";", как ожидает Excel с русской локалью)
+public class CsvExporter implements TableExporter {
+    static final char SEPARATOR = System.getProperty("export.csv.separator", ";").charAt(0);
+
+    private final char separator;
+
+    public CsvExporter() {
+        this(SEPARATOR);
+    }
+
+    CsvExporter(char separator) {
+        this.separator = separator;
+    }
+
+    @Override
+    public String getName() {
+        return "CSV";
+    }
+
+    @Override
+    public String getExtension() {
+        return "csv";
+    }
+
+    @Override
+    public RowWriter open(OutputStream out, String name, List<String> columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        writer.write('\uFEFF');
+        RowWriter rows = new RowWriter() {
+            @Override
+            public void write(Object[] row) throws IOException {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        writer.write(separator);
+                    }
+                    writeValue(writer, row[i]);
+                }
+                writer.write("\r\n");
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.flush();
+            }
+        };
+        rows.write(columns.toArray());
+        return rows;
+    }
+
+    // Значение в кавычках, только если в нем есть разделитель, кавычки или перевод строки
+    private void writeValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof Date ? DateFormats.iso((Date) value) : value.toString();
+        if (value instanceof CharSequence && isFormula(text)) {
+            // Excel выполняет такой текст как формулу (CSV-инъекция); апостроф оставляет его текстом
+            text = "'" + text;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == separator || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static boolean isFormula(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char first = text.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
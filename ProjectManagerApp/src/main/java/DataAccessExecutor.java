@@ -0,0 +1,78 @@
+import javax.swing.SwingUtilities;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+// Исполнитель запросов к БД вне потока обработки событий Swing.
+// На JDK 21+ использует виртуальные потоки, на JDK 17 - ограниченный пул обычных потоков.
+// Результат загрузки передается обратно в EDT через SwingUtilities.invokeLater.
+public final class DataAccessExecutor {
+    private static final Logger logger = Logger.getLogger(DataAccessExecutor.class);
+    private static final int PLATFORM_POOL_SIZE = 4;
+
+    private static final ExecutorService executor = createExecutor();
+    // Последняя задержка загрузки по имени операции (например, имени таблицы)
+    private static final Map<String, Long> lastLatencyMillis = new ConcurrentHashMap<>();
+
+    private DataAccessExecutor() {
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            logger.info("Доступ к данным выполняется в виртуальных потоках");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(PLATFORM_POOL_SIZE, PLATFORM_POOL_SIZE,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "data-access-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            logger.info("Доступ к данным выполняется в пуле из " + PLATFORM_POOL_SIZE + " потоков");
+            return pool;
+        }
+    }
+
+    // Выполнение загрузки в фоне; onSuccess и onError вызываются в EDT.
+    // Если задача отменена до завершения, результат не публикуется.
+    public static <T> Future<?> submit(String name, Callable<T> load, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                T result = load.call();
+                long latency = (System.nanoTime() - start) / 1_000_000;
+                lastLatencyMillis.put(name, latency);
+                logger.info("Загрузка \"" + name + "\" заняла " + latency + " мс");
+                if (!Thread.currentThread().isInterrupted()) {
+                    SwingUtilities.invokeLater(() -> onSuccess.accept(result));
+                }
+            } catch (Exception e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    logger.error("Ошибка при загрузке \"" + name + "\": " + e.getMessage(), e);
+                    SwingUtilities.invokeLater(() -> onError.accept(e));
+                }
+            }
+        });
+    }
+
+    // Задержка последней завершенной загрузки, -1 если загрузки еще не было
+    public static long getLastLatencyMillis(String name) {
+        return lastLatencyMillis.getOrDefault(name, -1L);
+    }
+
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+// Общие потокобезопасные форматтеры дат (вместо создания SimpleDateFormat на каждую строку)
+public final class DateFormats {
+    // Формат отображения в таблицах и формах
+    public static final DateTimeFormatter DISPLAY = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    // Формат хранения в XML (совпадает с java.sql.Date.toString())
+    public static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private DateFormats() {
+    }
+
+    // java.sql.Date не поддерживает toInstant(), поэтому обрабатывается отдельно
+    public static LocalDate toLocalDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public static String display(Date date) {
+        return date != null ? DISPLAY.format(toLocalDate(date)) : null;
+    }
+
+    public static String iso(Date date) {
+        return date != null ? ISO.format(toLocalDate(date)) : null;
+    }
+
+    // Начало текущего дня для сравнения с колонками типа DATE
+    public static Date today() {
+        return java.sql.Date.valueOf(LocalDate.now());
+    }
+}
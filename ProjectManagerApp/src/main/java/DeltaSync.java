@@ -0,0 +1,81 @@
+import javax.persistence.EntityManager;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Properties;
+import org.apache.log4j.Logger;
+
+// Инкрементальная синхронизация через XML: выгружаются только строки, измененные после прошлой выгрузки
+// (столбец last_modified), а момент выгрузки сохраняется в sync.properties как отметка для следующей.
+// Отметка сдвигается назад на OVERLAP, чтобы не потерять транзакции, которые поставили время изменения
+// до начала выгрузки, а зафиксировались после; повторно выгруженные строки импорт просто обновит.
+// Загрузка - обычный импорт (ImportPipeline): он и так сливает записи по id, не трогая отсутствующие в файле.
+// Удаления не отслеживаются: удаленная запись не попадает в инкрементальную выгрузку.
+public class DeltaSync {
+    private static final Logger logger = Logger.getLogger(DeltaSync.class);
+    // Перекрытие соседних выгрузок в секундах (можно переопределить -Ddelta.overlap.seconds=...)
+    static final long OVERLAP_SECONDS = Long.getLong("delta.overlap.seconds", 60);
+    private static final String WATERMARK = "last_export";
+
+    private final Path stateFile;
+    private final long overlapMillis;
+
+    DeltaSync(Path stateFile, long overlapMillis) {
+        this.stateFile = stateFile;
+        this.overlapMillis = overlapMillis;
+    }
+
+    public static DeltaSync standard() {
+        return new DeltaSync(AppPaths.syncStateFile(), OVERLAP_SECONDS * 1000);
+    }
+
+    // Выгрузка изменений в file; без сохраненной отметки выгружается все
+    public ExportResult exportChanges(EntityManager em, Path file) throws IOException, XMLStreamException {
+        Date since = getWatermark();
+        Date start = new Date();
+        ExportResult result = XmlExporter.export(em, file, since);
+        setWatermark(new Date(start.getTime() - overlapMillis));
+        logger.info("Инкрементальная выгрузка " + (since == null ? "(полная, отметки еще нет)" : "с " + since.toInstant())
+            + ": " + result);
+        return result;
+    }
+
+    // Загрузка изменений из файла (полного или инкрементального)
+    public ImportPipeline.Report importChanges(Path file) throws IOException, XMLStreamException, SQLException {
+        return ImportPipeline.importFile(file);
+    }
+
+    // Отметка последней выгрузки или null, если выгрузок еще не было
+    public Date getWatermark() throws IOException {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            state.load(in);
+        }
+        String value = state.getProperty(WATERMARK);
+        return value != null ? new Date(Long.parseLong(value.trim())) : null;
+    }
+
+    // Запись через временный файл, чтобы прерванная запись не сбросила отметку
+    void setWatermark(Date watermark) throws IOException {
+        Properties state = new Properties();
+        state.setProperty(WATERMARK, Long.toString(watermark.getTime()));
+        Path parent = stateFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            state.store(out, "Время последней инкрементальной выгрузки (мс с 1970-01-01 UTC)");
+        }
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -1,19 +1,33 @@
 import javax.persistence.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
 
 // Сущность клиента с его проектами
 @Entity
 @Table(name = "Client")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 class Client {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "client_ids")
+    @TableGenerator(name = "client_ids", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+        valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "client", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private int client_id;
 
     @Column(name = "client_name")
     private String client_name;
 
+    // Время последнего изменения для инкрементальной выгрузки (см. DeltaSync)
+    @Column(name = "last_modified")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date last_modified;
+
     // Связь один-ко-многим с проектами
     @OneToMany(mappedBy = "client", cascade = CascadeType.ALL)
     private List<Project> projects = new ArrayList<>();
@@ -36,6 +50,16 @@ class Client {
         this.client_name = client_name;
     }
 
+    public Date getLast_modified() {
+        return last_modified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        last_modified = new Date();
+    }
+
     public List<Project> getProjects() {
         return projects;
     }
@@ -54,17 +78,26 @@ class Client {
 // Сущность сотрудника с его задачами и проектами
 @Entity
 @Table(name = "Employee")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 class Employee {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "employee_ids")
+    @TableGenerator(name = "employee_ids", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+        valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "employee", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private int employee_id;
 
     @Column(name = "employee_name")
     private String employee_name;
 
-    // Связь многие-ко-многим с проектами
+    // Время последнего изменения для инкрементальной выгрузки (см. DeltaSync)
+    @Column(name = "last_modified")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date last_modified;
+
+    // Связь многие-ко-многим с проектами (множество, см. Project.employees)
     @ManyToMany(mappedBy = "employees", fetch = FetchType.LAZY)
-    private List<Project> projects = new ArrayList<>();
+    private Set<Project> projects = new HashSet<>();
 
     // Связь один-ко-многим с задачами
     @OneToMany(mappedBy = "assignedEmployee", cascade = CascadeType.ALL)
@@ -88,11 +121,21 @@ class Employee {
         this.employee_name = employee_name;
     }
 
-    public List<Project> getProjects() {
+    public Date getLast_modified() {
+        return last_modified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        last_modified = new Date();
+    }
+
+    public Set<Project> getProjects() {
         return projects;
     }
 
-    public void setProjects(List<Project> projects) {
+    public void setProjects(Set<Project> projects) {
         this.projects = projects;
     }
 
@@ -109,14 +152,37 @@ class Employee {
         tasks.add(task);
         task.setAssignedEmployee(this);
     }
+
+    // Равенство по id (через геттер, чтобы работало и для прокси Hibernate); несохраненные (id = 0) равны только себе.
+    // Хеш постоянный: id назначается при persist, а сущность к этому времени уже может лежать в множестве
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Employee)) {
+            return false;
+        }
+        int id = getEmployee_id();
+        return id != 0 && id == ((Employee) o).getEmployee_id();
+    }
+
+    @Override
+    public int hashCode() {
+        return Employee.class.hashCode();
+    }
 }
 
 // Сущность проекта со связями к клиенту, сотрудникам и задачам
 @Entity
 @Table(name = "Project")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 class Project {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "project_ids")
+    @TableGenerator(name = "project_ids", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+        valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "project", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private int project_id;
 
     @Column(name = "project_name")
@@ -134,19 +200,27 @@ class Project {
     @Temporal(TemporalType.DATE)
     private Date project_end_date;
 
+    // Время последнего изменения для инкрементальной выгрузки (см. DeltaSync)
+    @Column(name = "last_modified")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date last_modified;
+
     // Связь с клиентом
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "client_id")
     private Client client;
 
-    // Связь со списком сотрудников
+    // Связь с сотрудниками: множество, а не список (bag), поэтому добавление или удаление одного сотрудника
+    // меняет одну строку employee_project, а не удаляет и вставляет заново весь состав проекта
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "employee_project",
         joinColumns = @JoinColumn(name = "project_id"),
         inverseJoinColumns = @JoinColumn(name = "employee_id")
     )
-    private List<Employee> employees = new ArrayList<>();
+    @OrderBy("employee_name")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    private Set<Employee> employees = new HashSet<>();
 
     // Связь со списком задач
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
@@ -194,6 +268,16 @@ class Project {
         this.project_end_date = project_end_date;
     }
 
+    public Date getLast_modified() {
+        return last_modified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        last_modified = new Date();
+    }
+
     public Client getClient() {
         return client;
     }
@@ -202,14 +286,14 @@ class Project {
         this.client = client;
     }
 
-    public List<Employee> getEmployees() {
+    public Set<Employee> getEmployees() {
         if (employees == null) {
-            employees = new ArrayList<>();
+            employees = new HashSet<>();
         }
         return employees;
     }
 
-    public void setEmployees(List<Employee> employees) {
+    public void setEmployees(Set<Employee> employees) {
         this.employees = employees;
     }
 
@@ -228,17 +312,26 @@ class Project {
     public void addEmployee(Employee employee) {
         if (employee != null) {
             if (employees == null) {
-                employees = new ArrayList<>();
+                employees = new HashSet<>();
             }
             employees.add(employee);
-            employee.getProjects().add(this);
+            // Обратная сторона меняется, только если уже загружена: иначе она загрузится из БД после commit,
+            // а лишний SELECT на каждого сотрудника не нужен
+            if (Hibernate.isInitialized(employee.getProjects())) {
+                employee.getProjects().add(this);
+            }
+            // Изменение состава не обновляет строку Project, поэтому время изменения ставится явно
+            touch();
         }
     }
 
     public void removeEmployee(Employee employee) {
         if (employee != null && employees != null) {
             employees.remove(employee);
-            employee.getProjects().remove(this);
+            if (Hibernate.isInitialized(employee.getProjects())) {
+                employee.getProjects().remove(this);
+            }
+            touch();
         }
     }
 
@@ -258,6 +351,24 @@ class Project {
             task.setProject(null);
         }
     }
+
+    // Равенство по id, как у Employee
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Project)) {
+            return false;
+        }
+        int id = getProject_id();
+        return id != 0 && id == ((Project) o).getProject_id();
+    }
+
+    @Override
+    public int hashCode() {
+        return Project.class.hashCode();
+    }
 }
 
 // Сущность задачи со связями к проекту и сотруднику
@@ -265,7 +376,9 @@ class Project {
 @Table(name = "Task")
 class Task {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "task_ids")
+    @TableGenerator(name = "task_ids", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+        valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "task", allocationSize = IdGenerators.ALLOCATION_SIZE)
     private int task_id;
 
     @Temporal(TemporalType.DATE)
@@ -280,6 +393,11 @@ class Task {
     @Column(name = "task_status")
     private String task_status;
 
+    // Время последнего изменения для инкрементальной выгрузки (см. DeltaSync)
+    @Column(name = "last_modified")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date last_modified;
+
     // Связь с проектом
     @ManyToOne
     @JoinColumn(name = "project_id")
@@ -332,6 +450,16 @@ class Task {
         this.task_status = task_status;
     }
 
+    public Date getLast_modified() {
+        return last_modified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        last_modified = new Date();
+    }
+
     public Project getProject() {
         return project;
     }
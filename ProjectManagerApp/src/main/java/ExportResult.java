@@ -0,0 +1,38 @@
+// Итог выгрузки (XML, CSV, XLSX, JSON): прочитанные строки, размер файла и время
+public class ExportResult {
+    private final long rows;
+    private final long bytes;
+    private final long nanos;
+
+    ExportResult(long rows, long bytes, long nanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public double getMillis() {
+        return nanos / 1_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+        return rows * 1_000_000_000.0 / Math.max(1, nanos);
+    }
+
+    public double getMegabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) * 1_000_000_000.0 / Math.max(1, nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d строк, %.1f МБ за %.0f мс (%.0f строк/с, %.1f МБ/с)",
+            rows, bytes / (1024.0 * 1024.0), getMillis(), getRowsPerSecond(), getMegabytesPerSecond());
+    }
+}
@@ -0,0 +1,165 @@
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+// Полнотекстовый поиск в БД по проектам (project_name) и задачам (task_name, task_description).
+// На MySQL используются индексы FULLTEXT (их создает миграция V3, см. SchemaMigrations) и MATCH ... AGAINST
+// с сортировкой по релевантности, на встроенной БД (H2 в тестах) - LIKE по тем же столбцам: сначала совпадения в названии.
+// Результат читается постранично (LIMIT/OFFSET), в память клиента попадает только видимая страница id.
+public class FullTextSearch implements PagedTableModel.IdPager {
+    // Символы операторов BOOLEAN MODE, которые нужно убрать из слов запроса
+    private static final String BOOLEAN_OPERATORS = "+-<>()~*\"@";
+    // Условие фильтра "только проекты с просроченными задачами" (то же, что у TableQueries.projectSource)
+    private static final String PROJECT_OVERDUE = "EXISTS (SELECT 1 FROM Task t WHERE t.project_id = Project.project_id "
+        + "AND t.task_status = 'Просрочено')";
+
+    private final String table;
+    private final String idColumn;
+    private final String[] columns;
+    private final List<String> words;
+    // Условие отбора таблицы, в которой показывается результат (null - все строки)
+    private final String filter;
+
+    private FullTextSearch(String table, String idColumn, String query, String filter, String... columns) {
+        this.table = table;
+        this.idColumn = idColumn;
+        this.columns = columns;
+        this.words = words(query);
+        this.filter = filter;
+    }
+
+    // overdueOnly - в таблице проектов включен фильтр по просроченным задачам
+    public static FullTextSearch projects(String query, boolean overdueOnly) {
+        return new FullTextSearch("Project", "project_id", query, overdueOnly ? PROJECT_OVERDUE : null, "project_name");
+    }
+
+    public static FullTextSearch tasks(String query) {
+        return new FullTextSearch("Task", "task_id", query, null, "task_name", "task_description");
+    }
+
+    // Слова запроса в нижнем регистре
+    static List<String> words(String query) {
+        List<String> words = new ArrayList<>();
+        if (query != null) {
+            for (String word : query.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    // Запрос BOOLEAN MODE: каждое слово обязательно и ищется по префиксу, операторы из ввода убираются
+    static String booleanQuery(List<String> words) {
+        StringBuilder query = new StringBuilder();
+        for (String word : words) {
+            StringBuilder clean = new StringBuilder();
+            for (char c : word.toCharArray()) {
+                if (BOOLEAN_OPERATORS.indexOf(c) < 0) {
+                    clean.append(c);
+                }
+            }
+            if (clean.length() > 0) {
+                query.append(query.length() == 0 ? "" : " ").append('+').append(clean).append('*');
+            }
+        }
+        return query.toString();
+    }
+
+    @Override
+    public long count(EntityManager em) {
+        if (words.isEmpty()) {
+            return 0;
+        }
+        Query query = em.createNativeQuery("SELECT COUNT(*) FROM " + table + " WHERE " + condition());
+        bind(query);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    // Id найденных строк по убыванию релевантности
+    @Override
+    public int[] idsAt(EntityManager em, int offset, int limit) {
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        Query query = em.createNativeQuery("SELECT " + idColumn + " FROM " + table + " WHERE " + condition()
+            + " ORDER BY " + rank() + ", " + idColumn);
+        bind(query);
+        List<?> ids = query.setFirstResult(offset).setMaxResults(limit).getResultList();
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((Number) ids.get(i)).intValue();
+        }
+        return result;
+    }
+
+    private String condition() {
+        return filter != null ? searchCondition() + " AND " + filter : searchCondition();
+    }
+
+    private String searchCondition() {
+        if (useFullText()) {
+            return match();
+        }
+        // Каждое слово должно встретиться хотя бы в одном из столбцов
+        StringBuilder condition = new StringBuilder();
+        for (int w = 0; w < words.size(); w++) {
+            condition.append(w == 0 ? "(" : " AND (");
+            for (int c = 0; c < columns.length; c++) {
+                condition.append(c == 0 ? "" : " OR ").append(like(columns[c], w + 1));
+            }
+            condition.append(")");
+        }
+        return condition.toString();
+    }
+
+    private String rank() {
+        if (useFullText()) {
+            return match() + " DESC";
+        }
+        // Без FULLTEXT: сначала строки, где все слова есть в первом столбце (названии)
+        StringBuilder inName = new StringBuilder();
+        for (int w = 0; w < words.size(); w++) {
+            inName.append(w == 0 ? "" : " AND ").append(like(columns[0], w + 1));
+        }
+        return "CASE WHEN " + inName + " THEN 0 ELSE 1 END";
+    }
+
+    private String match() {
+        return "MATCH(" + String.join(", ", columns) + ") AGAINST (?1 IN BOOLEAN MODE)";
+    }
+
+    private static String like(String column, int parameter) {
+        return "LOWER(" + column + ") LIKE ?" + parameter + " ESCAPE '!'";
+    }
+
+    private void bind(Query query) {
+        if (useFullText()) {
+            query.setParameter(1, booleanQuery(words));
+        } else {
+            for (int w = 0; w < words.size(); w++) {
+                query.setParameter(w + 1, "%" + TableSource.escapeLike(words.get(w)) + "%");
+            }
+        }
+    }
+
+    private boolean useFullText() {
+        return PersistenceManager.isMySql();
+    }
+
+    // Одинаковые запросы к одной таблице не требуют перезагрузки результата
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FullTextSearch && table.equals(((FullTextSearch) other).table)
+            && words.equals(((FullTextSearch) other).words) && Objects.equals(filter, ((FullTextSearch) other).filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, words, filter);
+    }
+}
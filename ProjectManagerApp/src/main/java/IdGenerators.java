@@ -0,0 +1,100 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.log4j.Logger;
+
+// Генерация id сущностей из таблицы id_sequences (@TableGenerator с оптимизатором pooled):
+// Hibernate резервирует сразу ALLOCATION_SIZE id одним обновлением таблицы и раздает их из памяти,
+// поэтому в отличие от IDENTITY вставки не выполняются сразу при persist и собираются в пакеты JDBC
+// (hibernate.jdbc.batch_size в persistence.xml).
+// Импорт XML и восстановление из снимка вставляют строки с id из файла напрямую через JDBC,
+// поэтому после них (и при старте, для БД, заполненных при IDENTITY) счетчики сдвигаются за MAX(id).
+// Id из пула, уже выданного Hibernate до импорта, таблица не отзывает: импорт лучше выполнять до правки данных
+public final class IdGenerators {
+    private static final Logger logger = Logger.getLogger(IdGenerators.class);
+    static final String TABLE = "id_sequences";
+    static final String NAME_COLUMN = "sequence_name";
+    static final String VALUE_COLUMN = "next_val";
+    // Совпадает с hibernate.jdbc.batch_size: один пул id на один пакет вставок
+    static final int ALLOCATION_SIZE = 50;
+
+    // Имя счетчика, таблица и столбец id
+    private static final String[][] SEQUENCES = {
+        {"client", "Client", "client_id"},
+        {"employee", "Employee", "employee_id"},
+        {"project", "Project", "project_id"},
+        {"task", "Task", "task_id"},
+    };
+
+    private IdGenerators() {
+    }
+
+    // Сдвиг счетчиков через отдельное соединение пула
+    public static void advance() throws SQLException {
+        try (Connection connection = PersistenceManager.getDataSource().getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                advance(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // Сдвиг счетчиков после импорта через JDBC, в том числе прерванного: части, зафиксированные до ошибки,
+    // остаются в БД с id из файла. Вызывается из finally, поэтому ошибка сдвига не заменяет ошибку импорта,
+    // а только пишется в журнал (счетчики сдвинутся при следующем запуске, см. PersistenceManager.init)
+    static void advanceAfterImport() {
+        try {
+            advance();
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Не удалось сдвинуть счетчики id после импорта", e);
+        }
+    }
+
+    // Pooled хранит верхнюю границу следующего пула и выдает id начиная с next_val - ALLOCATION_SIZE + 1,
+    // поэтому next_val поднимается до MAX(id) + ALLOCATION_SIZE + 1 (и никогда не опускается)
+    static void advance(Connection connection) throws SQLException {
+        try (PreparedStatement raise = connection.prepareStatement("UPDATE " + TABLE + " SET " + VALUE_COLUMN
+                + " = ? WHERE " + NAME_COLUMN + " = ? AND " + VALUE_COLUMN + " < ?");
+             PreparedStatement exists = connection.prepareStatement("SELECT COUNT(*) FROM " + TABLE
+                + " WHERE " + NAME_COLUMN + " = ?");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE + " (" + NAME_COLUMN
+                + ", " + VALUE_COLUMN + ") VALUES (?, ?)");
+             Statement statement = connection.createStatement()) {
+            for (String[] sequence : SEQUENCES) {
+                long maxId;
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(" + sequence[2] + "), 0) FROM "
+                        + sequence[1])) {
+                    rs.next();
+                    maxId = rs.getLong(1);
+                }
+                long next = maxId + ALLOCATION_SIZE + 1;
+                raise.setLong(1, next);
+                raise.setString(2, sequence[0]);
+                raise.setLong(3, next);
+                if (raise.executeUpdate() > 0) {
+                    logger.info("Счетчик id " + sequence[0] + " сдвинут до " + next);
+                    continue;
+                }
+                exists.setString(1, sequence[0]);
+                try (ResultSet rs = exists.executeQuery()) {
+                    rs.next();
+                    if (rs.getLong(1) > 0) {
+                        continue;
+                    }
+                }
+                insert.setString(1, sequence[0]);
+                insert.setLong(2, next);
+                insert.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.log4j.Logger;
+
+// Параллельный импорт all_data.xml конвейером: поток разбора -> пул преобразования -> потоки записи.
+// Стадии связаны ограниченными очередями: если запись не успевает, преобразование и разбор ждут (backpressure).
+// Запись идет по уровням внешних ключей (клиенты и сотрудники, затем проекты, затем задачи):
+// потоки записи берутся за следующий уровень только после фиксации всех записей предыдущего.
+// Внутри уровня записи распределяются между потоками по id, поэтому одна запись всегда пишется одним потоком.
+public class ImportPipeline {
+    private static final Logger logger = Logger.getLogger(ImportPipeline.class);
+    // Число потоков преобразования и записи (-Dxml.import.converters, -Dxml.import.writers).
+    // Потоков записи не больше, чем соединений в пуле (hibernate.hikari.maximumPoolSize)
+    static final int CONVERTERS = Integer.getInteger("xml.import.converters",
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+    static final int WRITERS = Integer.getInteger("xml.import.writers", 4);
+    // Емкость очередей в сообщениях и число записей в одном сообщении
+    static final int QUEUE_CAPACITY = Integer.getInteger("xml.import.queue", 64);
+    static final int MESSAGE_SIZE = 256;
+    private static final long POLL_MILLIS = 50;
+
+    private final int converters;
+    private final int writers;
+    private final BlockingQueue<Message<XmlImporter.Record>> parsed;
+    // Очереди записи: [уровень][поток записи]
+    private final List<List<BlockingQueue<Message<XmlImporter.Row>>>> toWrite = new ArrayList<>();
+    // Сообщения уровня, которые еще не записаны (включая еще не преобразованные); уровень закрыт разбором
+    private final AtomicInteger[] inFlight = new AtomicInteger[XmlImporter.Type.LEVELS];
+    private final AtomicBoolean[] closed = new AtomicBoolean[XmlImporter.Type.LEVELS];
+    private final CountDownLatch[] levelDone = new CountDownLatch[XmlImporter.Type.LEVELS];
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    private final Stage parseStage = new Stage("Разбор XML");
+    private final Stage convertStage = new Stage("Преобразование");
+    private final Stage writeStage = new Stage("Запись в БД");
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+
+    ImportPipeline(int converters, int writers, int queueCapacity) {
+        this.converters = converters;
+        this.writers = writers;
+        this.parsed = new ArrayBlockingQueue<>(queueCapacity);
+        for (int level = 0; level < XmlImporter.Type.LEVELS; level++) {
+            List<BlockingQueue<Message<XmlImporter.Row>>> queues = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                queues.add(new ArrayBlockingQueue<>(queueCapacity));
+            }
+            toWrite.add(queues);
+            inFlight[level] = new AtomicInteger();
+            closed[level] = new AtomicBoolean();
+            levelDone[level] = new CountDownLatch(writers);
+        }
+    }
+
+    public static Report importFile(Path file) throws IOException, XMLStreamException, SQLException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            Report report = importFrom(in);
+            logger.info("Импорт из " + file + ": " + report);
+            return report;
+        }
+    }
+
+    public static Report importFrom(InputStream in) throws XMLStreamException, SQLException {
+        return new ImportPipeline(CONVERTERS, WRITERS, QUEUE_CAPACITY).run(in);
+    }
+
+    // Запуск всех стадий; первая ошибка любой стадии останавливает конвейер и пробрасывается вызывающему.
+    // Как и при последовательном импорте, уже зафиксированные части остаются в БД
+    Report run(InputStream in) throws XMLStreamException, SQLException {
+        long start = System.nanoTime();
+        XmlImporter.IdSets ids;
+        try (Connection connection = PersistenceManager.getDataSource().getConnection()) {
+            ids = XmlImporter.IdSets.load(connection);
+        }
+        XmlImporter.RecordReader reader = new XmlImporter.RecordReader(in);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(1 + converters + writers, runnable -> {
+            Thread thread = new Thread(runnable, "xml-import-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            tasks.add(pool.submit(() -> guarded(() -> parse(reader))));
+            for (int c = 0; c < converters; c++) {
+                tasks.add(pool.submit(() -> guarded(this::convert)));
+            }
+            for (int w = 0; w < writers; w++) {
+                int index = w;
+                tasks.add(pool.submit(() -> guarded(() -> write(index, ids))));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (Exception e) {
+                    fail(e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            reader.close();
+            // Строки записаны мимо Hibernate (в том числе уже зафиксированные части при ошибке):
+            // счетчики id сдвигаются за id из файла (см. IdGenerators), кэш сбрасывается
+            IdGenerators.advanceAfterImport();
+            PersistenceManager.evictCaches();
+        }
+        Exception error = failure.get();
+        if (error instanceof XMLStreamException) {
+            throw (XMLStreamException) error;
+        } else if (error instanceof SQLException) {
+            throw (SQLException) error;
+        } else if (error != null) {
+            throw new IllegalStateException("Ошибка конвейера импорта: " + error.getMessage(), error);
+        }
+        return new Report(new XmlImporter.Result(inserted.get(), updated.get(), skipped.get(), commits.get(),
+            System.nanoTime() - start), List.of(parseStage, convertStage, writeStage));
+    }
+
+    // Стадия 1: разбор файла в сообщения; уровень закрывается, когда в файле начинается следующий.
+    // Запись из уже закрытого уровня (нарушен порядок разделов) пишется с текущим уровнем
+    private void parse(XmlImporter.RecordReader reader) throws Exception {
+        int level = 0;
+        List<XmlImporter.Record> batch = new ArrayList<>(MESSAGE_SIZE);
+        long busyStart = System.nanoTime();
+        for (XmlImporter.Record record = reader.next(); record != null; record = reader.next()) {
+            int recordLevel = Math.max(level, record.type.level);
+            if (recordLevel > level) {
+                emit(level, batch, busyStart);
+                batch = new ArrayList<>(MESSAGE_SIZE);
+                for (int closing = level; closing < recordLevel; closing++) {
+                    closed[closing].set(true);
+                }
+                level = recordLevel;
+                busyStart = System.nanoTime();
+            }
+            batch.add(record);
+            if (batch.size() == MESSAGE_SIZE) {
+                emit(level, batch, busyStart);
+                batch = new ArrayList<>(MESSAGE_SIZE);
+                busyStart = System.nanoTime();
+            }
+        }
+        emit(level, batch, busyStart);
+        for (AtomicBoolean levelClosed : closed) {
+            levelClosed.set(true);
+        }
+    }
+
+    private void emit(int level, List<XmlImporter.Record> batch, long busyStart) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        parseStage.processed(batch.size(), System.nanoTime() - busyStart);
+        inFlight[level].incrementAndGet();
+        put(parsed, new Message<>(level, batch), parseStage);
+    }
+
+    // Стадия 2: проверка и преобразование записей, распределение по потокам записи по id
+    private void convert() throws Exception {
+        while (true) {
+            checkFailure();
+            Message<XmlImporter.Record> message = parsed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (message == null) {
+                if (parseFinished()) {
+                    return;
+                }
+                continue;
+            }
+            long busyStart = System.nanoTime();
+            List<List<XmlImporter.Row>> partitions = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                partitions.add(new ArrayList<>());
+            }
+            for (XmlImporter.Record record : message.items) {
+                XmlImporter.Row row = XmlImporter.Row.of(record);
+                if (row == null) {
+                    skipped.incrementAndGet();
+                } else {
+                    partitions.get(Math.floorMod(row.id, writers)).add(row);
+                }
+            }
+            convertStage.processed(message.items.size(), System.nanoTime() - busyStart);
+            for (int w = 0; w < writers; w++) {
+                if (!partitions.get(w).isEmpty()) {
+                    inFlight[message.level].incrementAndGet();
+                    put(toWrite.get(message.level).get(w), new Message<>(message.level, partitions.get(w)), convertStage);
+                }
+            }
+            inFlight[message.level].decrementAndGet();
+        }
+    }
+
+    // Разбор закончен и все его сообщения разобраны преобразованием
+    private boolean parseFinished() {
+        return closed[XmlImporter.Type.LEVELS - 1].get() && parsed.isEmpty();
+    }
+
+    // Стадия 3: пакетная запись по уровням через собственное соединение потока
+    private void write(int index, XmlImporter.IdSets ids) throws Exception {
+        try (Connection connection = PersistenceManager.getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            try (XmlImporter.BatchWriter writer = new XmlImporter.BatchWriter(connection, XmlImporter.BATCH_SIZE, ids)) {
+                for (int level = 0; level < XmlImporter.Type.LEVELS; level++) {
+                    if (level > 0) {
+                        levelDone[level - 1].await();
+                    }
+                    checkFailure();
+                    writeLevel(writer, level, toWrite.get(level).get(index));
+                    writer.commit();
+                    levelDone[level].countDown();
+                }
+                inserted.addAndGet(writer.getInserted());
+                updated.addAndGet(writer.getUpdated());
+                commits.addAndGet(writer.getCommits());
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void writeLevel(XmlImporter.BatchWriter writer, int level, BlockingQueue<Message<XmlImporter.Row>> queue)
+            throws Exception {
+        int sinceCommit = 0;
+        while (true) {
+            checkFailure();
+            Message<XmlImporter.Row> message = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (message == null) {
+                if (closed[level].get() && inFlight[level].get() == 0) {
+                    return;
+                }
+                continue;
+            }
+            long busyStart = System.nanoTime();
+            for (XmlImporter.Row row : message.items) {
+                writer.write(row);
+            }
+            sinceCommit += message.items.size();
+            if (sinceCommit >= XmlImporter.CHUNK_SIZE) {
+                writer.commit();
+                sinceCommit = 0;
+            }
+            writeStage.processed(message.items.size(), System.nanoTime() - busyStart);
+            inFlight[level].decrementAndGet();
+        }
+    }
+
+    // Помещение в очередь с ожиданием (backpressure); ожидание прерывается при ошибке другой стадии
+    private <T> void put(BlockingQueue<Message<T>> queue, Message<T> message, Stage stage) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        while (!queue.offer(message, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+        stage.queued(queue.size(), System.nanoTime() - waitStart);
+    }
+
+    private void checkFailure() throws InterruptedException {
+        if (failure.get() != null) {
+            throw new InterruptedException("Конвейер импорта остановлен после ошибки другой стадии");
+        }
+    }
+
+    private void guarded(Work work) {
+        try {
+            work.run();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    // Первая ошибка останавливает все стадии: остальные потоки видят ее в checkFailure
+    private void fail(Exception e) {
+        Exception cause = e instanceof ExecutionException && e.getCause() instanceof Exception
+            ? (Exception) e.getCause() : e;
+        if (failure.compareAndSet(null, cause)) {
+            logger.error("Ошибка конвейера импорта: " + cause.getMessage(), cause);
+            for (CountDownLatch latch : levelDone) {
+                while (latch.getCount() > 0) {
+                    latch.countDown();
+                }
+            }
+        }
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    // Сообщение между стадиями: записи одного уровня
+    private static class Message<T> {
+        final int level;
+        final List<T> items;
+
+        Message(int level, List<T> items) {
+            this.level = level;
+            this.items = items;
+        }
+    }
+
+    // Статистика стадии: обработанные записи, время работы (без ожидания в очередях),
+    // время ожидания места в следующей очереди и глубина этой очереди
+    public static class Stage {
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong blockedNanos = new AtomicLong();
+        private final AtomicLong puts = new AtomicLong();
+        private final AtomicLong depthSum = new AtomicLong();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void processed(int count, long nanos) {
+            items.addAndGet(count);
+            busyNanos.addAndGet(nanos);
+        }
+
+        void queued(int depth, long waitNanos) {
+            blockedNanos.addAndGet(waitNanos);
+            puts.incrementAndGet();
+            depthSum.addAndGet(depth);
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getItems() {
+            return items.get();
+        }
+
+        // Записей в секунду работы стадии (суммарно по ее потокам)
+        public double getItemsPerBusySecond() {
+            return items.get() * 1_000_000_000.0 / Math.max(1, busyNanos.get());
+        }
+
+        public double getBlockedMillis() {
+            return blockedNanos.get() / 1_000_000.0;
+        }
+
+        public int getMaxQueueDepth() {
+            return maxDepth.get();
+        }
+
+        public double getAverageQueueDepth() {
+            return puts.get() == 0 ? 0 : (double) depthSum.get() / puts.get();
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format("%s: %d записей, %.0f записей/с работы", name, items.get(), getItemsPerBusySecond());
+            if (puts.get() > 0) {
+                text += String.format(", ожидание очереди %.0f мс, глубина очереди ср. %.1f / макс. %d",
+                    getBlockedMillis(), getAverageQueueDepth(), getMaxQueueDepth());
+            }
+            return text;
+        }
+    }
+
+    // Итог импорта и статистика по стадиям
+    public static class Report {
+        private final XmlImporter.Result result;
+        private final List<Stage> stages;
+
+        Report(XmlImporter.Result result, List<Stage> stages) {
+            this.result = result;
+            this.stages = stages;
+        }
+
+        public XmlImporter.Result getResult() {
+            return result;
+        }
+
+        public List<Stage> getStages() {
+            return stages;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(result.toString());
+            for (Stage stage : stages) {
+                text.append("\n  ").append(stage);
+            }
+            return text.toString();
+        }
+    }
+}
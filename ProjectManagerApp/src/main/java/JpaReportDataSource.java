@@ -0,0 +1,90 @@
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Источник данных JasperReports поверх JPQL-проекции: строки читаются страницами через KeysetCursor
+// и сразу передаются в заполнение отчета, без промежуточного all_data.xml и XPath.
+// Поля отчета сопоставляются со столбцами проекции по имени.
+// Значения приводятся так же, как их видел JRXmlDataSource: даты - строка yyyy-MM-dd,
+// пустая строка вместо null у основных столбцов и null у необязательных (отсутствующий узел XML)
+public class JpaReportDataSource implements JRDataSource {
+    private final KeysetCursor cursor;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int required;
+    private Object[] row;
+
+    JpaReportDataSource(KeysetCursor cursor, String... columns) {
+        this.cursor = cursor;
+        addColumns(columns);
+        required = names.size();
+    }
+
+    // Столбцы, которые добавляет PageMapper курсора после основных; null в них не заменяется
+    JpaReportDataSource withOptional(String... columns) {
+        addColumns(columns);
+        return this;
+    }
+
+    private void addColumns(String... added) {
+        for (String column : added) {
+            columns.put(column, names.size());
+            names.add(column);
+        }
+    }
+
+    @Override
+    public boolean next() throws JRException {
+        try {
+            row = cursor.next();
+        } catch (RuntimeException e) {
+            throw new JRException("Ошибка чтения данных отчета: " + e.getMessage(), e);
+        }
+        return row != null;
+    }
+
+    @Override
+    public Object getFieldValue(JRField field) throws JRException {
+        Integer index = columns.get(field.getName());
+        if (index == null) {
+            throw new JRException("Поле отчета " + field.getName() + " отсутствует в выборке " + names);
+        }
+        Object value = index < row.length ? row[index] : null;
+        if (value == null) {
+            return index < required && field.getValueClass() == String.class ? "" : null;
+        }
+        return convert(value, field.getValueClass(), field.getName());
+    }
+
+    // Число прочитанных строк (для журнала)
+    public long getRows() {
+        return cursor.getRows();
+    }
+
+    private static Object convert(Object value, Class<?> type, String name) throws JRException {
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (type == String.class) {
+            return value instanceof Date ? DateFormats.iso((Date) value) : value.toString();
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (type == Integer.class) {
+                return number.intValue();
+            }
+            if (type == Long.class) {
+                return number.longValue();
+            }
+            if (type == Double.class) {
+                return number.doubleValue();
+            }
+        }
+        throw new JRException("Поле " + name + ": нельзя привести " + value.getClass().getName() + " к " + type.getName());
+    }
+}
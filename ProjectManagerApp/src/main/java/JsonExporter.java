@@ -0,0 +1,63 @@
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+// JSON-массив объектов {"столбец": значение} через потоковый JsonGenerator (Jackson).
+// Числа пишутся числами, даты - строками yyyy-MM-dd, пустые значения - null
+public class JsonExporter implements TableExporter {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    @Override
+    public String getName() {
+        return "JSON";
+    }
+
+    @Override
+    public String getExtension() {
+        return "json";
+    }
+
+    @Override
+    public RowWriter open(OutputStream out, String name, List<String> columns) throws IOException {
+        JsonGenerator json = FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        // Поток закрывает вызывающий код (TableExport)
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartArray();
+        String[] names = columns.toArray(new String[0]);
+        return new RowWriter() {
+            @Override
+            public void write(Object[] row) throws IOException {
+                json.writeStartObject();
+                for (int i = 0; i < names.length; i++) {
+                    json.writeFieldName(names[i]);
+                    writeValue(json, row[i]);
+                }
+                json.writeEndObject();
+            }
+
+            @Override
+            public void close() throws IOException {
+                json.writeEndArray();
+                json.close();
+            }
+        };
+    }
+
+    private static void writeValue(JsonGenerator json, Object value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Integer) {
+            json.writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            json.writeNumber((Long) value);
+        } else if (value instanceof Date) {
+            json.writeString(DateFormats.iso((Date) value));
+        } else {
+            json.writeString(value.toString());
+        }
+    }
+}
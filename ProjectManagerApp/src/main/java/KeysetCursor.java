@@ -0,0 +1,107 @@
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Постраничное чтение JPQL-проекции по возрастанию ключа (keyset): следующая страница начинается
+// после последнего прочитанного ключа, поэтому в памяти всегда не больше одной страницы.
+// Первые столбцы строки - значения ключа (один столбец или пара, например id проекта и id задачи)
+class KeysetCursor {
+    // Дополнение страницы данными из других запросов (один запрос на страницу, а не на строку)
+    interface PageMapper {
+        List<Object[]> map(EntityManager em, List<Object[]> page);
+    }
+
+    private final EntityManager em;
+    private final String select;
+    private final String[] keys;
+    private final int pageSize;
+    private final Map<String, Object> parameters = new HashMap<>();
+    private PageMapper mapper;
+    private List<Object[]> page = List.of();
+    private int position;
+    private Object[] last;
+    private boolean exhausted;
+    private long rows;
+
+    KeysetCursor(EntityManager em, String select, int pageSize, String... keys) {
+        this.em = em;
+        this.select = select;
+        this.keys = keys;
+        this.pageSize = pageSize;
+    }
+
+    KeysetCursor mapPages(PageMapper mapper) {
+        this.mapper = mapper;
+        return this;
+    }
+
+    // Параметр условия WHERE из select (имена k0 и k1 заняты ключом)
+    KeysetCursor setParameter(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    // Следующая строка или null в конце выборки
+    Object[] next() {
+        Object[] row = peek();
+        if (row != null) {
+            position++;
+            rows++;
+        }
+        return row;
+    }
+
+    // Следующая строка, если ее первый ключ равен parentId (строки с меньшим ключом пропускаются)
+    Object[] nextFor(int parentId) {
+        Object[] row = peek();
+        while (row != null && (Integer) row[0] < parentId) {
+            position++;
+            row = peek();
+        }
+        return row != null && (Integer) row[0] == parentId ? next() : null;
+    }
+
+    // Число строк, возвращенных через next
+    long getRows() {
+        return rows;
+    }
+
+    private Object[] peek() {
+        if (position == page.size()) {
+            if (exhausted) {
+                return null;
+            }
+            fetch();
+            if (page.isEmpty()) {
+                return null;
+            }
+        }
+        return page.get(position);
+    }
+
+    private void fetch() {
+        StringBuilder jpql = new StringBuilder(select);
+        if (last != null) {
+            jpql.append(select.contains(" WHERE ") ? " AND " : " WHERE ");
+            jpql.append(keys.length == 1 ? keys[0] + " > :k0"
+                : "(" + keys[0] + " > :k0 OR (" + keys[0] + " = :k0 AND " + keys[1] + " > :k1))");
+        }
+        jpql.append(" ORDER BY ").append(String.join(", ", keys));
+        TypedQuery<Object[]> query = em.createQuery(jpql.toString(), Object[].class);
+        parameters.forEach((name, value) -> query.setParameter(name, value));
+        if (last != null) {
+            for (int k = 0; k < keys.length; k++) {
+                query.setParameter("k" + k, last[k]);
+            }
+        }
+        List<Object[]> result = query.setMaxResults(pageSize).getResultList();
+        position = 0;
+        exhausted = result.size() < pageSize;
+        if (!result.isEmpty()) {
+            last = result.get(result.size() - 1);
+        }
+        page = mapper != null && !result.isEmpty() ? mapper.map(em, result) : result;
+    }
+}
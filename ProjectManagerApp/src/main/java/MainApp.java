@@ -3,7 +3,15 @@ import javax.swing.SwingUtilities;
 // Точка входа в приложение для управления проектами
 public class MainApp {
     public static void main(String[] args) {
+        // Создаем общую фабрику EntityManager один раз при старте
+        PersistenceManager.init();
         // Запуск GUI в потоке обработки событий Swing
-        SwingUtilities.invokeLater(() -> new UI().createAndShowGUI());
+        SwingUtilities.invokeLater(() -> {
+            new UI().createAndShowGUI();
+            // Периодический перевод просроченных задач в статус "Просрочено"
+            OverdueSweeper.start();
+            // Компиляция шаблонов отчетов заранее, чтобы первый PDF не ждал компилятора
+            ReportCache.warmUp(UI.REPORT_TEMPLATES);
+        });
     }
 }
@@ -1,6 +1,17 @@
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 public class MainTest {
 
@@ -56,6 +67,219 @@ public class MainTest {
         assertEquals("Not Started", task.getTask_status());
     }
 
+    @Test
+    void testDateFormats() {
+        Date utilDate = new Date(2024 - 1900, 11, 31);
+        java.sql.Date sqlDate = java.sql.Date.valueOf("2024-12-31");
+
+        assertEquals("31.12.2024", DateFormats.display(utilDate));
+        assertEquals("31.12.2024", DateFormats.display(sqlDate));
+        assertEquals("2024-12-31", DateFormats.iso(sqlDate));
+        assertNull(DateFormats.display(null));
+    }
+
+    @Test
+    void testTableChanges() {
+        TableChanges changes = new TableChanges()
+            .inserted(TableChanges.Table.TASKS, 10)
+            .updated(TableChanges.Table.TASKS, Arrays.asList(10, 11, 12))
+            .deleted(TableChanges.Table.TASKS, 12)
+            .updated(TableChanges.Table.PROJECTS, (Integer) null);
+
+        assertEquals(Set.of(10), changes.getInserted(TableChanges.Table.TASKS));
+        assertEquals(Set.of(11), changes.getUpdated(TableChanges.Table.TASKS));
+        assertEquals(Set.of(12), changes.getDeleted(TableChanges.Table.TASKS));
+        assertTrue(changes.isEmpty(TableChanges.Table.PROJECTS));
+        assertTrue(changes.isEmpty(TableChanges.Table.CLIENTS));
+    }
+
+    @Test
+    void testSearchIndex() {
+        SearchIndex index = new SearchIndex("название", "статус", "клиент");
+        index.put(1, "Сайт магазина", "Активный", "ООО Ромашка");
+        index.put(2, "Мобильное приложение (v2.0)", "Завершен", "ИП Иванов");
+        index.put(3, "Сайт-визитка", "Завершен", null);
+
+        assertArrayEquals(new int[]{1, 3}, index.search("сайт"));
+        assertArrayEquals(new int[]{3}, index.search("САЙТ статус:завершен"));
+        assertArrayEquals(new int[]{1}, index.search("клиент:\"ооо ром\""));
+        // Спецсимволы регулярных выражений ищутся буквально
+        assertArrayEquals(new int[]{2}, index.search("(v2.0)"));
+        assertArrayEquals(new int[0], index.search(".*"));
+        // Неизвестное поле - часть слова
+        assertArrayEquals(new int[0], index.search("автор:сайт"));
+        assertNull(index.search("   "));
+
+        index.put(3, "Лендинг", "Завершен", null);
+        index.remove(1);
+        assertArrayEquals(new int[0], index.search("сайт"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testSearchIndexOnLargeTable() {
+        String[] statuses = {"Активный", "Завершен", "Приостановлен"};
+        SearchIndex index = new SearchIndex("название", "статус", "клиент");
+        for (int i = 0; i < 100_000; i++) {
+            index.put(i, "Проект " + i + " модернизация склада", statuses[i % 3], "Клиент " + (i % 500));
+        }
+
+        String[] queries = {"проект 4242", "99999", "статус:приост клиент:\"клиент 42\"", "модернизация 123"};
+        for (String query : queries) {
+            long start = System.nanoTime();
+            int[] ids = index.search(query);
+            double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+            System.out.printf("Поиск \"%s\" среди 100000 строк: %d совпадений за %.3f мс%n", query, ids.length, elapsedMs);
+        }
+        assertArrayEquals(new int[]{99999}, index.search("99999"));
+        int[] byClient = index.search("статус:приост клиент:\"клиент 42\"");
+        for (int id : byClient) {
+            assertEquals(2, id % 3);
+            assertTrue(("клиент " + (id % 500)).contains("клиент 42"));
+        }
+    }
+
+    @Test
+    void testFullTextBooleanQuery() {
+        assertEquals(List.of("срочная", "миграция"), FullTextSearch.words("  Срочная   МИГРАЦИЯ "));
+        assertEquals("+срочная* +миграция*", FullTextSearch.booleanQuery(FullTextSearch.words("Срочная миграция")));
+        // Операторы BOOLEAN MODE из ввода не должны менять смысл запроса
+        assertEquals("+abc* +def*", FullTextSearch.booleanQuery(List.of("-a+b*c", "(def)", "\"~@")));
+        assertEquals("", FullTextSearch.booleanQuery(FullTextSearch.words("  ")));
+    }
+
+    @Test
+    void testReportCacheColdVersusWarm() throws Exception {
+        Path source = Paths.get("clients.jrxml");
+        Assumptions.assumeTrue(Files.exists(source), "Шаблон clients.jrxml не найден в рабочем каталоге");
+        Path dir = Files.createTempDirectory("report-cache");
+        Path template = dir.resolve("clients.jrxml");
+        Files.copy(source, template);
+        ReportCache.clearMemory();
+
+        ReportCache.Lookup cold = ReportCache.lookup(template);
+        ReportCache.Lookup warm = ReportCache.lookup(template);
+        ReportCache.clearMemory();
+        ReportCache.Lookup disk = ReportCache.lookup(template);
+        System.out.printf("Шаблон отчета: компиляция %.1f мс, из памяти %.3f мс, из .jasper %.1f мс%n",
+            cold.getMillis(), warm.getMillis(), disk.getMillis());
+        assertEquals(ReportCache.Source.COMPILED, cold.getSource());
+        assertEquals(ReportCache.Source.MEMORY, warm.getSource());
+        assertEquals(ReportCache.Source.DISK, disk.getSource());
+        assertSame(warm.getReport(), cold.getReport());
+        assertTrue(Files.exists(ReportCache.compiledFile(template)));
+
+        // Новое время модификации без изменения содержимого - компиляция не нужна
+        Files.setLastModifiedTime(template, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        assertEquals(ReportCache.Source.MEMORY, ReportCache.lookup(template).getSource());
+        // Измененный шаблон компилируется заново
+        Files.write(template, "\n<!-- изменен -->".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(ReportCache.Source.COMPILED, ReportCache.lookup(template).getSource());
+        ReportCache.clearMemory();
+    }
+
+    @Test
+    void testReportJobFileName() {
+        assertEquals("7_ООО Ромашка.pdf", ReportJob.fileName(7, " ООО Ромашка "));
+        assertEquals("8_a_b_c_.pdf", ReportJob.fileName(8, "a/b:c?"));
+        assertEquals("9.pdf", ReportJob.fileName(9, null));
+        assertEquals(3 + 80 + 4, ReportJob.fileName(10, "x".repeat(200)).length());
+    }
+
+    @Test
+    void testReportVirtualizerModeFallsBackToSwap() {
+        assertEquals(ReportVirtualizer.Mode.GZIP, ReportVirtualizer.mode(" gzip "));
+        assertEquals(ReportVirtualizer.Mode.NONE, ReportVirtualizer.mode("None"));
+        assertEquals(ReportVirtualizer.Mode.SWAP, ReportVirtualizer.mode(null));
+        assertEquals(ReportVirtualizer.Mode.SWAP, ReportVirtualizer.mode("swpa"));
+    }
+
+    @Test
+    void testGeneralReportMovesToBatchDirectory() {
+        Path dir = Paths.get("reports", "2026-10");
+        ReportJob job = ReportJob.clients().in(dir);
+        assertEquals(dir.resolve(AppPaths.pdf("clients").getFileName()), job.getOutput());
+        assertEquals(ReportJob.clients().getTemplate(), job.getTemplate());
+        assertEquals(ReportJob.clients().getTitle(), job.getTitle());
+    }
+
+    @Test
+    void testCsvExporterQuoting() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TableExporter.RowWriter writer = new CsvExporter(';').open(out, "tasks", List.of("id", "name", "due"))) {
+            writer.write(new Object[] {1, "Отчет; \"итоговый\"", java.sql.Date.valueOf("2024-03-01")});
+            writer.write(new Object[] {2, "две\nстроки", null});
+        }
+        String csv = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals("\uFEFFid;name;due\r\n1;\"Отчет; \"\"итоговый\"\"\";2024-03-01\r\n2;\"две\nстроки\";\r\n", csv);
+    }
+
+    @Test
+    void testCsvExporterNeutralizesFormulas() throws Exception {
+        // Текст, который Excel принял бы за формулу, получает апостроф; числа не меняются
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TableExporter.RowWriter writer = new CsvExporter(';').open(out, "tasks", List.of("id", "name"))) {
+            writer.write(new Object[] {-1, "=HYPERLINK(\"http://example.com\")"});
+            writer.write(new Object[] {2, "+1"});
+            writer.write(new Object[] {3, "-2;3"});
+            writer.write(new Object[] {4, "@SUM(A1)"});
+            writer.write(new Object[] {5, "a=b"});
+        }
+        String csv = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals("\uFEFFid;name\r\n-1;\"'=HYPERLINK(\"\"http://example.com\"\")\"\r\n2;'+1\r\n"
+            + "3;\"'-2;3\"\r\n4;'@SUM(A1)\r\n5;a=b\r\n", csv);
+    }
+
+    @Test
+    void testMembershipDiffById() {
+        Employee first = employee(1, "Первый");
+        Employee second = employee(2, "Второй");
+        Employee third = employee(3, "Третий");
+
+        // Сравнение по id: другой экземпляр с тем же id считается оставшимся, повторы выбора учитываются один раз
+        MembershipDiff<Employee> diff = MembershipDiff.of(List.of(first, second),
+            List.of(employee(2, "Второй"), third, third), Employee::getEmployee_id);
+        assertEquals(List.of(third), diff.getAdded());
+        assertEquals(List.of(first), diff.getRemoved());
+        assertSame(second, diff.getKept().get(0));
+        assertEquals(List.of(3), MembershipDiff.ids(diff.getAdded(), Employee::getEmployee_id));
+        assertFalse(diff.isEmpty());
+        assertTrue(MembershipDiff.of(List.of(first), List.of(employee(1, "Первый")), Employee::getEmployee_id).isEmpty());
+
+        assertArrayEquals(new int[] {2, 0}, MembershipDiff.indicesOf(List.of(first, second, third),
+            List.of(employee(3, "Третий"), first, employee(9, "Нет в списке")), Employee::getEmployee_id));
+    }
+
+    @Test
+    void testMembershipDiffLargeProgramme() {
+        // 5000 текущих задач и 5000 выбранных со сдвигом на 1000: по 1000 добавленных и убранных
+        List<Task> current = new ArrayList<>();
+        List<Task> selected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            current.add(task(i));
+            selected.add(task(i + 1000));
+        }
+        MembershipDiff<Task> diff = MembershipDiff.of(current, selected, Task::getTask_id);
+        assertEquals(1000, diff.getAdded().size());
+        assertEquals(1000, diff.getRemoved().size());
+        assertEquals(4000, diff.getKept().size());
+        assertEquals(5000, diff.getAdded().get(0).getTask_id());
+        assertEquals(0, diff.getRemoved().get(0).getTask_id());
+    }
+
+    private static Employee employee(int id, String name) {
+        Employee employee = new Employee();
+        employee.setEmployee_id(id);
+        employee.setEmployee_name(name);
+        return employee;
+    }
+
+    private static Task task(int id) {
+        Task task = new Task();
+        task.setTask_id(id);
+        return task;
+    }
+
     @Test
     void testExceptionMessage() {
         MyException exception = new MyException("Custom exception message");
@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+// Разница между текущим и выбранным составом (сотрудники или задачи проекта) по первичному ключу.
+// Оба списка проходятся один раз через хеш-таблицы id, поэтому сравнение не зависит от equals сущностей
+// и не требует вложенных contains по спискам. Редакторы применяют только добавленных и убранных.
+public final class MembershipDiff<T> {
+    private final List<T> added;
+    private final List<T> removed;
+    private final List<T> kept;
+
+    private MembershipDiff(List<T> added, List<T> removed, List<T> kept) {
+        this.added = added;
+        this.removed = removed;
+        this.kept = kept;
+    }
+
+    // Повторы id в каждом списке учитываются один раз; порядок сохраняется
+    public static <T> MembershipDiff<T> of(Collection<? extends T> current, Collection<? extends T> selected,
+                                           ToIntFunction<? super T> id) {
+        Map<Integer, T> remaining = index(current, id);
+        Map<Integer, T> chosen = index(selected, id);
+        List<T> added = new ArrayList<>();
+        List<T> kept = new ArrayList<>();
+        for (Map.Entry<Integer, T> entry : chosen.entrySet()) {
+            T existing = remaining.remove(entry.getKey());
+            if (existing != null) {
+                kept.add(existing);
+            } else {
+                added.add(entry.getValue());
+            }
+        }
+        return new MembershipDiff<>(added, new ArrayList<>(remaining.values()), kept);
+    }
+
+    // Позиции элементов selected в items (для JList.setSelectedIndices); отсутствующие в items пропускаются
+    public static <T> int[] indicesOf(List<? extends T> items, Collection<? extends T> selected,
+                                      ToIntFunction<? super T> id) {
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            positions.putIfAbsent(id.applyAsInt(items.get(i)), i);
+        }
+        return index(selected, id).keySet().stream()
+            .map(positions::get)
+            .filter(Objects::nonNull)
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    public static <T> List<Integer> ids(Collection<? extends T> items, ToIntFunction<? super T> id) {
+        List<Integer> ids = new ArrayList<>(items.size());
+        for (T item : items) {
+            ids.add(id.applyAsInt(item));
+        }
+        return ids;
+    }
+
+    private static <T> Map<Integer, T> index(Collection<? extends T> items, ToIntFunction<? super T> id) {
+        Map<Integer, T> byId = new LinkedHashMap<>();
+        for (T item : items) {
+            byId.putIfAbsent(id.applyAsInt(item), item);
+        }
+        return byId;
+    }
+
+    public List<T> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public List<T> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    // Оставшиеся в составе (экземпляры из текущего списка)
+    public List<T> getKept() {
+        return Collections.unmodifiableList(kept);
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,81 @@
+import javax.persistence.EntityManager;
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import org.apache.log4j.Logger;
+
+// Перевод просроченных задач в статус "Просрочено" по расписанию и по запросу.
+// Выполняется одним UPDATE, чтобы обновление таблиц в интерфейсе оставалось только чтением.
+public final class OverdueSweeper {
+    private static final Logger logger = Logger.getLogger(OverdueSweeper.class);
+    // Интервал между проверками в минутах (можно переопределить -Doverdue.sweep.minutes=...)
+    private static final long INTERVAL_MINUTES = Long.getLong("overdue.sweep.minutes", 15);
+
+    private static ScheduledExecutorService scheduler;
+    // Вызывается после проверки, если статус изменился хотя бы у одной задачи
+    private static volatile IntConsumer listener = count -> { };
+
+    private OverdueSweeper() {
+    }
+
+    // Запуск периодической проверки (первая - сразу после старта)
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "overdue-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweepNow();
+            } catch (Exception e) {
+                logger.error("Ошибка при проверке просроченных задач: " + e.getMessage(), e);
+            }
+        }, 0, INTERVAL_MINUTES, TimeUnit.MINUTES);
+        logger.info("Проверка просроченных задач запускается каждые " + INTERVAL_MINUTES + " мин.");
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public static void setListener(IntConsumer onChanged) {
+        listener = onChanged != null ? onChanged : count -> { };
+    }
+
+    // Проверка по запросу; возвращает число задач, переведенных в статус "Просрочено"
+    public static int sweepNow() {
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int updated = em.createQuery(
+                "UPDATE Task t SET t.task_status = 'Просрочено', t.last_modified = :now "
+                    + "WHERE t.due_date < :today AND t.task_status <> 'Завершено' AND t.task_status <> 'Просрочено'")
+                .setParameter("today", DateFormats.today(), TemporalType.DATE)
+                .setParameter("now", new Date(), TemporalType.TIMESTAMP)
+                .executeUpdate();
+            em.getTransaction().commit();
+            logger.info("Просроченных задач обновлено: " + updated);
+            if (updated > 0) {
+                listener.accept(updated);
+            }
+            return updated;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,550 @@
+import javax.persistence.EntityManager;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+// Модель таблицы, которая подгружает строки из БД страницами по мере прокрутки.
+// В памяти держится ограниченное число страниц (LRU), общее количество строк берется из COUNT.
+// Изменения отдельных строк применяются на месте (applyChanges), без перезагрузки всей таблицы.
+// Вместо всей выборки модель может показывать заданный список id (результат поиска) в его порядке.
+// Все поля модели меняются только в потоке EDT; запросы выполняются через DataAccessExecutor.
+public class PagedTableModel<R> extends AbstractTableModel {
+    private static final Logger logger = Logger.getLogger(PagedTableModel.class);
+    static final int PAGE_SIZE = 200;
+    static final int MAX_CACHED_PAGES = 25;
+
+    private final String name;
+    private TableSource<R> source;
+    // Список id для показа (результат поиска) или null, если показывается вся выборка источника
+    private IdPager idOrder;
+    // Показываемый список id: idOrder без строк, скрытых условием отбора источника (задается при reload)
+    private IdPager shownOrder;
+    private int rowCount;
+    // Номер загрузки: ответы от предыдущих загрузок отбрасываются
+    private int generation;
+    // Номер раскладки строк по страницам: меняется при вставке и удалении строк
+    private int layoutVersion;
+    private Future<?> reloadTask;
+    private boolean reloading;
+
+    // Загруженные страницы в порядке последнего обращения
+    private final Map<Integer, List<R>> pages = new LinkedHashMap<Integer, List<R>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<R>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // Для страницы - id последней строки предыдущей страницы (граница keyset-пагинации)
+    private final NavigableMap<Integer, Integer> pageAfterIds = new TreeMap<>();
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    public PagedTableModel(String name, TableSource<R> source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    // Смена источника (например, включение фильтра); данные нужно перезагрузить через reload
+    public void setSource(TableSource<R> source) {
+        this.source = source;
+    }
+
+    // Показ только указанных строк в заданном порядке (null - вся выборка).
+    // Возвращает false, если список не изменился; иначе данные нужно перезагрузить через reload
+    public boolean setIdOrder(int[] ids) {
+        return setIdPager(ids != null ? new IdArray(ids) : null);
+    }
+
+    // То же для списка id, который читается из БД постранично (например, результат полнотекстового поиска)
+    public boolean setIdPager(IdPager pager) {
+        if (Objects.equals(pager, idOrder)) {
+            return false;
+        }
+        idOrder = pager;
+        return true;
+    }
+
+    // Перезагрузка: количество строк и первая страница одним фоновым заданием.
+    // Незавершенная предыдущая загрузка отменяется.
+    public void reload(Runnable onLoaded, Consumer<Exception> onError) {
+        int currentGeneration = ++generation;
+        if (reloadTask != null) {
+            reloadTask.cancel(true);
+        }
+        reloading = true;
+        TableSource<R> query = source;
+        IdPager ids = idOrder;
+        reloadTask = DataAccessExecutor.submit(name, () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                if (ids != null) {
+                    IdPager shown = shownIds(em, query, ids);
+                    return new FirstPage<>(shown, shown.count(em), fetchSlice(em, query, shown, 0));
+                }
+                long count = query.count(em);
+                List<R> firstPage = query.fetchPage(em, TableSource.FIRST_PAGE, PAGE_SIZE);
+                return new FirstPage<>(null, count, firstPage);
+            } finally {
+                em.close();
+            }
+        }, result -> {
+            if (currentGeneration != generation) {
+                return;
+            }
+            reloading = false;
+            layoutVersion++;
+            pages.clear();
+            pageAfterIds.clear();
+            loadingPages.clear();
+            shownOrder = result.ids;
+            rowCount = (int) Math.min(result.count, Integer.MAX_VALUE);
+            pageAfterIds.put(0, TableSource.FIRST_PAGE);
+            pageLoaded(0, new ArrayList<>(result.rows));
+            fireTableDataChanged();
+            if (onLoaded != null) {
+                onLoaded.run();
+            }
+        }, e -> {
+            if (currentGeneration != generation) {
+                return;
+            }
+            reloading = false;
+            if (onError != null) {
+                onError.accept(e);
+            }
+        });
+    }
+
+    // Точечное применение изменений: измененные и вставленные строки перечитываются одним запросом,
+    // позиции вставленных и удаленных строк определяются через COUNT по индексу id,
+    // после чего таблица получает fireTableRowsInserted/Updated/Deleted только для этих строк
+    public void applyChanges(Collection<Integer> inserted, Collection<Integer> updated, Collection<Integer> deleted) {
+        if (inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        // Состав строк результата поиска задает поиск, здесь обновляется только содержимое строк
+        if (idOrder != null) {
+            if (!reloading) {
+                refreshRows(updated);
+            }
+            return;
+        }
+        // Во время перезагрузки или при массовых изменениях проще перечитать таблицу целиком
+        if (reloading || inserted.size() + updated.size() + deleted.size() > PAGE_SIZE) {
+            reload(null, null);
+            return;
+        }
+        int currentGeneration = generation;
+        TableSource<R> query = source;
+        Set<Integer> fetchIds = new LinkedHashSet<>(inserted);
+        fetchIds.addAll(updated);
+        fetchIds.removeAll(deleted);
+        // Позиции удаленных строк, которых нет в загруженных страницах, можно вычислить только без фильтров
+        Set<Integer> positionIds = new LinkedHashSet<>(inserted);
+        if (!query.isFiltered()) {
+            for (Integer id : deleted) {
+                if (findRow(id) < 0) {
+                    positionIds.add(id);
+                }
+            }
+        }
+        DataAccessExecutor.submit(name + ", изменения", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                Map<Integer, R> rows = new HashMap<>();
+                if (!fetchIds.isEmpty()) {
+                    for (R row : query.fetchByIds(em, fetchIds)) {
+                        rows.put(query.idOf(row), row);
+                    }
+                }
+                Map<Integer, Integer> positions = new HashMap<>();
+                for (Integer id : positionIds) {
+                    if (!inserted.contains(id) || rows.containsKey(id)) {
+                        positions.put(id, (int) query.countBefore(em, id));
+                    }
+                }
+                return new ChangedRows<>(rows, positions);
+            } finally {
+                em.close();
+            }
+        }, changed -> {
+            if (currentGeneration != generation) {
+                return;
+            }
+            if (reloading || !placeChanges(query, inserted, updated, deleted, changed)) {
+                reload(null, null);
+            }
+        }, e -> logger.error("Ошибка при обновлении строк таблицы \"" + name + "\": " + e.getMessage()));
+    }
+
+    // Применение перечитанных строк к загруженным страницам; false, если позицию строки определить нельзя
+    private boolean placeChanges(TableSource<R> query, Collection<Integer> inserted, Collection<Integer> updated,
+                                 Collection<Integer> deleted, ChangedRows<R> changed) {
+        boolean placed = true;
+        // Удаление по убыванию id: позиции меньших id при этом не сдвигаются
+        Set<Integer> removed = new TreeSet<>(Comparator.reverseOrder());
+        removed.addAll(deleted);
+        for (Integer id : updated) {
+            if (!deleted.contains(id) && !inserted.contains(id) && !changed.rows.containsKey(id)) {
+                // Строка больше не проходит фильтр
+                removed.add(id);
+            }
+        }
+        for (Integer id : removed) {
+            int row = findRow(id);
+            if (row < 0) {
+                Integer position = changed.positions.get(id);
+                if (position == null) {
+                    placed = false;
+                    continue;
+                }
+                // Позиция в исходной таблице: учитываем еще не примененные вставки и удаления с меньшим id
+                row = position;
+                for (Integer other : inserted) {
+                    if (other < id && changed.rows.containsKey(other)) {
+                        row--;
+                    }
+                }
+                for (Integer other : removed) {
+                    if (other < id) {
+                        row++;
+                    }
+                }
+                if (row >= rowCount) {
+                    continue;
+                }
+            }
+            removeRowAt(row);
+        }
+        for (Integer id : updated) {
+            R value = changed.rows.get(id);
+            if (value == null || inserted.contains(id)) {
+                continue;
+            }
+            int row = findRow(id);
+            if (row >= 0) {
+                pages.get(row / PAGE_SIZE).set(row % PAGE_SIZE, value);
+                fireTableRowsUpdated(row, row);
+            } else if (query.isFiltered()) {
+                // Неизвестно, была ли строка в выборке до изменения
+                placed = false;
+            }
+        }
+        // Вставка по возрастанию id: позиция из COUNT уже учитывает меньшие вставленные строки
+        for (Integer id : new TreeSet<>(inserted)) {
+            R value = changed.rows.get(id);
+            Integer position = changed.positions.get(id);
+            if (value != null && position != null && findRow(id) < 0) {
+                insertRowAt(Math.min(position, rowCount), value);
+            }
+        }
+        return placed;
+    }
+
+    // Перечитывание загруженных строк без изменения их состава и порядка
+    private void refreshRows(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        int currentGeneration = generation;
+        int currentLayout = layoutVersion;
+        TableSource<R> query = source;
+        List<Integer> fetchIds = new ArrayList<>(ids);
+        DataAccessExecutor.submit(name + ", изменения", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return query.fetchByIds(em, fetchIds);
+            } finally {
+                em.close();
+            }
+        }, rows -> {
+            if (currentGeneration != generation || currentLayout != layoutVersion) {
+                return;
+            }
+            for (R value : rows) {
+                int row = findRow(query.idOf(value));
+                if (row >= 0) {
+                    pages.get(row / PAGE_SIZE).set(row % PAGE_SIZE, value);
+                    fireTableRowsUpdated(row, row);
+                }
+            }
+        }, e -> logger.error("Ошибка при обновлении строк таблицы \"" + name + "\": " + e.getMessage()));
+    }
+
+    // Позиция строки с указанным id среди загруженных страниц или -1
+    private int findRow(int id) {
+        for (Map.Entry<Integer, List<R>> entry : pages.entrySet()) {
+            List<R> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i) != null && source.idOf(rows.get(i)) == id) {
+                    return entry.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void removeRowAt(int row) {
+        int page = row / PAGE_SIZE;
+        List<R> rows = pages.get(page);
+        if (rows != null && row % PAGE_SIZE < rows.size()) {
+            rows.remove(row % PAGE_SIZE);
+        }
+        shiftPagesAfter(page);
+        rowCount--;
+        fireTableRowsDeleted(row, row);
+    }
+
+    private void insertRowAt(int row, R value) {
+        int page = row / PAGE_SIZE;
+        List<R> rows = pages.get(page);
+        if (rows != null && row % PAGE_SIZE <= rows.size()) {
+            rows.add(row % PAGE_SIZE, value);
+            if (rows.size() > PAGE_SIZE) {
+                rows.remove(rows.size() - 1);
+            }
+        }
+        shiftPagesAfter(page);
+        if (rows != null && rows.size() == PAGE_SIZE) {
+            pageAfterIds.put(page + 1, source.idOf(rows.get(rows.size() - 1)));
+        }
+        rowCount++;
+        fireTableRowsInserted(row, row);
+    }
+
+    // Строки после измененной страницы сдвинулись: последующие страницы и их границы больше не верны
+    private void shiftPagesAfter(int page) {
+        layoutVersion++;
+        pages.keySet().removeIf(index -> index > page);
+        pageAfterIds.tailMap(page, false).clear();
+        loadingPages.removeIf(index -> index >= page);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return source.getColumnNames().length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return source.getColumnNames()[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : Object.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    // Пока страница не загружена, ячейки пустые; загрузка запускается в фоне
+    @Override
+    public Object getValueAt(int row, int column) {
+        R value = getRow(row);
+        return value != null ? source.valueAt(value, column) : null;
+    }
+
+    // Id строки по номеру или null, если ее страница еще не загружена
+    public Integer getRowId(int row) {
+        R value = getRow(row);
+        return value != null ? source.idOf(value) : null;
+    }
+
+    // Строка по номеру или null, если ее страница еще не загружена
+    public R getRow(int row) {
+        int page = row / PAGE_SIZE;
+        List<R> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        if (index >= rows.size()) {
+            // Страница укоротилась после удаления строки: дочитываем ее заново
+            requestPage(page);
+            return null;
+        }
+        return rows.get(index);
+    }
+
+    private void requestPage(int page) {
+        if (!loadingPages.add(page)) {
+            return;
+        }
+        int currentGeneration = generation;
+        int currentLayout = layoutVersion;
+        Integer knownAfterId = pageAfterIds.get(page);
+        // Ближайшая предыдущая страница с известной границей (страница 0 известна всегда после reload)
+        Map.Entry<Integer, Integer> nearest = pageAfterIds.floorEntry(page);
+        TableSource<R> query = source;
+        IdPager ids = shownOrder;
+        DataAccessExecutor.submit(name + ", страница " + page, () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                if (ids != null) {
+                    return fetchSlice(em, query, ids, page);
+                }
+                Integer afterId = knownAfterId;
+                if (afterId == null) {
+                    // Переход сразу к дальней странице: границу ищем по индексу id от ближайшей известной
+                    int fromPage = nearest != null ? nearest.getKey() : 0;
+                    int fromId = nearest != null ? nearest.getValue() : TableSource.FIRST_PAGE;
+                    afterId = query.idAt(em, fromId, (long) (page - fromPage) * PAGE_SIZE - 1);
+                    if (afterId == null) {
+                        return List.<R>of();
+                    }
+                }
+                return query.fetchPage(em, afterId, PAGE_SIZE);
+            } finally {
+                em.close();
+            }
+        }, rows -> {
+            if (currentGeneration != generation) {
+                return;
+            }
+            int first = page * PAGE_SIZE;
+            int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+            if (currentLayout != layoutVersion) {
+                // Пока страница загружалась, строки сдвинулись; при перерисовке она будет запрошена снова
+                if (loadingPages.remove(page) && last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+                return;
+            }
+            loadingPages.remove(page);
+            if (rows.size() < last - first + 1) {
+                // Строк в БД меньше, чем показывает счетчик (их удалили в другом месте)
+                reload(null, null);
+                return;
+            }
+            pageLoaded(page, new ArrayList<>(rows));
+            if (last >= first) {
+                fireTableRowsUpdated(first, last);
+            }
+        }, e -> {
+            if (currentGeneration == generation) {
+                loadingPages.remove(page);
+            }
+            logger.error("Ошибка при загрузке страницы " + page + " таблицы \"" + name + "\": " + e.getMessage());
+        });
+    }
+
+    private void pageLoaded(int page, List<R> rows) {
+        pages.put(page, rows);
+        if (shownOrder == null && rows.size() == PAGE_SIZE) {
+            pageAfterIds.put(page + 1, source.idOf(rows.get(rows.size() - 1)));
+        }
+    }
+
+    // Результат поиска по индексу в памяти не знает об условии отбора источника (например, только проекты
+    // с просроченными задачами): такие id убираются до показа, иначе на их месте были бы пустые строки.
+    // Поиск в БД (FullTextSearch) применяет условие сам
+    private static <R> IdPager shownIds(EntityManager em, TableSource<R> query, IdPager ids) {
+        if (ids instanceof IdArray && query.isFiltered()) {
+            return new IdArray(query.retainIds(em, ((IdArray) ids).ids));
+        }
+        return ids;
+    }
+
+    // Страница списка id: строки в порядке списка, отсутствующие в БД (удаленные) - null
+    private static <R> List<R> fetchSlice(EntityManager em, TableSource<R> query, IdPager ids, int page) {
+        List<Integer> slice = new ArrayList<>();
+        for (int id : ids.idsAt(em, page * PAGE_SIZE, PAGE_SIZE)) {
+            slice.add(id);
+        }
+        Map<Integer, R> byId = new HashMap<>();
+        if (!slice.isEmpty()) {
+            for (R row : query.fetchByIds(em, slice)) {
+                byId.put(query.idOf(row), row);
+            }
+        }
+        List<R> rows = new ArrayList<>(slice.size());
+        for (Integer id : slice) {
+            rows.add(byId.get(id));
+        }
+        return rows;
+    }
+
+    // Упорядоченный список id для показа: общее количество и id по смещению
+    interface IdPager {
+        long count(EntityManager em);
+
+        int[] idsAt(EntityManager em, int offset, int limit);
+    }
+
+    // Список id, уже находящийся в памяти (результат поиска по индексу)
+    private static class IdArray implements IdPager {
+        private final int[] ids;
+
+        IdArray(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public long count(EntityManager em) {
+            return ids.length;
+        }
+
+        @Override
+        public int[] idsAt(EntityManager em, int offset, int limit) {
+            return Arrays.copyOfRange(ids, Math.min(offset, ids.length), Math.min(ids.length, offset + limit));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdArray && Arrays.equals(ids, ((IdArray) other).ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(ids);
+        }
+    }
+
+    // Перечитанные строки и их позиции для applyChanges
+    private static class ChangedRows<R> {
+        final Map<Integer, R> rows;
+        final Map<Integer, Integer> positions;
+
+        ChangedRows(Map<Integer, R> rows, Map<Integer, Integer> positions) {
+            this.rows = rows;
+            this.positions = positions;
+        }
+    }
+
+    // Результат первичной загрузки
+    private static class FirstPage<R> {
+        final IdPager ids;
+        final long count;
+        final List<R> rows;
+
+        FirstPage(IdPager ids, long count, List<R> rows) {
+            this.ids = ids;
+            this.count = count;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+// Единая фабрика EntityManager на весь процесс приложения.
+// Создается один раз при старте (MainApp) и закрывается при выходе,
+// чтобы каждое действие в UI не пересобирало метаданные Hibernate и не открывало новое подключение.
+public final class PersistenceManager {
+    private static final Logger logger = Logger.getLogger(PersistenceManager.class);
+    public static final String PERSISTENCE_UNIT = "kursach_schema";
+
+    private static volatile EntityManagerFactory emf;
+    private static volatile String databaseProductName;
+
+    private PersistenceManager() {
+    }
+
+    // Инициализация с настройками из persistence.xml
+    public static void init() {
+        init(new HashMap<>());
+    }
+
+    // Инициализация с переопределением свойств (например, другая БД для тестов)
+    public static synchronized void init(Map<String, Object> overrides) {
+        if (emf != null && emf.isOpen()) {
+            return;
+        }
+        long start = System.nanoTime();
+        emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, overrides);
+        logger.info("Фабрика EntityManager создана за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+        // Схема приводится к последней версии миграций через пул фабрики; без нее работать нельзя
+        try {
+            SchemaMigrations.migrate(getDataSource());
+        } catch (RuntimeException e) {
+            emf.close();
+            emf = null;
+            throw e;
+        }
+        // БД, заполненная при IDENTITY или импортом, не должна выдавать уже занятые id
+        try {
+            IdGenerators.advance();
+        } catch (SQLException e) {
+            logger.warn("Не удалось сдвинуть счетчики id: " + e.getMessage(), e);
+        }
+    }
+
+    // Короткоживущий EntityManager для одной операции; вызывающий код обязан закрыть его
+    public static EntityManager createEntityManager() {
+        return getEntityManagerFactory().createEntityManager();
+    }
+
+    public static EntityManagerFactory getEntityManagerFactory() {
+        EntityManagerFactory current = emf;
+        if (current == null || !current.isOpen()) {
+            init();
+            current = emf;
+        }
+        return current;
+    }
+
+    // Пул соединений, которым пользуется Hibernate (для прямой работы через JDBC)
+    public static DataSource getDataSource() {
+        ConnectionProvider provider = getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        return provider.unwrap(DataSource.class);
+    }
+
+    // Название СУБД из метаданных JDBC: по нему выбирается SQL для MySQL или для встроенной БД
+    public static String getDatabaseProductName() {
+        String name = databaseProductName;
+        if (name == null) {
+            try (Connection connection = getDataSource().getConnection()) {
+                name = connection.getMetaData().getDatabaseProductName();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Не удалось определить СУБД: " + e.getMessage(), e);
+            }
+            databaseProductName = name;
+        }
+        return name;
+    }
+
+    public static boolean isMySql() {
+        return "MySQL".equalsIgnoreCase(getDatabaseProductName());
+    }
+
+    // Статистика пула соединений
+    public static PoolMetrics.Snapshot getPoolStatistics() {
+        return PoolMetrics.snapshot();
+    }
+
+    // Статистика кэша второго уровня и кэша запросов
+    public static CacheMetrics.Snapshot getCacheStatistics() {
+        return CacheMetrics.snapshot(getEntityManagerFactory());
+    }
+
+    // Сброс кэша второго уровня и кэша запросов после записи в БД мимо Hibernate (импорт через JDBC):
+    // изменения через EntityManager и JPQL UPDATE/DELETE Hibernate отражает в кэше сам
+    public static void evictCaches() {
+        EntityManagerFactory current = emf;
+        if (current != null && current.isOpen()) {
+            current.unwrap(SessionFactory.class).getCache().evictAllRegions();
+            logger.info("Кэш второго уровня и кэш запросов сброшены");
+        }
+    }
+
+    public static boolean isInitialized() {
+        EntityManagerFactory current = emf;
+        return current != null && current.isOpen();
+    }
+
+    // Закрытие фабрики при завершении приложения
+    public static synchronized void shutdown() {
+        if (emf != null && emf.isOpen()) {
+            logger.info("Статистика пула соединений: " + PoolMetrics.snapshot());
+            logger.info("Статистика кэша: " + CacheMetrics.snapshot(emf));
+            emf.close();
+            logger.info("Фабрика EntityManager закрыта");
+        }
+        emf = null;
+        databaseProductName = null;
+    }
+}
@@ -0,0 +1,1366 @@
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+// Тесты слоя доступа к данным на встраиваемой БД H2 вместо MySQL
+public class PersistenceManagerTest {
+
+    // Настройки persistence unit для встраиваемой БД
+    static Map<String, Object> testDatabase() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:kursach_schema;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("javax.persistence.jdbc.user", "sa");
+        properties.put("javax.persistence.jdbc.password", "");
+        properties.put("javax.persistence.jdbc.driver", "org.h2.Driver");
+        properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.generate_statistics", "true");
+        properties.put("hibernate.session_factory.statement_inspector", SqlLog.class.getName());
+        return properties;
+    }
+
+    // Журнал SQL, который Hibernate отправляет в БД (включается на время проверки через start/stop)
+    public static class SqlLog implements StatementInspector {
+        private static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        private static volatile boolean recording;
+
+        @Override
+        public String inspect(String sql) {
+            if (recording) {
+                statements.add(sql.toLowerCase());
+            }
+            return sql;
+        }
+
+        static void start() {
+            statements.clear();
+            recording = true;
+        }
+
+        static List<String> stop() {
+            recording = false;
+            return new ArrayList<>(statements);
+        }
+
+        static long count(List<String> statements, String prefix) {
+            return statements.stream().filter(sql -> sql.trim().startsWith(prefix)).count();
+        }
+    }
+
+    // Статистика Hibernate для подсчета выполненных SQL-запросов
+    static Statistics statistics() {
+        return PersistenceManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Граница keyset-страницы, с которой начинаются строки теста (minIdQuery - запрос MIN(id) по префиксу имени)
+    static int beforeFirst(EntityManager em, String minIdQuery) {
+        return em.createQuery(minIdQuery, Integer.class).getSingleResult() - 1;
+    }
+
+    // Заполнение БД проектами с общими сотрудниками и задачами; имена проектов начинаются с prefix
+    static void seedProjects(String prefix, int projectCount, int employeesPerProject, int tasksPerProject) {
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Client client = new Client();
+            client.setClient_name(prefix + " клиент");
+            em.persist(client);
+
+            List<Employee> employees = new ArrayList<>();
+            for (int i = 0; i < employeesPerProject; i++) {
+                Employee employee = new Employee();
+                employee.setEmployee_name(prefix + " сотрудник " + i);
+                em.persist(employee);
+                employees.add(employee);
+            }
+
+            Date dueDate = new Date(System.currentTimeMillis() + 86_400_000L);
+            for (int p = 0; p < projectCount; p++) {
+                Project project = new Project();
+                project.setProject_name(prefix + " проект " + p);
+                project.setProject_status("Активный");
+                project.setProject_due_date(dueDate);
+                project.setClient(client);
+                for (Employee employee : employees) {
+                    project.addEmployee(employee);
+                }
+                em.persist(project);
+
+                for (int t = 0; t < tasksPerProject; t++) {
+                    Task task = new Task();
+                    task.setTask_name(prefix + " задача " + p + "." + t);
+                    task.setTask_status("В процессе");
+                    task.setDueDate(dueDate);
+                    if (!employees.isEmpty()) {
+                        task.setAssignedEmployee(employees.get(t % employees.size()));
+                    }
+                    project.addTask(task);
+                    em.persist(task);
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @BeforeAll
+    public static void startDatabase() {
+        PersistenceManager.init(testDatabase());
+    }
+
+    @AfterAll
+    public static void stopDatabase() {
+        PersistenceManager.shutdown();
+    }
+
+    @Test
+    void testSharedFactoryIsReused() {
+        EntityManagerFactory first = PersistenceManager.getEntityManagerFactory();
+        EntityManagerFactory second = PersistenceManager.getEntityManagerFactory();
+        assertSame(first, second);
+        assertTrue(PersistenceManager.isInitialized());
+    }
+
+    @Test
+    void testPooledDataSourceStatistics() throws Exception {
+        DataSource dataSource = PersistenceManager.getDataSource();
+        assertNotNull(dataSource);
+
+        // Берем несколько соединений одновременно и проверяем счетчики пула
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Connection connection = dataSource.getConnection();
+                assertTrue(connection.isValid(1));
+                borrowed.add(connection);
+            }
+            PoolMetrics.Snapshot busy = PersistenceManager.getPoolStatistics();
+            assertTrue(busy.active >= 3);
+            assertTrue(busy.total <= 10);
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+
+        PoolMetrics.Snapshot released = PersistenceManager.getPoolStatistics();
+        assertEquals(0, released.active);
+        assertTrue(released.acquired >= 3);
+        assertEquals(0, released.timeouts);
+        System.out.println("Пул соединений: " + released);
+    }
+
+    @Test
+    void testProjectTableLoadsInSingleQuery() {
+        seedProjects("Агрегат", 50, 4, 3);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            TableSource<ProjectRow> source = TableQueries.projectSource(false);
+            int afterId = beforeFirst(em, "SELECT MIN(p.project_id) FROM Project p WHERE p.project_name LIKE 'Агрегат%'");
+
+            // Страница таблицы со всеми столбцами - один запрос, количество строк - еще один
+            statistics().clear();
+            List<ProjectRow> rows = source.fetchPage(em, afterId, PagedTableModel.PAGE_SIZE);
+            assertEquals(1, statistics().getPrepareStatementCount());
+            source.count(em);
+            assertEquals(2, statistics().getPrepareStatementCount());
+
+            long seeded = rows.stream().filter(row -> row.getProject_name().startsWith("Агрегат")).count();
+            assertEquals(50, seeded);
+            for (ProjectRow row : rows) {
+                if (row.getProject_name().startsWith("Агрегат")) {
+                    assertEquals("Агрегат клиент", row.getClient_name());
+                    assertEquals(4, row.getEmployee_count());
+                    assertEquals(3, row.getTask_count());
+                }
+            }
+
+            TableSource<ProjectRow> overdue = TableQueries.projectSource(true);
+            statistics().clear();
+            overdue.fetchPage(em, TableSource.FIRST_PAGE, PagedTableModel.PAGE_SIZE);
+            overdue.count(em);
+            assertEquals(2, statistics().getPrepareStatementCount());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testTaskTableLoadsInSingleQuery() {
+        seedProjects("Задачи", 20, 5, 50);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            TableSource<TaskRow> source = TableQueries.taskSource();
+            int afterId = beforeFirst(em, "SELECT MIN(t.task_id) FROM Task t WHERE t.task_name LIKE 'Задачи задача%'");
+            statistics().clear();
+            long start = System.nanoTime();
+            List<TaskRow> rows = source.fetchPage(em, afterId, PagedTableModel.PAGE_SIZE);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(1, statistics().getPrepareStatementCount());
+            assertEquals(PagedTableModel.PAGE_SIZE, rows.size());
+            System.out.println("Загрузка страницы из " + rows.size() + " задач: " + elapsedMs + " мс");
+
+            TaskRow seeded = rows.stream()
+                .filter(row -> row.getTask_name().startsWith("Задачи задача"))
+                .findFirst()
+                .orElseThrow();
+            assertTrue(seeded.getProject_name().startsWith("Задачи проект"));
+            assertTrue(seeded.getEmployee_name().startsWith("Задачи сотрудник"));
+            assertEquals(DateFormats.DISPLAY.format(DateFormats.toLocalDate(seeded.getDue_date())),
+                DateFormats.display(seeded.getDue_date()));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testTaskTableKeysetPaging() {
+        seedProjects("Страницы", 3, 2, 150);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            TableSource<TaskRow> source = TableQueries.taskSource();
+            List<Integer> expected = em.createQuery("SELECT t.task_id FROM Task t ORDER BY t.task_id", Integer.class)
+                .getResultList();
+            assertTrue(expected.size() >= 450);
+            assertEquals(expected.size(), source.count(em));
+
+            // Страницы по id, каждая - один запрос без OFFSET
+            List<Integer> paged = new ArrayList<>();
+            int afterId = TableSource.FIRST_PAGE;
+            statistics().clear();
+            while (true) {
+                List<TaskRow> page = source.fetchPage(em, afterId, PagedTableModel.PAGE_SIZE);
+                if (page.isEmpty()) {
+                    break;
+                }
+                assertTrue(page.size() <= PagedTableModel.PAGE_SIZE);
+                for (TaskRow row : page) {
+                    paged.add(source.idOf(row));
+                }
+                afterId = source.idOf(page.get(page.size() - 1));
+            }
+            int pageSize = PagedTableModel.PAGE_SIZE;
+            assertEquals((expected.size() + pageSize - 1) / pageSize + 1, statistics().getPrepareStatementCount());
+            assertEquals(expected, paged);
+
+            // Граница дальней страницы: от начала таблицы и от известной границы предыдущей страницы
+            assertEquals(expected.get(pageSize - 1), source.idAt(em, TableSource.FIRST_PAGE, pageSize - 1));
+            assertEquals(expected.get(2 * pageSize - 1), source.idAt(em, expected.get(pageSize - 1), pageSize - 1));
+            assertNull(source.idAt(em, TableSource.FIRST_PAGE, expected.size()));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testSearchIndexLoadsInSingleQuery() {
+        seedProjects("Индекс", 3, 1, 2);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            statistics().clear();
+            SearchIndex index = TableQueries.projectSearch().build(em);
+            assertEquals(1, statistics().getPrepareStatementCount());
+
+            int[] ids = index.search("индекс клиент:\"индекс клиент\" статус:актив");
+            assertEquals(3, ids.length);
+            List<Object[]> rows = TableQueries.projectSearch().fetch(em, List.of(ids[0]));
+            assertEquals(ids[0], rows.get(0)[0]);
+            assertEquals("Индекс клиент", rows.get(0)[3]);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testSingleRowChangeIsOneFetch() {
+        seedProjects("Точечно", 1, 1, 5);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            TableSource<TaskRow> source = TableQueries.taskSource();
+            List<Integer> ids = em.createQuery("SELECT t.task_id FROM Task t ORDER BY t.task_id", Integer.class)
+                .getResultList();
+            int index = ids.size() - 3;
+            int taskId = ids.get(index);
+
+            // Изменение одной строки - один запрос за этой строкой
+            statistics().clear();
+            List<TaskRow> changed = source.fetchByIds(em, List.of(taskId));
+            assertEquals(1, statistics().getPrepareStatementCount());
+            assertEquals(1, changed.size());
+            assertEquals("Точечно проект 0", changed.get(0).getProject_name());
+
+            // Позиция вставленной строки - количество строк с меньшим id
+            assertEquals(index, source.countBefore(em, taskId));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testSearchResultKeepsSourceFilter() {
+        seedProjects("Фильтр", 3, 1, 2);
+
+        List<Integer> projectIds;
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            projectIds = em.createQuery("SELECT p.project_id FROM Project p WHERE p.project_name LIKE 'Фильтр проект %' "
+                + "ORDER BY p.project_id", Integer.class).getResultList();
+            em.getTransaction().begin();
+            em.createQuery("UPDATE Task t SET t.task_status = 'Просрочено' WHERE t.project.project_id = :id")
+                .setParameter("id", projectIds.get(1)).executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            // Результат поиска по индексу (в порядке релевантности) сужается до строк, прошедших фильтр таблицы
+            int[] found = {projectIds.get(2), projectIds.get(1), projectIds.get(0)};
+            assertArrayEquals(new int[] {projectIds.get(1)}, TableQueries.projectSource(true).retainIds(em, found));
+            assertArrayEquals(found, TableQueries.projectSource(false).retainIds(em, found));
+            assertEquals(1, TableQueries.projectSource(true).fetchByIds(em, projectIds).size());
+
+            // Поиск в БД применяет тот же фильтр сам
+            FullTextSearch search = FullTextSearch.projects("фильтр проект", true);
+            assertEquals(1, search.count(em));
+            assertArrayEquals(new int[] {projectIds.get(1)}, search.idsAt(em, 0, 10));
+            assertEquals(3, FullTextSearch.projects("фильтр проект", false).count(em));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testFullTextSearchFallbackRanksNameMatchesFirst() {
+        seedProjects("Полнотекст", 2, 1, 3);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        List<Integer> taskIds = new ArrayList<>();
+        try {
+            em.getTransaction().begin();
+            List<Task> tasks = em.createQuery("SELECT t FROM Task t WHERE t.task_name LIKE 'Полнотекст задача %' ORDER BY t.task_id", Task.class)
+                .getResultList();
+            for (Task task : tasks) {
+                taskIds.add(task.getTask_id());
+            }
+            // Слово в описании первой задачи и в названии последней: последняя должна идти первой
+            tasks.get(0).setTask_description("Срочная миграция БД");
+            tasks.get(tasks.size() - 1).setTask_name("Полнотекст срочная миграция");
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertFalse(PersistenceManager.isMySql());
+            FullTextSearch search = FullTextSearch.tasks("СРОЧНАЯ миграция");
+            assertEquals(2, search.count(em));
+            assertArrayEquals(new int[] {taskIds.get(taskIds.size() - 1), taskIds.get(0)}, search.idsAt(em, 0, 10));
+            assertArrayEquals(new int[] {taskIds.get(0)}, search.idsAt(em, 1, 10));
+
+            // Все слова обязательны; проекты ищутся только по названию
+            assertEquals(0, FullTextSearch.tasks("срочная отсутствует").count(em));
+            assertEquals(6, FullTextSearch.tasks("полнотекст").count(em));
+
+            // Поиск в БД без FULLTEXT буквальный: спецсимволы LIKE не работают как шаблоны
+            assertEquals(0, FullTextSearch.tasks("%").count(em));
+            assertEquals(0, FullTextSearch.tasks("_").count(em));
+            assertEquals(2, FullTextSearch.tasks("полнотекст задача 1.").count(em));
+            assertEquals(0, FullTextSearch.tasks("полнотекст задача 1_").count(em));
+            assertEquals(1, FullTextSearch.projects("полнотекст проект 1", false).count(em));
+            assertEquals(FullTextSearch.projects(" Полнотекст  проект ", false), FullTextSearch.projects("полнотекст проект", false));
+            assertNotEquals(FullTextSearch.projects("полнотекст проект", true), FullTextSearch.projects("полнотекст проект", false));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testXmlExportKeepsSchema() throws Exception {
+        seedProjects("Выгрузка", 2, 2, 3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityManager em = PersistenceManager.createEntityManager();
+        ExportResult result;
+        try {
+            result = XmlExporter.export(em, out);
+        } finally {
+            em.close();
+        }
+        assertEquals(out.size(), result.getBytes());
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+            .parse(new ByteArrayInputStream(out.toByteArray()));
+        Element root = doc.getDocumentElement();
+        assertEquals("data", root.getTagName());
+        List<String> sections = new ArrayList<>();
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element) {
+                sections.add(node.getNodeName());
+            }
+        }
+        assertEquals(List.of("clients", "employees", "projects", "tasks"), sections);
+
+        // Проект со вложенными клиентом, сотрудниками и задачами
+        Element project = null;
+        NodeList projects = doc.getElementsByTagName("project");
+        for (int i = 0; i < projects.getLength(); i++) {
+            Element candidate = (Element) projects.item(i);
+            if ("Выгрузка проект 1".equals(text(candidate, "project_name"))) {
+                project = candidate;
+            }
+        }
+        assertNotNull(project);
+        assertEquals("Выгрузка клиент", text(project, "client_name"));
+        assertEquals(2, ((Element) project.getElementsByTagName("employees").item(0)).getElementsByTagName("employee").getLength());
+        NodeList nested = ((Element) project.getElementsByTagName("tasks").item(0)).getElementsByTagName("task");
+        assertEquals(3, nested.getLength());
+        assertEquals("Выгрузка задача 1.0", text((Element) nested.item(0), "task_name"));
+        assertEquals("", text((Element) nested.item(0), "task_description"));
+        assertNotEquals("", text((Element) nested.item(0), "due_date"));
+        assertEquals("Выгрузка сотрудник 0", text((Element) nested.item(0), "employee_name"));
+    }
+
+    @Test
+    void testXmlExportThroughput() throws Exception {
+        // Объем задается -Dbenchmark.tasks=... (для замера на 1 млн задач: -Dbenchmark.tasks=1000000)
+        int taskCount = Integer.getInteger("benchmark.tasks", 20_000);
+        seedProjects("Поток", Math.max(1, taskCount / 1000), 10, Math.min(taskCount, 1000));
+
+        Path file = Files.createTempFile("all_data", ".xml");
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            ExportResult result = XmlExporter.export(em, file);
+            System.out.println("Экспорт в XML: " + result);
+            // Каждая запись считается один раз: задачи внутри проектов повторяют раздел tasks
+            long expected = 0;
+            for (String count : new String[]{"SELECT COUNT(c) FROM Client c", "SELECT COUNT(e) FROM Employee e",
+                    "SELECT COUNT(p) FROM Project p", "SELECT COUNT(e) FROM Project p JOIN p.employees e",
+                    "SELECT COUNT(t) FROM Task t"}) {
+                expected += em.createQuery(count, Long.class).getSingleResult();
+            }
+            assertEquals(expected, result.getRows());
+            assertTrue(result.getRows() >= taskCount);
+            assertEquals(Files.size(file), result.getBytes());
+        } finally {
+            em.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testReportDataSourceReadsProjectsWithoutXml() throws Exception {
+        seedProjects("Отчет", 3, 4, 2);
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            statistics().clear();
+            JpaReportDataSource ds = ReportSources.projects(em);
+            Map<String, Object> report = null;
+            while (ds.next()) {
+                if ("Отчет проект 1".equals(ds.getFieldValue(field("project_name", String.class)))) {
+                    report = new HashMap<>();
+                    for (String name : List.of("project_id", "project_due_date", "project_end_date", "client_name",
+                            "employee_names", "employee_names3", "task_names", "task_names2", "task_names3")) {
+                        report.put(name, ds.getFieldValue(field(name, name.equals("project_id") ? Integer.class : String.class)));
+                    }
+                }
+            }
+            assertNotNull(report);
+            assertTrue(report.get("project_id") instanceof Integer);
+            assertTrue(((String) report.get("project_due_date")).matches("\\d{4}-\\d{2}-\\d{2}"));
+            // Пустые столбцы как пустые элементы XML, отсутствующие сотрудники и задачи - null
+            assertEquals("", report.get("project_end_date"));
+            assertEquals("Отчет клиент", report.get("client_name"));
+            assertEquals("Отчет сотрудник 0", report.get("employee_names"));
+            assertEquals("Отчет сотрудник 2", report.get("employee_names3"));
+            assertEquals("Отчет задача 1.0", report.get("task_names"));
+            assertEquals("Отчет задача 1.1", report.get("task_names2"));
+            assertNull(report.get("task_names3"));
+            // Три запроса на страницу (проекты, сотрудники, задачи), а не на каждый проект
+            long pages = ds.getRows() / ReportSources.PAGE_SIZE + 1;
+            assertTrue(statistics().getPrepareStatementCount() <= 3 * pages);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testReportBatchWritesPdfPerClientAndEmployee() throws Exception {
+        Assumptions.assumeTrue(Files.exists(AppPaths.template("projects")) && Files.exists(AppPaths.template("tasks")),
+            "Шаблоны отчетов не найдены в рабочем каталоге");
+        seedProjects("Пакет", 2, 3, 3);
+
+        Path dir = Files.createTempDirectory("reports");
+        List<ReportJob> jobs = new ArrayList<>();
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            for (Object[] row : em.createQuery("SELECT c.client_id, c.client_name FROM Client c "
+                    + "WHERE c.client_name LIKE 'Пакет%'", Object[].class).getResultList()) {
+                jobs.add(ReportJob.forClient(dir, (Integer) row[0], (String) row[1]));
+            }
+            for (Object[] row : em.createQuery("SELECT e.employee_id, e.employee_name FROM Employee e "
+                    + "WHERE e.employee_name LIKE 'Пакет%'", Object[].class).getResultList()) {
+                jobs.add(ReportJob.forEmployee(dir, (Integer) row[0], (String) row[1]));
+            }
+        } finally {
+            em.close();
+        }
+        assertEquals(4, jobs.size());
+
+        List<ReportService.JobResult> progress = Collections.synchronizedList(new ArrayList<>());
+        ReportService.BatchResult batch = ReportService.run(jobs, progress::add).get(2, TimeUnit.MINUTES);
+        System.out.println("Пакет отчетов: " + batch);
+        assertEquals(jobs.size(), progress.size());
+        assertTrue(batch.getFailed().isEmpty(), batch.getFailed().toString());
+        for (ReportJob job : jobs) {
+            assertTrue(Files.exists(job.getOutput()), job.toString());
+            byte[] header = Arrays.copyOf(Files.readAllBytes(job.getOutput()), 4);
+            assertEquals("%PDF", new String(header, StandardCharsets.US_ASCII));
+        }
+        // Отчет клиента содержит оба его проекта, отчет сотрудника - только его задачи
+        for (ReportService.JobResult result : batch.getResults()) {
+            assertEquals(2, result.getRows(), result.getJob().toString());
+        }
+    }
+
+    @Test
+    void testTasksReportHeapUsage() throws Exception {
+        Assumptions.assumeTrue(Files.exists(AppPaths.template("tasks")), "Шаблон tasks.jrxml не найден в рабочем каталоге");
+        // Наибольший объем задается -Dbenchmark.tasks=... (например, -Dbenchmark.tasks=100000), меньшие - его доли
+        int taskCount = Integer.getInteger("benchmark.tasks", 20_000);
+        Path dir = Files.createTempDirectory("report-heap");
+        for (int size : new int[] {taskCount / 20, taskCount / 4, taskCount}) {
+            // Все задачи назначены одному сотруднику, отчет по нему содержит ровно size строк
+            String prefix = "Куча " + size;
+            seedProjects(prefix, Math.max(1, size / 1000), 1, Math.min(size, 1000));
+            int employeeId;
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                employeeId = em.createQuery("SELECT e.employee_id FROM Employee e WHERE e.employee_name = :name", Integer.class)
+                    .setParameter("name", prefix + " сотрудник 0").getSingleResult();
+            } finally {
+                em.close();
+            }
+            ReportJob job = ReportJob.forEmployee(dir, employeeId, prefix);
+            for (ReportVirtualizer.Mode mode : List.of(ReportVirtualizer.Mode.NONE, ReportVirtualizer.Mode.SWAP)) {
+                System.gc();
+                resetHeapPeak();
+                ReportService.JobResult result = ReportService.generate(job, mode);
+                assertTrue(result.isSuccess(), result.toString());
+                assertEquals(size, result.getRows());
+                System.out.printf("Отчет по задачам, %d строк, виртуализатор %s: пик кучи %.1f МБ, %.0f мс, PDF %.1f МБ%n",
+                    size, mode, heapPeak() / (1024.0 * 1024.0), result.getMillis(),
+                    Files.size(job.getOutput()) / (1024.0 * 1024.0));
+            }
+        }
+    }
+
+    @Test
+    void testMembershipChangeWritesSingleJoinRow() {
+        seedProjects("Состав", 1, 500, 0);
+        int projectId;
+        int memberId;
+        int newcomerId;
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            projectId = em.createQuery("SELECT p.project_id FROM Project p WHERE p.project_name = 'Состав проект 0'",
+                Integer.class).getSingleResult();
+            memberId = em.createQuery("SELECT e.employee_id FROM Employee e WHERE e.employee_name = 'Состав сотрудник 7'",
+                Integer.class).getSingleResult();
+            em.getTransaction().begin();
+            Employee newcomer = new Employee();
+            newcomer.setEmployee_name("Состав новый сотрудник");
+            em.persist(newcomer);
+            em.getTransaction().commit();
+            newcomerId = newcomer.getEmployee_id();
+        } finally {
+            em.close();
+        }
+
+        // Назначение: одна вставка в employee_project, без удаления остальных 500 строк
+        List<String> assign = changeMembership(projectId, newcomerId, true);
+        assertEquals(1, SqlLog.count(assign, "insert into employee_project"));
+        assertEquals(0, SqlLog.count(assign, "delete from employee_project"));
+
+        // Снятие: одно удаление по паре id, без повторной вставки оставшихся
+        List<String> unassign = changeMembership(projectId, memberId, false);
+        assertEquals(1, SqlLog.count(unassign, "delete from employee_project"));
+        assertEquals(0, SqlLog.count(unassign, "insert into employee_project"));
+        System.out.println("Назначение в проект из 500 сотрудников: " + assign.size() + " SQL, снятие: "
+            + unassign.size() + " SQL");
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            Set<Employee> employees = em.find(Project.class, projectId).getEmployees();
+            assertEquals(500, employees.size());
+            assertTrue(employees.contains(em.find(Employee.class, newcomerId)));
+            assertFalse(employees.contains(em.find(Employee.class, memberId)));
+        } finally {
+            em.close();
+        }
+    }
+
+    // Назначение или снятие одного сотрудника; возвращает SQL, выполненный внутри транзакции
+    private static List<String> changeMembership(int projectId, int employeeId, boolean assign) {
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            SqlLog.start();
+            Project project = em.find(Project.class, projectId);
+            Employee employee = em.find(Employee.class, employeeId);
+            if (assign) {
+                project.addEmployee(employee);
+            } else {
+                project.removeEmployee(employee);
+            }
+            em.getTransaction().commit();
+            return SqlLog.stop();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testTaskInsertBatching() {
+        // Объем задается -Dbenchmark.tasks=... (для замера на 100 тыс. задач: -Dbenchmark.tasks=100000)
+        int taskCount = Integer.getInteger("benchmark.tasks", 20_000);
+        seedProjects("Вставка", 1, 0, 0);
+        int projectId;
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            projectId = em.createQuery("SELECT p.project_id FROM Project p WHERE p.project_name = 'Вставка проект 0'",
+                Integer.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+
+        // Пакет из одной команды - по запросу на строку, как было при IDENTITY
+        long single = insertTasks(projectId, "Вставка по одной", taskCount, 1);
+        long batched = insertTasks(projectId, "Вставка пакетом", taskCount, IdGenerators.ALLOCATION_SIZE);
+        assertTrue(batched * 10 < single, batched + " команд в пакетах против " + single + " по одной");
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertEquals(2L * taskCount, (long) em.createQuery(
+                    "SELECT COUNT(t) FROM Task t WHERE t.project.project_id = :id", Long.class)
+                .setParameter("id", projectId).getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    // Вставка count задач с заданным размером пакета JDBC; возвращает число подготовленных команд
+    private static long insertTasks(int projectId, String prefix, int count, int batchSize) {
+        Statistics statistics = statistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            em.getTransaction().begin();
+            Project project = em.getReference(Project.class, projectId);
+            for (int i = 0; i < count; i++) {
+                Task task = new Task();
+                task.setTask_name(prefix + " " + i);
+                task.setTask_status("В процессе");
+                task.setProject(project);
+                em.persist(task);
+                // Контекст очищается, чтобы замер не зависел от роста числа управляемых сущностей
+                if ((i + 1) % 1000 == 0) {
+                    em.flush();
+                    em.clear();
+                    project = em.getReference(Project.class, projectId);
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long statements = statistics.getPrepareStatementCount();
+        System.out.printf("%s: %d задач за %d мс (%.0f строк/с), подготовлено команд JDBC: %d%n",
+            prefix, count, millis, count * 1000.0 / Math.max(1, millis), statements);
+        return statements;
+    }
+
+    @Test
+    void testMigrationsCreateHotQueryIndexes() throws Exception {
+        DataSource dataSource = PersistenceManager.getDataSource();
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(indexNames(connection, "Task").containsAll(List.of("idx_task_project_status", "idx_task_employee",
+                "idx_task_due_date", "idx_task_name", "idx_task_last_modified")));
+            assertTrue(indexNames(connection, "employee_project").contains("idx_employee_project_employee"));
+            assertTrue(indexNames(connection, "Project").containsAll(List.of("idx_project_name", "idx_project_last_modified")));
+            assertTrue(indexNames(connection, "Employee").contains("idx_employee_name"));
+            assertTrue(indexNames(connection, "Client").contains("idx_client_name"));
+        }
+        // Повторный запуск на уже обновленной БД ничего не меняет
+        assertEquals(0, SchemaMigrations.migrate(dataSource).migrationsExecuted);
+    }
+
+    // Горячие запросы и индексы из миграций, которые они должны использовать (общие для MySQL и H2)
+    private static Map<String, String> hotQueries() {
+        Map<String, String> hotQueries = new LinkedHashMap<>();
+        hotQueries.put("SELECT p.project_id FROM Project p WHERE EXISTS (SELECT 1 FROM Task t "
+            + "WHERE t.project_id = p.project_id AND t.task_status = 'Просрочено')", "idx_task_project_status");
+        hotQueries.put("SELECT task_id FROM Task WHERE due_date < CURRENT_DATE "
+            + "AND task_status <> 'Завершено' AND task_status <> 'Просрочено'", "idx_task_due_date");
+        hotQueries.put("SELECT employee_id FROM Employee WHERE employee_name = 'Иванов'", "idx_employee_name");
+        hotQueries.put("SELECT task_id FROM Task WHERE task_name = 'Отчет'", "idx_task_name");
+        hotQueries.put("SELECT task_id FROM Task WHERE last_modified > NOW()", "idx_task_last_modified");
+        return hotQueries;
+    }
+
+    // Планы горячих запросов на встроенной БД: H2 выводит выбранный индекс в тексте плана.
+    // Запросы по столбцам внешних ключей здесь не проверяются: для них H2 создает и собственный индекс
+    @Test
+    void testHotQueriesUseIndexesOnH2() throws Exception {
+        try (Connection connection = PersistenceManager.getDataSource().getConnection()) {
+            for (Map.Entry<String, String> query : hotQueries().entrySet()) {
+                StringBuilder plan = new StringBuilder();
+                try (Statement statement = connection.createStatement();
+                     ResultSet rows = statement.executeQuery("EXPLAIN " + query.getKey())) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1));
+                    }
+                }
+                assertTrue(plan.toString().toLowerCase(Locale.ROOT).contains(query.getValue()),
+                    query.getValue() + " не используется: " + plan);
+            }
+        }
+    }
+
+    // Планы горячих запросов на MySQL: индекс из миграций должен быть среди возможных (possible_keys).
+    // Нужен доступный MySQL: -Dmysql.test.url=... (по умолчанию отдельная БД kursach_schema_test на localhost),
+    // -Dmysql.test.user, -Dmysql.test.password; без него тест пропускается
+    @Test
+    void testHotQueriesUseIndexesOnMySql() throws Exception {
+        String url = System.getProperty("mysql.test.url", "jdbc:mysql://localhost:3306/kursach_schema_test"
+            + "?createDatabaseIfNotExist=true&useSSL=false&serverTimezone=UTC&connectTimeout=2000");
+        String user = System.getProperty("mysql.test.user", "root");
+        String password = System.getProperty("mysql.test.password", "123456");
+        Connection connection;
+        try {
+            connection = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            connection = null;
+        }
+        Assumptions.assumeTrue(connection != null, "MySQL недоступен: " + url);
+        try (Connection mysql = connection) {
+            SchemaMigrations.migrate(url, user, password);
+            Map<String, String> hotQueries = hotQueries();
+            hotQueries.put("SELECT task_id FROM Task WHERE employee_id = 1", "idx_task_employee");
+            hotQueries.put("SELECT project_id FROM employee_project WHERE employee_id = 1", "idx_employee_project_employee");
+            hotQueries.put("SELECT project_id FROM Project "
+                + "WHERE MATCH(project_name) AGAINST ('+отчет*' IN BOOLEAN MODE)", "ft_project_name");
+            hotQueries.put("SELECT task_id FROM Task "
+                + "WHERE MATCH(task_name, task_description) AGAINST ('+отчет*' IN BOOLEAN MODE)", "ft_task_text");
+            for (Map.Entry<String, String> query : hotQueries.entrySet()) {
+                List<String> possibleKeys = new ArrayList<>();
+                List<String> keys = new ArrayList<>();
+                try (Statement statement = mysql.createStatement();
+                     ResultSet plan = statement.executeQuery("EXPLAIN " + query.getKey())) {
+                    while (plan.next()) {
+                        possibleKeys.add(plan.getString("possible_keys"));
+                        keys.add(plan.getString("key"));
+                    }
+                }
+                assertTrue(possibleKeys.stream().anyMatch(list -> list != null
+                        && Arrays.asList(list.split(",")).contains(query.getValue())),
+                    query.getValue() + " не используется: " + query.getKey() + "; possible_keys " + possibleKeys
+                        + ", key " + keys);
+            }
+        }
+    }
+
+    // Имена индексов таблицы в нижнем регистре (H2 хранит имена в верхнем)
+    private static Set<String> indexNames(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metadata = connection.getMetaData();
+        String name = metadata.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT)
+            : metadata.storesLowerCaseIdentifiers() ? table.toLowerCase(Locale.ROOT) : table;
+        Set<String> names = new HashSet<>();
+        try (ResultSet indexes = metadata.getIndexInfo(connection.getCatalog(), null, name, false, false)) {
+            while (indexes.next()) {
+                String index = indexes.getString("INDEX_NAME");
+                if (index != null) {
+                    names.add(index.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // Сумма пиков по областям кучи (верхняя оценка: пики областей могут приходиться на разное время)
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static JRDesignField field(String name, Class<?> type) {
+        JRDesignField field = new JRDesignField();
+        field.setName(name);
+        field.setValueClass(type);
+        return field;
+    }
+
+    @Test
+    void testTableExportFormatsThroughput() throws Exception {
+        // Объем задается -Dbenchmark.tasks=... (для замера на 1 млн задач: -Dbenchmark.tasks=1000000)
+        int taskCount = Integer.getInteger("benchmark.tasks", 20_000);
+        seedProjects("Формат", Math.max(1, taskCount / 1000), 10, Math.min(taskCount, 1000));
+
+        Path dir = Files.createTempDirectory("exports");
+        for (TableExporter format : TableExporter.formats()) {
+            Path file = dir.resolve("tasks." + format.getExtension());
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                ExportResult result = TableExport.export(em, TableExport.Extract.TASKS, format, file);
+                System.out.println("Выгрузка задач в " + format.getName() + ": " + result);
+                assertTrue(result.getRows() >= taskCount);
+                assertEquals(Files.size(file), result.getBytes());
+            } finally {
+                em.close();
+            }
+        }
+        // Все строки JSON - объекты со столбцами выгрузки
+        String json = new String(Files.readAllBytes(dir.resolve("tasks.json")), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{\"task_id\":"));
+        assertTrue(json.endsWith("}]"));
+    }
+
+    @Test
+    void testXmlImportRoundTripUpdatesInPlace() throws Exception {
+        seedProjects("Импорт", 2, 2, 2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityManager em = PersistenceManager.createEntityManager();
+        long clients;
+        int taskId;
+        try {
+            XmlExporter.export(em, out);
+            clients = em.createQuery("SELECT COUNT(c) FROM Client c", Long.class).getSingleResult();
+            em.getTransaction().begin();
+            Task task = em.createQuery("SELECT t FROM Task t WHERE t.task_name = 'Импорт задача 0.0'", Task.class).getSingleResult();
+            taskId = task.getTask_id();
+            task.setTask_name("Переименована после выгрузки");
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        XmlImporter.Result result = XmlImporter.importFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(0, result.getInserted());
+        assertTrue(result.getUpdated() > 0);
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertEquals("Импорт задача 0.0", em.find(Task.class, taskId).getTask_name());
+            // Вложенный <client> проекта не считается отдельной записью клиента
+            assertEquals(clients, (long) em.createQuery("SELECT COUNT(c) FROM Client c", Long.class).getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testXmlImportInsertsWithFileIds() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><data>"
+            + "<clients><client><client_id>900001</client_id><client_name>Новый клиент</client_name></client></clients>"
+            + "<employees><employee><employee_id>900002</employee_id><employee_name>Новый сотрудник</employee_name></employee></employees>"
+            + "<projects><project><project_id>900003</project_id><project_name>Новый проект</project_name>"
+            + "<project_status>Активный</project_status><project_due_date>2030-01-31</project_due_date><project_end_date/>"
+            + "<client><client_id>900001</client_id><client_name>Новый клиент</client_name></client>"
+            + "<employees><employee><employee_id>900002</employee_id><employee_name>Новый сотрудник</employee_name></employee></employees>"
+            + "<tasks/></project></projects>"
+            + "<tasks><task><task_id>900004</task_id><task_name>Новая задача</task_name><task_description/>"
+            + "<task_status>В процессе</task_status><due_date>2030-01-15</due_date>"
+            + "<project><project_id>900003</project_id><project_name>Новый проект</project_name></project>"
+            + "<assigned_employee><employee_id>900002</employee_id><employee_name>Новый сотрудник</employee_name></assigned_employee>"
+            + "</task><task><task_id></task_id><task_name>Без id</task_name></task></tasks></data>";
+
+        XmlImporter.Result result = XmlImporter.importFrom(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, result.getInserted());
+        assertEquals(1, result.getSkipped());
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            Project project = em.find(Project.class, 900003);
+            assertEquals("Новый клиент", project.getClient().getClient_name());
+            assertEquals(1, project.getEmployees().size());
+            Task task = em.find(Task.class, 900004);
+            assertEquals(900003, task.getProject().getProject_id());
+            assertEquals("Новый сотрудник", task.getAssignedEmployee().getEmployee_name());
+            assertEquals("", task.getTask_description());
+        } finally {
+            em.close();
+        }
+
+        // Новые сущности получают id после импортированных (счетчики сдвинуты за MAX(id))
+        em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Client client = new Client();
+            client.setClient_name("Клиент после импорта");
+            em.persist(client);
+            em.getTransaction().commit();
+            assertTrue(client.getClient_id() > 900001);
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testXmlImportSkipsNonPositiveIdsAndAcceptsLargeIds() throws Exception {
+        // Большой id не раздувает множество id, а 0 и отрицательные пропускаются, как нечисловые
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><data><clients>"
+            + "<client><client_id>-5</client_id><client_name>Отрицательный клиент</client_name></client>"
+            + "<client><client_id>0</client_id><client_name>Нулевой клиент</client_name></client>"
+            + "<client><client_id>2000000000</client_id><client_name>Большой клиент</client_name></client>"
+            + "</clients><projects><project><project_id>900011</project_id><project_name>Проект с большим клиентом</project_name>"
+            + "<project_status>Активный</project_status><client><client_id>2000000000</client_id></client>"
+            + "<employees><employee><employee_id>-1</employee_id></employee></employees></project></projects></data>";
+
+        XmlImporter.Result result = XmlImporter.importFrom(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, result.getInserted());
+        assertEquals(2, result.getSkipped());
+
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            Project project = em.find(Project.class, 900011);
+            assertEquals("Большой клиент", project.getClient().getClient_name());
+            assertTrue(project.getEmployees().isEmpty());
+            assertEquals(0L, (long) em.createQuery("SELECT COUNT(c) FROM Client c WHERE c.client_id <= 0", Long.class)
+                .getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testFailedImportStillAdvancesIdCounters() throws Exception {
+        seedProjects("Сбой", 1, 0, 0);
+        int projectId;
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            projectId = em.createQuery("SELECT p.project_id FROM Project p WHERE p.project_name = 'Сбой проект 0'",
+                Integer.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+
+        // Id из файла занимают следующие пулы, которые Hibernate возьмет из id_sequences
+        long first;
+        try (Connection connection = PersistenceManager.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT (SELECT next_val FROM id_sequences WHERE sequence_name = 'task'), "
+                 + "(SELECT COALESCE(MAX(task_id), 0) FROM Task)")) {
+            rs.next();
+            first = Math.max(rs.getLong(1) - IdGenerators.ALLOCATION_SIZE + 1, rs.getLong(2) + 1);
+        }
+
+        // Первая часть фиксируется, затем файл обрывается
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><data><tasks>");
+        for (int i = 0; i < XmlImporter.CHUNK_SIZE + 10; i++) {
+            xml.append("<task><task_id>").append(first + i).append("</task_id><task_name>Сбой задача ").append(i)
+                .append("</task_name><task_status>В процессе</task_status><project><project_id>").append(projectId).append("</project_id></project></task>");
+        }
+        xml.append("<task><task_id>");
+        assertThrows(XMLStreamException.class,
+            () -> XmlImporter.importFrom(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8))));
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertEquals((long) XmlImporter.CHUNK_SIZE, (long) em.createQuery(
+                    "SELECT COUNT(t) FROM Task t WHERE t.task_name LIKE 'Сбой задача%'", Long.class).getSingleResult());
+        } finally {
+            em.close();
+        }
+
+        // Новые сущности получают id за зафиксированными строками, а не из занятых ими пулов
+        insertTasks(projectId, "Сбой после импорта", 3 * IdGenerators.ALLOCATION_SIZE, IdGenerators.ALLOCATION_SIZE);
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM Task t WHERE t.project.project_id = :id").setParameter("id", projectId)
+                .executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testReferenceLookupsServedFromSecondLevelCache() throws Exception {
+        seedProjects("Кэш", 1, 2, 0);
+
+        // Первое открытие диалога: списки выбора и состав проекта читаются из БД и попадают в кэш
+        int projectId;
+        int employeeId;
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            Project project = TableQueries.projectChoices(em).stream()
+                .filter(p -> p.getProject_name().equals("Кэш проект 0"))
+                .findFirst().orElseThrow();
+            projectId = project.getProject_id();
+            employeeId = project.getEmployees().iterator().next().getEmployee_id();
+            TableQueries.clientChoices(em);
+            TableQueries.employeeChoices(em);
+        } finally {
+            em.close();
+        }
+
+        // Повторное открытие в новом EntityManager - без единого запроса к БД
+        statistics().clear();
+        em = PersistenceManager.createEntityManager();
+        try {
+            Project project = TableQueries.projectChoices(em).stream()
+                .filter(p -> p.getProject_id() == projectId)
+                .findFirst().orElseThrow();
+            assertEquals("Кэш клиент", project.getClient().getClient_name());
+            assertEquals(2, project.getEmployees().size());
+            assertFalse(TableQueries.clientChoices(em).isEmpty());
+            assertFalse(TableQueries.employeeChoices(em).isEmpty());
+            assertEquals(0, statistics().getPrepareStatementCount());
+            assertEquals(3, statistics().getQueryCacheHitCount());
+        } finally {
+            em.close();
+        }
+        CacheMetrics.Snapshot cache = PersistenceManager.getCacheStatistics();
+        assertEquals(3, cache.queryHits);
+        assertTrue(cache.hits > 0);
+
+        // Изменение через Hibernate: кэш сущности обновлен, закэшированный список сотрудников устарел
+        em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.find(Employee.class, employeeId).setEmployee_name("Кэш сотрудник изменен");
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        statistics().clear();
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertTrue(TableQueries.employeeChoices(em).stream()
+                .anyMatch(e -> e.getEmployee_name().equals("Кэш сотрудник изменен")));
+            assertEquals(0, statistics().getQueryCacheHitCount());
+        } finally {
+            em.close();
+        }
+
+        // Импорт пишет через JDBC мимо Hibernate - после него кэш сброшен и читаются новые данные
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><data><employees><employee>"
+            + "<employee_id>" + employeeId + "</employee_id><employee_name>Кэш сотрудник из файла</employee_name>"
+            + "</employee></employees></data>";
+        XmlImporter.importFrom(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertEquals("Кэш сотрудник из файла", em.find(Employee.class, employeeId).getEmployee_name());
+            assertTrue(TableQueries.employeeChoices(em).stream()
+                .anyMatch(e -> e.getEmployee_name().equals("Кэш сотрудник из файла")));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testImportPipelineMatchesSequentialImport() throws Exception {
+        int taskCount = Integer.getInteger("benchmark.tasks", 20_000);
+        seedProjects("Конвейер", Math.max(1, taskCount / 1000), 10, Math.min(taskCount, 1000));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityManager em = PersistenceManager.createEntityManager();
+        int taskId;
+        try {
+            XmlExporter.export(em, out);
+            taskId = em.createQuery("SELECT t.task_id FROM Task t WHERE t.task_name = 'Конвейер задача 0.0'", Integer.class)
+                .getSingleResult();
+        } finally {
+            em.close();
+        }
+        byte[] xml = out.toByteArray();
+
+        XmlImporter.Result sequential = XmlImporter.importFrom(new ByteArrayInputStream(xml));
+        System.out.println("Последовательный импорт: " + sequential);
+
+        renameTask(taskId, "Переименована перед конвейером");
+        ImportPipeline.Report report = new ImportPipeline(4, 3, 8).run(new ByteArrayInputStream(xml));
+        System.out.println("Конвейерный импорт: " + report);
+
+        assertEquals(sequential.getUpdated(), report.getResult().getUpdated());
+        assertEquals(0, report.getResult().getInserted());
+        assertEquals(3, report.getStages().size());
+        assertEquals(report.getStages().get(0).getItems(), report.getStages().get(1).getItems());
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertEquals("Конвейер задача 0.0", em.find(Task.class, taskId).getTask_name());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testDeltaExportContainsOnlyChangedRows() throws Exception {
+        seedProjects("Дельта", 2, 2, 3);
+        Path dir = Files.createTempDirectory("delta");
+        DeltaSync sync = new DeltaSync(dir.resolve("sync.properties"), 0);
+        Path file = dir.resolve("delta.xml");
+
+        // Без отметки выгружается все, затем отметка сохраняется
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            assertNull(sync.getWatermark());
+            ExportResult full = sync.exportChanges(em, file);
+            assertTrue(full.getRows() > 0);
+            assertNotNull(sync.getWatermark());
+        } finally {
+            em.close();
+        }
+
+        Thread.sleep(20);
+        int taskId;
+        em = PersistenceManager.createEntityManager();
+        try {
+            taskId = em.createQuery("SELECT t.task_id FROM Task t WHERE t.task_name = 'Дельта задача 1.2'", Integer.class)
+                .getSingleResult();
+        } finally {
+            em.close();
+        }
+        renameTask(taskId, "Дельта задача изменена");
+
+        em = PersistenceManager.createEntityManager();
+        try {
+            ExportResult delta = sync.exportChanges(em, file);
+            assertEquals(1, delta.getRows());
+        } finally {
+            em.close();
+        }
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file.toFile());
+        assertNotEquals("", doc.getDocumentElement().getAttribute("since"));
+        assertEquals(0, doc.getElementsByTagName("client").getLength());
+        assertEquals(0, doc.getElementsByTagName("project").getLength());
+        NodeList tasks = doc.getElementsByTagName("task");
+        assertEquals(1, tasks.getLength());
+        assertEquals(String.valueOf(taskId), text((Element) tasks.item(0), "task_id"));
+
+        // Слияние изменения обратно: задача обновляется на месте, остальные строки не трогаются
+        renameTask(taskId, "Дельта задача локальная");
+        ImportPipeline.Report report = sync.importChanges(file);
+        assertEquals(0, report.getResult().getInserted());
+        assertEquals(1, report.getResult().getUpdated());
+        em = PersistenceManager.createEntityManager();
+        try {
+            assertEquals("Дельта задача изменена", em.find(Task.class, taskId).getTask_name());
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testBinarySnapshotSizeAndLoadTimeAgainstXml() throws Exception {
+        // Объем задается -Dbenchmark.tasks=... (для замера на 1 млн задач: -Dbenchmark.tasks=1000000)
+        int taskCount = Integer.getInteger("benchmark.tasks", 20_000);
+        seedProjects("Снимок", Math.max(1, taskCount / 1000), 10, Math.min(taskCount, 1000));
+
+        Path dir = Files.createTempDirectory("snapshot");
+        Path xml = dir.resolve("all_data.xml");
+        Path snapshot = dir.resolve("all_data.snapshot");
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            ExportResult xmlSaved = XmlExporter.export(em, xml);
+            ExportResult snapshotSaved = BinarySnapshot.save(em, snapshot);
+            System.out.println("Сохранение XML: " + xmlSaved);
+            System.out.println("Сохранение снимка: " + snapshotSaved);
+            assertEquals(xmlSaved.getRows(), snapshotSaved.getRows());
+            assertEquals(Files.size(snapshot), snapshotSaved.getBytes());
+            assertTrue(snapshotSaved.getBytes() < xmlSaved.getBytes());
+        } finally {
+            em.close();
+        }
+
+        int taskId;
+        em = PersistenceManager.createEntityManager();
+        try {
+            taskId = em.createQuery("SELECT t.task_id FROM Task t WHERE t.task_name = 'Снимок задача 1.2'", Integer.class)
+                .getSingleResult();
+        } finally {
+            em.close();
+        }
+        renameTask(taskId, "Снимок задача изменена");
+
+        XmlImporter.Result fromXml = XmlImporter.importFile(xml);
+        renameTask(taskId, "Снимок задача изменена");
+        XmlImporter.Result fromSnapshot = BinarySnapshot.load(snapshot);
+        System.out.println("Загрузка XML: " + fromXml);
+        System.out.println("Загрузка снимка: " + fromSnapshot);
+        assertEquals(0, fromSnapshot.getInserted());
+        assertEquals(fromXml.getUpdated(), fromSnapshot.getUpdated());
+
+        // Восстановление возвращает данные из снимка
+        em = PersistenceManager.createEntityManager();
+        try {
+            Task task = em.find(Task.class, taskId);
+            assertEquals("Снимок задача 1.2", task.getTask_name());
+            assertNotNull(task.getProject());
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void renameTask(int taskId, String name) {
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.find(Task.class, taskId).setTask_name(name);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    // Текст первого вложенного элемента с именем name
+    private static String text(Element parent, String name) {
+        return parent.getElementsByTagName(name).item(0).getTextContent();
+    }
+
+    @Test
+    void testOverdueSweepIsSingleBulkUpdate() {
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            Date yesterday = java.sql.Date.valueOf(java.time.LocalDate.now().minusDays(1));
+            em.getTransaction().begin();
+            for (int i = 0; i < 30; i++) {
+                Task task = new Task();
+                task.setTask_name("Просрочка " + i);
+                task.setTask_status(i % 3 == 0 ? "Завершено" : "В процессе");
+                task.setDueDate(yesterday);
+                em.persist(task);
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+
+        statistics().clear();
+        int updated = OverdueSweeper.sweepNow();
+        assertTrue(updated >= 20);
+        assertEquals(1, statistics().getPrepareStatementCount());
+        assertEquals(0, OverdueSweeper.sweepNow());
+
+        // Загрузка таблицы задач только читает данные
+        em = PersistenceManager.createEntityManager();
+        try {
+            int afterId = beforeFirst(em, "SELECT MIN(t.task_id) FROM Task t WHERE t.task_name LIKE 'Просрочка %'");
+            statistics().clear();
+            List<TaskRow> rows = TableQueries.taskSource().fetchPage(em, afterId, PagedTableModel.PAGE_SIZE);
+            assertEquals(1, statistics().getPrepareStatementCount());
+            assertEquals(0, statistics().getEntityUpdateCount());
+            for (TaskRow row : rows) {
+                if (row.getTask_name().startsWith("Просрочка ")) {
+                    int index = Integer.parseInt(row.getTask_name().substring("Просрочка ".length()));
+                    assertEquals(index % 3 == 0 ? "Завершено" : "Просрочено", row.getTask_status());
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    @Test
+    void testRefreshTimingSharedVersusPerAction() {
+        int rounds = 5;
+
+        // Старый подход: новая фабрика на каждое действие пользователя
+        long perActionTotal = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            Map<String, Object> properties = testDatabase();
+            properties.put("hibernate.hikari.poolName", "per-action-pool-" + i);
+            properties.put("hibernate.hikari.registerMbeans", "false");
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory(PersistenceManager.PERSISTENCE_UNIT, properties);
+            EntityManager em = emf.createEntityManager();
+            em.createQuery("SELECT c FROM Client c", Client.class).getResultList();
+            em.close();
+            emf.close();
+            perActionTotal += System.nanoTime() - start;
+        }
+
+        // Новый подход: общая фабрика, только короткоживущий EntityManager
+        long sharedTotal = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            EntityManager em = PersistenceManager.createEntityManager();
+            em.createQuery("SELECT c FROM Client c", Client.class).getResultList();
+            em.close();
+            sharedTotal += System.nanoTime() - start;
+        }
+
+        double perActionMs = perActionTotal / 1_000_000.0 / rounds;
+        double sharedMs = sharedTotal / 1_000_000.0 / rounds;
+        System.out.printf("Обновление таблицы: фабрика на действие %.2f мс, общая фабрика %.2f мс%n", perActionMs, sharedMs);
+        assertTrue(sharedMs < perActionMs);
+    }
+}
@@ -0,0 +1,111 @@
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Сбор статистики пула соединений HikariCP (подключается через hibernate.hikari.metricsTrackerFactory).
+// Нужна для подбора размера пула: активные/простаивающие соединения и время ожидания соединения.
+public class PoolMetrics implements MetricsTrackerFactory {
+    public static final String DEFAULT_POOL = "kursach_schema-pool";
+
+    private static final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    // Текущее состояние основного пула приложения
+    public static Snapshot snapshot() {
+        return snapshot(DEFAULT_POOL);
+    }
+
+    public static Snapshot snapshot(String poolName) {
+        Tracker tracker = trackers.get(poolName);
+        if (tracker == null) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        PoolStats stats = tracker.poolStats;
+        long acquired = tracker.acquireCount.sum();
+        return new Snapshot(
+            stats.getActiveConnections(),
+            stats.getIdleConnections(),
+            stats.getTotalConnections(),
+            stats.getPendingThreads(),
+            acquired,
+            acquired > 0 ? tracker.acquireWaitNanos.sum() / acquired / 1_000_000.0 : 0,
+            tracker.maxAcquireWaitNanos.get() / 1_000_000.0,
+            acquired > 0 ? (double) tracker.usageMillis.sum() / acquired : 0,
+            tracker.timeoutCount.sum()
+        );
+    }
+
+    // Счетчики одного пула
+    private static class Tracker implements IMetricsTracker {
+        private final PoolStats poolStats;
+        private final LongAdder acquireCount = new LongAdder();
+        private final LongAdder acquireWaitNanos = new LongAdder();
+        private final LongAccumulator maxAcquireWaitNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAdder timeoutCount = new LongAdder();
+
+        Tracker(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.increment();
+            acquireWaitNanos.add(elapsedAcquiredNanos);
+            maxAcquireWaitNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeoutCount.increment();
+        }
+    }
+
+    // Снимок статистики пула
+    public static class Snapshot {
+        public final int active;
+        public final int idle;
+        public final int total;
+        public final int pending;
+        public final long acquired;
+        public final double avgWaitMs;
+        public final double maxWaitMs;
+        public final double avgUsageMs;
+        public final long timeouts;
+
+        Snapshot(int active, int idle, int total, int pending, long acquired,
+                 double avgWaitMs, double maxWaitMs, double avgUsageMs, long timeouts) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.pending = pending;
+            this.acquired = acquired;
+            this.avgWaitMs = avgWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.avgUsageMs = avgUsageMs;
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("активных=%d, свободных=%d, всего=%d, ожидающих=%d, выдано=%d, "
+                    + "ожидание ср.=%.2f мс, макс.=%.2f мс, использование ср.=%.2f мс, таймаутов=%d",
+                active, idle, total, pending, acquired, avgWaitMs, maxWaitMs, avgUsageMs, timeouts);
+        }
+    }
+}
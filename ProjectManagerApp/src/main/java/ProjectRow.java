@@ -0,0 +1,59 @@
+import java.util.Date;
+
+// Строка таблицы проектов вместе с количеством сотрудников и задач (read-model): заполняется одной выборкой
+// без загрузки сущностей. Класс публичный, так как создается Hibernate через SELECT new ProjectRow(...)
+public class ProjectRow {
+    private final int project_id;
+    private final String project_name;
+    private final String project_status;
+    private final Date project_due_date;
+    private final Date project_end_date;
+    private final String client_name;
+    private final int employee_count;
+    private final int task_count;
+
+    // Конструктор используется в выражении SELECT new ProjectRow(...)
+    public ProjectRow(Integer project_id, String project_name, String project_status, Date project_due_date,
+                      Date project_end_date, String client_name, Number employee_count, Number task_count) {
+        this.project_id = project_id;
+        this.project_name = project_name;
+        this.project_status = project_status;
+        this.project_due_date = project_due_date;
+        this.project_end_date = project_end_date;
+        this.client_name = client_name;
+        this.employee_count = employee_count != null ? employee_count.intValue() : 0;
+        this.task_count = task_count != null ? task_count.intValue() : 0;
+    }
+
+    public int getProject_id() {
+        return project_id;
+    }
+
+    public String getProject_name() {
+        return project_name;
+    }
+
+    public String getProject_status() {
+        return project_status;
+    }
+
+    public Date getProject_due_date() {
+        return project_due_date;
+    }
+
+    public Date getProject_end_date() {
+        return project_end_date;
+    }
+
+    public String getClient_name() {
+        return client_name;
+    }
+
+    public int getEmployee_count() {
+        return employee_count;
+    }
+
+    public int getTask_count() {
+        return task_count;
+    }
+}
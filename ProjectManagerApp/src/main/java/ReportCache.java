@@ -0,0 +1,219 @@
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.log4j.Logger;
+
+// Кэш скомпилированных шаблонов JasperReports.
+// Компиляция .jrxml - самый долгий шаг генерации отчета, поэтому результат хранится в памяти
+// и на диске рядом с шаблоном (template.jasper и template.jasper.sha256 с хэшем исходного шаблона).
+// Кэш сбрасывается, если у шаблона изменились время модификации или размер и при этом изменился хэш содержимого.
+public final class ReportCache {
+    private static final Logger logger = Logger.getLogger(ReportCache.class);
+
+    private static final Map<Path, Entry> compiled = new ConcurrentHashMap<>();
+    private static final Map<Path, Object> locks = new ConcurrentHashMap<>();
+    private static ExecutorService warmUpExecutor;
+
+    private ReportCache() {
+    }
+
+    // Откуда был взят шаблон при последнем обращении
+    public enum Source { MEMORY, DISK, COMPILED }
+
+    // Скомпилированный отчет по пути к .jrxml и откуда он взят, со временем поиска (для журнала и замеров)
+    public static Lookup lookup(Path template) throws JRException {
+        Path key = template.toAbsolutePath().normalize();
+        long start = System.nanoTime();
+        try {
+            Stamp stamp = Stamp.of(key);
+            Entry entry = compiled.get(key);
+            if (entry != null && entry.stamp.sameFile(stamp)) {
+                return new Lookup(entry.report, Source.MEMORY, System.nanoTime() - start);
+            }
+            synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+                entry = compiled.get(key);
+                if (entry != null && entry.stamp.sameFile(stamp)) {
+                    return new Lookup(entry.report, Source.MEMORY, System.nanoTime() - start);
+                }
+                String hash = hash(key);
+                if (entry != null && entry.hash.equals(hash)) {
+                    // Файл пересохранен без изменений: компилировать заново не нужно
+                    compiled.put(key, new Entry(entry.report, stamp, hash));
+                    return new Lookup(entry.report, Source.MEMORY, System.nanoTime() - start);
+                }
+                Source source = Source.DISK;
+                JasperReport report = loadFromDisk(key, hash);
+                if (report == null) {
+                    source = Source.COMPILED;
+                    report = JasperCompileManager.compileReport(key.toString());
+                    saveToDisk(key, hash, report);
+                }
+                compiled.put(key, new Entry(report, stamp, hash));
+                Lookup lookup = new Lookup(report, source, System.nanoTime() - start);
+                logger.info("Шаблон " + key.getFileName() + ": " + lookup);
+                return lookup;
+            }
+        } catch (IOException e) {
+            throw new JRException("Не удалось прочитать шаблон отчета " + template + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Компиляция шаблонов в фоне при запуске, чтобы первый отчет не ждал компилятора
+    public static synchronized void warmUp(List<Path> templates) {
+        if (warmUpExecutor == null) {
+            warmUpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "report-cache-warm-up");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        for (Path template : templates) {
+            warmUpExecutor.submit(() -> {
+                if (!Files.exists(template)) {
+                    logger.warn("Шаблон отчета не найден, прогрев пропущен: " + template);
+                    return;
+                }
+                try {
+                    lookup(template);
+                } catch (JRException e) {
+                    logger.error("Ошибка при компиляции шаблона " + template + ": " + e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    // Очистка кэша в памяти (файлы .jasper остаются)
+    static void clearMemory() {
+        compiled.clear();
+    }
+
+    static Path compiledFile(Path template) {
+        String name = template.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return template.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".jasper");
+    }
+
+    private static Path hashFile(Path template) {
+        Path jasper = compiledFile(template);
+        return jasper.resolveSibling(jasper.getFileName() + ".sha256");
+    }
+
+    // Отчет с диска, если он скомпилирован из шаблона с тем же хэшем
+    private static JasperReport loadFromDisk(Path template, String hash) {
+        Path jasper = compiledFile(template);
+        Path hashFile = hashFile(template);
+        try {
+            if (!Files.exists(jasper) || !Files.exists(hashFile)
+                    || !hash.equals(new String(Files.readAllBytes(hashFile), StandardCharsets.US_ASCII).trim())) {
+                return null;
+            }
+            return (JasperReport) JRLoader.loadObject(jasper.toFile());
+        } catch (IOException | JRException | ClassCastException e) {
+            // Файл от другой версии JasperReports или поврежден: просто компилируем заново
+            logger.warn("Не удалось загрузить " + jasper + ", шаблон будет скомпилирован: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Запись .jasper через временный файл; хэш пишется последним, чтобы не указывать на недописанный отчет
+    private static void saveToDisk(Path template, String hash, JasperReport report) {
+        Path jasper = compiledFile(template);
+        Path temp = jasper.resolveSibling(jasper.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(hashFile(template));
+            JRSaver.saveObject(report, temp.toFile());
+            Files.move(temp, jasper, StandardCopyOption.REPLACE_EXISTING);
+            Files.write(hashFile(template), hash.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException | JRException e) {
+            // Каталог шаблонов может быть только для чтения: тогда кэш остается только в памяти
+            logger.warn("Не удалось сохранить скомпилированный отчет " + jasper + ": " + e.getMessage());
+        }
+    }
+
+    private static String hash(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(Files.readAllBytes(file)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Время модификации и размер шаблона: быстрая проверка без чтения файла
+    private static final class Stamp {
+        final long modified;
+        final long size;
+
+        private Stamp(long modified, long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        static Stamp of(Path file) throws IOException {
+            return new Stamp(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+        }
+
+        boolean sameFile(Stamp other) {
+            return modified == other.modified && size == other.size;
+        }
+    }
+
+    private static final class Entry {
+        final JasperReport report;
+        final Stamp stamp;
+        final String hash;
+
+        Entry(JasperReport report, Stamp stamp, String hash) {
+            this.report = report;
+            this.stamp = stamp;
+            this.hash = hash;
+        }
+    }
+
+    // Результат обращения к кэшу
+    public static final class Lookup {
+        private final JasperReport report;
+        private final Source source;
+        private final long nanos;
+
+        Lookup(JasperReport report, Source source, long nanos) {
+            this.report = report;
+            this.source = source;
+            this.nanos = nanos;
+        }
+
+        public JasperReport getReport() {
+            return report;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            String from = source == Source.MEMORY ? "из памяти" : source == Source.DISK ? "загружен из .jasper" : "скомпилирован";
+            return String.format("%s за %.1f мс", from, getMillis());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Задание на один PDF-отчет: шаблон, источник строк и файл результата (см. ReportService)
+public final class ReportJob {
+    private final String title;
+    private final String template;
+    private final Function<EntityManager, JpaReportDataSource> source;
+    private final Path output;
+
+    ReportJob(String title, String template, Function<EntityManager, JpaReportDataSource> source, Path output) {
+        this.title = title;
+        this.template = template;
+        this.source = source;
+        this.output = output;
+    }
+
+    public static ReportJob clients() {
+        return new ReportJob("по клиентам", "clients", ReportSources::clients, AppPaths.pdf("clients"));
+    }
+
+    public static ReportJob employees() {
+        return new ReportJob("по сотрудникам", "employees", ReportSources::employees, AppPaths.pdf("employees"));
+    }
+
+    public static ReportJob projects() {
+        return new ReportJob("по проектам", "projects", ReportSources::projects, AppPaths.pdf("projects"));
+    }
+
+    public static ReportJob tasks() {
+        return new ReportJob("по задачам", "tasks", ReportSources::tasks, AppPaths.pdf("tasks"));
+    }
+
+    // Проекты клиента: dir/clients/<id>_<имя>.pdf
+    public static ReportJob forClient(Path dir, int clientId, String clientName) {
+        return new ReportJob("по клиенту " + clientName, "projects",
+            em -> ReportSources.projectsOfClient(em, clientId), dir.resolve("clients").resolve(fileName(clientId, clientName)));
+    }
+
+    // Задачи сотрудника: dir/employees/<id>_<имя>.pdf
+    public static ReportJob forEmployee(Path dir, int employeeId, String employeeName) {
+        return new ReportJob("по сотруднику " + employeeName, "tasks",
+            em -> ReportSources.tasksOfEmployee(em, employeeId), dir.resolve("employees").resolve(fileName(employeeId, employeeName)));
+    }
+
+    // Тот же отчет с файлом в каталоге dir (имя файла сохраняется)
+    ReportJob in(Path dir) {
+        return new ReportJob(title, template, source, dir.resolve(output.getFileName()));
+    }
+
+    // Пакет на конец месяца: четыре общих отчета и по отчету на каждого клиента и сотрудника, все в каталоге dir
+    public static List<ReportJob> fullBatch(EntityManager em, Path dir) {
+        List<ReportJob> jobs = new ArrayList<>();
+        for (ReportJob general : List.of(clients(), employees(), projects(), tasks())) {
+            jobs.add(general.in(dir));
+        }
+        for (Object[] row : em.createQuery("SELECT c.client_id, c.client_name FROM Client c ORDER BY c.client_id",
+                Object[].class).getResultList()) {
+            jobs.add(forClient(dir, (Integer) row[0], (String) row[1]));
+        }
+        for (Object[] row : em.createQuery("SELECT e.employee_id, e.employee_name FROM Employee e ORDER BY e.employee_id",
+                Object[].class).getResultList()) {
+            jobs.add(forEmployee(dir, (Integer) row[0], (String) row[1]));
+        }
+        return jobs;
+    }
+
+    // Имя файла из id и названия: символы, недопустимые в путях Windows и Linux, заменяются на "_"
+    static String fileName(int id, String name) {
+        String safe = name == null ? "" : name.trim().replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]+", "_");
+        if (safe.length() > 80) {
+            safe = safe.substring(0, 80);
+        }
+        return safe.isEmpty() ? id + ".pdf" : id + "_" + safe + ".pdf";
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    JpaReportDataSource openSource(EntityManager em) {
+        return source.apply(em);
+    }
+
+    @Override
+    public String toString() {
+        return "отчет " + title + " (" + output.getFileName() + ")";
+    }
+}
@@ -0,0 +1,238 @@
+import javax.persistence.EntityManager;
+import javax.swing.SwingUtilities;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRVirtualizer;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import net.sf.jasperreports.export.SimplePdfExporterConfiguration;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+// Фоновая генерация пакетов PDF-отчетов.
+// Каждое задание заполняется и выгружается в своем потоке ограниченного пула со своим EntityManager;
+// скомпилированные шаблоны общие (ReportCache), страницы больших отчетов вытесняются виртуализатором
+// (ReportVirtualizer), поэтому расход памяти на отчет ограничен кэшем страниц, а не числом строк.
+// Ошибка одного задания не останавливает остальные: она попадает в итог пакета.
+public final class ReportService {
+    private static final Logger logger = Logger.getLogger(ReportService.class);
+    // Число параллельно заполняемых отчетов (можно переопределить -Dreport.workers=...)
+    static final int WORKERS = Integer.getInteger("report.workers",
+        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private static ExecutorService executor;
+
+    private ReportService() {
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "report-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    // Запуск пакета; onProgress вызывается в EDT после каждого задания, onDone - после всего пакета
+    public static CompletableFuture<BatchResult> submit(List<ReportJob> jobs, Consumer<JobResult> onProgress,
+            Consumer<BatchResult> onDone) {
+        CompletableFuture<BatchResult> batch = run(jobs, result -> SwingUtilities.invokeLater(() -> onProgress.accept(result)));
+        batch.thenAccept(result -> SwingUtilities.invokeLater(() -> onDone.accept(result)));
+        return batch;
+    }
+
+    // То же без Swing: onProgress вызывается в потоке пула
+    static CompletableFuture<BatchResult> run(List<ReportJob> jobs, Consumer<JobResult> onProgress) {
+        long start = System.nanoTime();
+        logger.info("Пакет из " + jobs.size() + " отчетов запущен в " + WORKERS + " потоках");
+        List<JobResult> results = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[jobs.size()];
+        for (int i = 0; i < jobs.size(); i++) {
+            ReportJob job = jobs.get(i);
+            futures[i] = CompletableFuture.supplyAsync(() -> generate(job), executor()).thenAccept(result -> {
+                results.add(result);
+                onProgress.accept(result);
+            });
+        }
+        return CompletableFuture.allOf(futures).thenApply(done -> {
+            BatchResult batch = new BatchResult(new ArrayList<>(results), System.nanoTime() - start);
+            logger.info("Пакет отчетов завершен: " + batch);
+            return batch;
+        });
+    }
+
+    static JobResult generate(ReportJob job) {
+        return generate(job, ReportVirtualizer.MODE);
+    }
+
+    // Заполнение одного отчета и запись PDF через временный файл.
+    // Страницы, вытесненные виртуализатором, подгружаются экспортером по одной и сразу пишутся в файл
+    static JobResult generate(ReportJob job, ReportVirtualizer.Mode mode) {
+        long start = System.nanoTime();
+        EntityManager em = PersistenceManager.createEntityManager();
+        JRVirtualizer virtualizer = null;
+        Path output = job.getOutput();
+        Path temp = null;
+        try {
+            ReportCache.Lookup compiled = ReportCache.lookup(AppPaths.template(job.getTemplate()));
+            Map<String, Object> parameters = new HashMap<>();
+            virtualizer = ReportVirtualizer.create(mode);
+            if (virtualizer != null) {
+                parameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+            }
+
+            // Все страницы читаются в одной транзакции, чтобы отчет был согласованным снимком
+            em.getTransaction().begin();
+            JpaReportDataSource ds = job.openSource(em);
+            JasperPrint print = JasperFillManager.fillReport(compiled.getReport(), parameters, ds);
+            em.getTransaction().rollback();
+            if (virtualizer != null) {
+                virtualizer.setReadOnly(true);
+            }
+
+            // Временный файл уникален: пакет и отдельный отчет могут одновременно писать один и тот же PDF
+            Path parent = output.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            temp = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                JRPdfExporter exporter = new JRPdfExporter();
+                exporter.setExporterInput(new SimpleExporterInput(print));
+                exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(out));
+                exporter.setConfiguration(new SimplePdfExporterConfiguration());
+                exporter.exportReport();
+            }
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+
+            JobResult result = new JobResult(job, ds.getRows(), System.nanoTime() - start, null);
+            logger.info("PDF " + job + " сгенерирован: " + result + ", шаблон " + compiled);
+            return result;
+        } catch (JRException | IOException | RuntimeException e) {
+            logger.error("Ошибка при генерации PDF " + job + ": " + e.getMessage(), e);
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // Останется только временный файл, готовый PDF не затрагивается
+            }
+            return new JobResult(job, 0, System.nanoTime() - start, e);
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+            if (virtualizer != null) {
+                virtualizer.cleanup();
+            }
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    // Итог одного задания
+    public static final class JobResult {
+        private final ReportJob job;
+        private final long rows;
+        private final long nanos;
+        private final Exception error;
+
+        JobResult(ReportJob job, long rows, long nanos, Exception error) {
+            this.job = job;
+            this.rows = rows;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public ReportJob getJob() {
+            return job;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? String.format("%d строк за %.0f мс", rows, getMillis())
+                : "ошибка: " + error.getMessage();
+        }
+    }
+
+    // Итог пакета: результаты в порядке завершения и общее время
+    public static final class BatchResult {
+        private final List<JobResult> results;
+        private final long nanos;
+
+        BatchResult(List<JobResult> results, long nanos) {
+            this.results = results;
+            this.nanos = nanos;
+        }
+
+        public List<JobResult> getResults() {
+            return results;
+        }
+
+        public List<JobResult> getFailed() {
+            List<JobResult> failed = new ArrayList<>();
+            for (JobResult result : results) {
+                if (!result.isSuccess()) {
+                    failed.add(result);
+                }
+            }
+            return failed;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d отчетов, ошибок: %d, за %.1f с", results.size(), getFailed().size(), getMillis() / 1000);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Источники данных для PDF-отчетов (шаблоны clients, employees, projects, tasks).
+// Столбцы проекций названы так же, как поля шаблонов.
+public final class ReportSources {
+    // Размер страницы чтения (можно переопределить -Dreport.page=...)
+    static final int PAGE_SIZE = Integer.getInteger("report.page", 1000);
+    // Сколько сотрудников и задач проекта выводит шаблон projects.jrxml
+    private static final int NAMES_PER_PROJECT = 3;
+
+    private static final String PROJECT_SELECT = "SELECT p.project_id, p.project_name, p.project_status, "
+            + "p.project_due_date, p.project_end_date, c.client_name FROM Project p LEFT JOIN p.client c";
+    private static final String TASK_SELECT = "SELECT t.task_id, t.task_name, t.task_description, t.task_status, "
+            + "t.due_date, p.project_name, e.employee_name "
+            + "FROM Task t LEFT JOIN t.project p LEFT JOIN t.assignedEmployee e";
+    // Имена участников и задач для страницы проектов, в порядке id (как в all_data.xml)
+    private static final String MEMBER_NAMES = "SELECT p.project_id, e.employee_name FROM Project p JOIN p.employees e "
+            + "WHERE p.project_id IN :ids ORDER BY p.project_id, e.employee_id";
+    private static final String TASK_NAMES = "SELECT p.project_id, t.task_name FROM Task t JOIN t.project p "
+            + "WHERE p.project_id IN :ids ORDER BY p.project_id, t.task_id";
+
+    private ReportSources() {
+    }
+
+    public static JpaReportDataSource clients(EntityManager em) {
+        return new JpaReportDataSource(new KeysetCursor(em, "SELECT c.client_id, c.client_name FROM Client c",
+            PAGE_SIZE, "c.client_id"), "client_id", "client_name");
+    }
+
+    public static JpaReportDataSource employees(EntityManager em) {
+        return new JpaReportDataSource(new KeysetCursor(em, "SELECT e.employee_id, e.employee_name FROM Employee e",
+            PAGE_SIZE, "e.employee_id"), "employee_id", "employee_name");
+    }
+
+    // Проекты с первыми тремя сотрудниками и задачами: по два дополнительных запроса на страницу
+    public static JpaReportDataSource projects(EntityManager em) {
+        return projects(new KeysetCursor(em, PROJECT_SELECT, PAGE_SIZE, "p.project_id"));
+    }
+
+    public static JpaReportDataSource tasks(EntityManager em) {
+        return tasks(new KeysetCursor(em, TASK_SELECT, PAGE_SIZE, "t.task_id"));
+    }
+
+    // Проекты одного клиента (шаблон projects.jrxml)
+    public static JpaReportDataSource projectsOfClient(EntityManager em, int clientId) {
+        return projects(new KeysetCursor(em, PROJECT_SELECT + " WHERE c.client_id = :clientId", PAGE_SIZE, "p.project_id")
+            .setParameter("clientId", clientId));
+    }
+
+    // Задачи одного сотрудника (шаблон tasks.jrxml)
+    public static JpaReportDataSource tasksOfEmployee(EntityManager em, int employeeId) {
+        return tasks(new KeysetCursor(em, TASK_SELECT + " WHERE e.employee_id = :employeeId", PAGE_SIZE, "t.task_id")
+            .setParameter("employeeId", employeeId));
+    }
+
+    private static JpaReportDataSource projects(KeysetCursor cursor) {
+        return new JpaReportDataSource(cursor.mapPages(ReportSources::addProjectNames), "project_id", "project_name",
+                "project_status", "project_due_date", "project_end_date", "client_name")
+            .withOptional("employee_names", "employee_names2", "employee_names3",
+                "task_names", "task_names2", "task_names3");
+    }
+
+    private static JpaReportDataSource tasks(KeysetCursor cursor) {
+        return new JpaReportDataSource(cursor,
+            "task_id", "task_name", "task_description", "task_status", "due_date", "project_name", "employee_name");
+    }
+
+    private static List<Object[]> addProjectNames(EntityManager em, List<Object[]> page) {
+        List<Integer> ids = new ArrayList<>(page.size());
+        for (Object[] row : page) {
+            ids.add((Integer) row[0]);
+        }
+        Map<Integer, List<String>> members = firstNames(em, MEMBER_NAMES, ids);
+        Map<Integer, List<String>> tasks = firstNames(em, TASK_NAMES, ids);
+        List<Object[]> mapped = new ArrayList<>(page.size());
+        for (Object[] row : page) {
+            Object[] extended = Arrays.copyOf(row, row.length + 2 * NAMES_PER_PROJECT);
+            copyNames(members.get(row[0]), extended, row.length);
+            copyNames(tasks.get(row[0]), extended, row.length + NAMES_PER_PROJECT);
+            mapped.add(extended);
+        }
+        return mapped;
+    }
+
+    private static Map<Integer, List<String>> firstNames(EntityManager em, String jpql, List<Integer> ids) {
+        Map<Integer, List<String>> names = new HashMap<>();
+        for (Object[] row : em.createQuery(jpql, Object[].class).setParameter("ids", ids).getResultList()) {
+            List<String> list = names.computeIfAbsent((Integer) row[0], id -> new ArrayList<>(NAMES_PER_PROJECT));
+            if (list.size() < NAMES_PER_PROJECT) {
+                list.add((String) row[1]);
+            }
+        }
+        return names;
+    }
+
+    private static void copyNames(List<String> names, Object[] row, int offset) {
+        if (names != null) {
+            for (int i = 0; i < names.size(); i++) {
+                row[offset + i] = names.get(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import net.sf.jasperreports.engine.JRVirtualizer;
+import net.sf.jasperreports.engine.fill.JRFileVirtualizer;
+import net.sf.jasperreports.engine.fill.JRGzipVirtualizer;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import org.apache.log4j.Logger;
+
+// Виртуализатор страниц JasperPrint: в памяти остаются только последние PAGES страниц, остальные
+// сжимаются (gzip) или вытесняются на диск (swap - один файл подкачки, file - файл на страницу).
+// Режим задается -Dreport.virtualizer=swap|gzip|file|none, каталог файлов - -Dreport.swap.dir=...
+public final class ReportVirtualizer {
+    private static final Logger logger = Logger.getLogger(ReportVirtualizer.class);
+
+    public enum Mode { NONE, GZIP, SWAP, FILE }
+
+    // Режим по умолчанию: файл подкачки, чтобы отчеты на сотни тысяч строк не зависели от размера кучи
+    static final Mode MODE = mode(System.getProperty("report.virtualizer"));
+    // Сколько страниц держать в памяти (можно переопределить -Dreport.virtualizer.pages=...)
+    static final int PAGES = Integer.getInteger("report.virtualizer.pages", 50);
+    // Размер блока файла подкачки в байтах и на сколько блоков он растет (-Dreport.swap.block, -Dreport.swap.grow)
+    static final int SWAP_BLOCK_SIZE = Integer.getInteger("report.swap.block", 4096);
+    static final int SWAP_GROW_BLOCKS = Integer.getInteger("report.swap.grow", 1024);
+
+    private ReportVirtualizer() {
+    }
+
+    // Режим из значения свойства; неизвестное значение не должно ломать все отчеты, поэтому - SWAP с предупреждением
+    static Mode mode(String value) {
+        if (value == null || value.isBlank()) {
+            return Mode.SWAP;
+        }
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Неизвестный режим -Dreport.virtualizer=" + value + ", используется swap");
+            return Mode.SWAP;
+        }
+    }
+
+    // Новый виртуализатор на один отчет; null в режиме NONE. После выгрузки вызывается cleanup()
+    public static JRVirtualizer create(Mode mode) throws IOException {
+        switch (mode) {
+            case GZIP:
+                return new JRGzipVirtualizer(PAGES);
+            case SWAP:
+                // swapOwner = true: файл подкачки удаляется вместе с виртуализатором в cleanup()
+                return new JRSwapFileVirtualizer(PAGES, new JRSwapFile(directory().toString(), SWAP_BLOCK_SIZE,
+                    SWAP_GROW_BLOCKS), true);
+            case FILE:
+                return new JRFileVirtualizer(PAGES, directory().toString());
+            default:
+                return null;
+        }
+    }
+
+    private static Path directory() throws IOException {
+        Path dir = Paths.get(System.getProperty("report.swap.dir", System.getProperty("java.io.tmpdir")));
+        Files.createDirectories(dir);
+        return dir;
+    }
+}
@@ -0,0 +1,44 @@
+import javax.sql.DataSource;
+import org.apache.log4j.Logger;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateResult;
+
+// Схема БД задается версионными миграциями Flyway, а не hbm2ddl (в persistence.xml он выключен):
+// db/migration/common - общие для MySQL и H2 в режиме MySQL, db/migration/mysql - только для MySQL (FULLTEXT).
+// БД, созданная раньше через hbm2ddl, при первом запуске отмечается версией 0 и проходит все миграции:
+// они написаны так, чтобы не падать на уже существующих таблицах, столбцах и индексах FULLTEXT.
+// Новые изменения схемы - только новыми файлами V<n>__*.sql
+public final class SchemaMigrations {
+    private static final Logger logger = Logger.getLogger(SchemaMigrations.class);
+    static final String[] LOCATIONS = {"classpath:db/migration/common", "classpath:db/migration/{vendor}"};
+    static final String BASELINE_VERSION = "0";
+
+    private SchemaMigrations() {
+    }
+
+    public static MigrateResult migrate(DataSource dataSource) {
+        return migrate(configure().dataSource(dataSource));
+    }
+
+    // Миграция БД, к которой у приложения нет пула (например, отдельной тестовой БД MySQL)
+    static MigrateResult migrate(String url, String user, String password) {
+        return migrate(configure().dataSource(url, user, password));
+    }
+
+    private static FluentConfiguration configure() {
+        return Flyway.configure()
+            .locations(LOCATIONS)
+            .baselineOnMigrate(true)
+            .baselineVersion(BASELINE_VERSION);
+    }
+
+    private static MigrateResult migrate(FluentConfiguration configuration) {
+        long start = System.nanoTime();
+        MigrateResult result = configuration.load().migrate();
+        logger.info("Миграции схемы: применено " + result.migrationsExecuted + ", версия "
+            + (result.targetSchemaVersion != null ? result.targetSchemaVersion : result.initialSchemaVersion)
+            + ", " + (System.nanoTime() - start) / 1_000_000 + " мс");
+        return result;
+    }
+}
@@ -0,0 +1,344 @@
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Индекс для поиска по подстроке в памяти: триграммы значений полей -> номера документов.
+// Запрос - слова через пробел (должны совпасть все), "поле:значение" ищет в конкретном поле,
+// фразы с пробелами берутся в кавычки. Совпадение буквальное, без учета регистра и без регулярных выражений.
+public class SearchIndex {
+    private static final int GRAM = 3;
+    private static final int SMALL_CANDIDATES = 64;
+
+    private final String[] fields;
+    // Значения полей в нижнем регистре: values[поле][документ]
+    private String[][] values;
+    private int[] docIds;
+    private int docCount;
+    // Документы добавлены по возрастанию id: результат не нужно сортировать
+    private boolean docsInIdOrder = true;
+    // Документы, замененные или удаленные после построения индекса
+    private final BitSet removed = new BitSet();
+    private final Map<Integer, Integer> docById = new HashMap<>();
+    // Для каждого поля: триграмма -> возрастающий список номеров документов
+    private final List<Map<Long, IntList>> postings = new ArrayList<>();
+
+    // Первое поле используется для слов без префикса "поле:"
+    public SearchIndex(String... fields) {
+        this.fields = fields.clone();
+        this.values = new String[fields.length][64];
+        this.docIds = new int[64];
+        for (int i = 0; i < fields.length; i++) {
+            postings.add(new HashMap<>());
+        }
+    }
+
+    public String[] getFields() {
+        return fields.clone();
+    }
+
+    public int size() {
+        return docById.size();
+    }
+
+    // Добавление или замена строки; fieldValues идут в порядке полей индекса
+    public void put(int id, Object... fieldValues) {
+        remove(id);
+        if (docCount == docIds.length) {
+            int capacity = docIds.length * 2;
+            docIds = Arrays.copyOf(docIds, capacity);
+            for (int f = 0; f < fields.length; f++) {
+                values[f] = Arrays.copyOf(values[f], capacity);
+            }
+        }
+        int doc = docCount++;
+        if (doc > 0 && docIds[doc - 1] > id) {
+            docsInIdOrder = false;
+        }
+        docIds[doc] = id;
+        docById.put(id, doc);
+        for (int f = 0; f < fields.length; f++) {
+            Object value = f < fieldValues.length ? fieldValues[f] : null;
+            String text = value != null ? value.toString().toLowerCase(Locale.ROOT) : "";
+            values[f][doc] = text;
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                long gram = gram(text, i);
+                if (seen.add(gram)) {
+                    postings.get(f).computeIfAbsent(gram, key -> new IntList()).add(doc);
+                }
+            }
+        }
+    }
+
+    public void remove(int id) {
+        Integer doc = docById.remove(id);
+        if (doc != null) {
+            removed.set(doc);
+            if (removed.cardinality() > 1024 && removed.cardinality() > docById.size()) {
+                compact();
+            }
+        }
+    }
+
+    // Перестроение без удаленных документов, чтобы списки триграмм не росли от правок
+    private void compact() {
+        int[] liveDocs = new int[docById.size()];
+        int count = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (!removed.get(doc)) {
+                liveDocs[count++] = doc;
+            }
+        }
+        int[] oldIds = docIds;
+        String[][] oldValues = values;
+        docIds = new int[Math.max(64, count)];
+        values = new String[fields.length][docIds.length];
+        docCount = 0;
+        docsInIdOrder = true;
+        removed.clear();
+        docById.clear();
+        for (Map<Long, IntList> fieldPostings : postings) {
+            fieldPostings.clear();
+        }
+        for (int i = 0; i < count; i++) {
+            int doc = liveDocs[i];
+            Object[] fieldValues = new Object[fields.length];
+            for (int f = 0; f < fields.length; f++) {
+                fieldValues[f] = oldValues[f][doc];
+            }
+            put(oldIds[doc], fieldValues);
+        }
+    }
+
+    // Id строк, подходящих под запрос, по возрастанию; пустой запрос не ограничивает выборку (null)
+    public int[] search(String query) {
+        List<Term> terms = parse(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        // Списки документов для триграмм всех слов длиной от трех символов
+        List<IntList> lists = new ArrayList<>();
+        List<Term> toVerify = new ArrayList<>();
+        for (Term term : terms) {
+            if (term.text.length() != GRAM) {
+                // Триграммы дают только кандидатов; длинные и короткие слова проверяются подстрокой
+                toVerify.add(term);
+            }
+            for (int i = 0; i + GRAM <= term.text.length(); i++) {
+                IntList list = postings.get(term.field).get(gram(term.text, i));
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+        }
+        // Пересечение от самого редкого списка; когда кандидатов мало, дешевле проверить их напрямую
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] candidates = null;
+        for (IntList list : lists) {
+            if (candidates == null) {
+                candidates = list.toArray();
+            } else if (candidates.length <= SMALL_CANDIDATES) {
+                // Оставшиеся списки не пересекаем, поэтому проверяем все слова
+                toVerify = terms;
+                break;
+            } else {
+                candidates = intersect(candidates, list);
+            }
+            if (candidates.length == 0) {
+                return candidates;
+            }
+        }
+        IntList matches = new IntList();
+        int limit = candidates != null ? candidates.length : docCount;
+        for (int i = 0; i < limit; i++) {
+            int doc = candidates != null ? candidates[i] : i;
+            if (!removed.get(doc) && matchesAll(doc, toVerify)) {
+                matches.add(docIds[doc]);
+            }
+        }
+        int[] ids = matches.toArray();
+        if (!docsInIdOrder) {
+            Arrays.sort(ids);
+        }
+        return ids;
+    }
+
+    private boolean matchesAll(int doc, List<Term> terms) {
+        for (Term term : terms) {
+            if (!values[term.field][doc].contains(term.text)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Разбор запроса на слова; "поле:" с неизвестным полем считается частью слова
+    List<Term> parse(String query) {
+        List<Term> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        String text = query.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i >= text.length()) {
+                break;
+            }
+            int field = 0;
+            int colon = -1;
+            for (int j = i; j < text.length() && !Character.isWhitespace(text.charAt(j)) && text.charAt(j) != '"'; j++) {
+                if (text.charAt(j) == ':') {
+                    colon = j;
+                    break;
+                }
+            }
+            if (colon > i) {
+                int named = fieldIndex(text.substring(i, colon));
+                if (named >= 0) {
+                    field = named;
+                    i = colon + 1;
+                }
+            }
+            int end;
+            String value;
+            if (i < text.length() && text.charAt(i) == '"') {
+                end = text.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = text.length();
+                }
+                value = text.substring(i + 1, end);
+                end++;
+            } else {
+                end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                value = text.substring(i, end);
+            }
+            if (!value.isEmpty()) {
+                terms.add(new Term(field, value));
+            }
+            i = end;
+        }
+        return terms;
+    }
+
+    private int fieldIndex(String name) {
+        for (int f = 0; f < fields.length; f++) {
+            if (fields[f].equalsIgnoreCase(name)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    private static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    private static int[] intersect(int[] sorted, IntList list) {
+        int[] result = new int[Math.min(sorted.length, list.size)];
+        int count = 0;
+        // Короткий список ищем в длинном двоичным поиском, списки сопоставимой длины проходим слиянием
+        if ((long) sorted.length * 16 < list.size) {
+            int from = 0;
+            for (int doc : sorted) {
+                int found = Arrays.binarySearch(list.items, from, list.size, doc);
+                if (found >= 0) {
+                    result[count++] = doc;
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+        int i = 0;
+        int j = 0;
+        while (i < sorted.length && j < list.size) {
+            int a = sorted[i];
+            int b = list.items[j];
+            if (a == b) {
+                result[count++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Слово запроса
+    static class Term {
+        final int field;
+        final String text;
+
+        Term(int field, String text) {
+            this.field = field;
+            this.text = text;
+        }
+    }
+
+    // Растущий массив int без упаковки в Integer
+    private static class IntList {
+        int[] items = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+
+    // Описание источника индекса: поля и запрос, который их выбирает (первый столбец - id)
+    public static class Spec {
+        private final String[] fields;
+        private final String select;
+        private final String from;
+        private final String idPath;
+
+        public Spec(String[] fields, String select, String from, String idPath) {
+            this.fields = fields;
+            this.select = select;
+            this.from = from;
+            this.idPath = idPath;
+        }
+
+        // Построение индекса по всей таблице одним запросом
+        public SearchIndex build(EntityManager em) {
+            SearchIndex index = new SearchIndex(fields);
+            for (Object[] row : em.createQuery(select + " " + from + " ORDER BY " + idPath, Object[].class).getResultList()) {
+                index.put((Integer) row[0], Arrays.copyOfRange(row, 1, row.length));
+            }
+            return index;
+        }
+
+        // Значения полей для измененных строк (удаленных строк в результате нет)
+        public List<Object[]> fetch(EntityManager em, Collection<Integer> ids) {
+            TypedQuery<Object[]> query = em.createQuery(select + " " + from + " WHERE " + idPath + " IN (:ids)", Object[].class);
+            return query.setParameter("ids", ids).getResultList();
+        }
+    }
+}
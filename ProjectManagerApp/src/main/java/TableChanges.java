@@ -0,0 +1,89 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Изменения, внесенные одной операцией: id вставленных, измененных и удаленных строк по таблицам.
+// Операции изменения данных собирают их после commit, а модели таблиц применяют только к этим строкам.
+public class TableChanges {
+    public enum Table { CLIENTS, EMPLOYEES, TASKS, PROJECTS }
+
+    private final Map<Table, Set<Integer>> inserted = new EnumMap<>(Table.class);
+    private final Map<Table, Set<Integer>> updated = new EnumMap<>(Table.class);
+    private final Map<Table, Set<Integer>> deleted = new EnumMap<>(Table.class);
+
+    public TableChanges inserted(Table table, Integer id) {
+        return add(inserted, table, id);
+    }
+
+    public TableChanges updated(Table table, Integer id) {
+        return add(updated, table, id);
+    }
+
+    public TableChanges updated(Table table, Collection<Integer> ids) {
+        for (Integer id : ids) {
+            add(updated, table, id);
+        }
+        return this;
+    }
+
+    public TableChanges deleted(Table table, Integer id) {
+        return add(deleted, table, id);
+    }
+
+    public TableChanges deleted(Table table, Collection<Integer> ids) {
+        for (Integer id : ids) {
+            add(deleted, table, id);
+        }
+        return this;
+    }
+
+    // Вставленные строки (кроме удаленных в той же операции)
+    public Set<Integer> getInserted(Table table) {
+        Set<Integer> ids = new LinkedHashSet<>(get(inserted, table));
+        ids.removeAll(get(deleted, table));
+        return ids;
+    }
+
+    // Измененные строки; вставка и удаление важнее изменения
+    public Set<Integer> getUpdated(Table table) {
+        Set<Integer> ids = new LinkedHashSet<>(get(updated, table));
+        ids.removeAll(get(inserted, table));
+        ids.removeAll(get(deleted, table));
+        return ids;
+    }
+
+    public Set<Integer> getDeleted(Table table) {
+        return Collections.unmodifiableSet(get(deleted, table));
+    }
+
+    public boolean isEmpty(Table table) {
+        return get(inserted, table).isEmpty() && get(updated, table).isEmpty() && get(deleted, table).isEmpty();
+    }
+
+    private TableChanges add(Map<Table, Set<Integer>> target, Table table, Integer id) {
+        if (id != null) {
+            target.computeIfAbsent(table, key -> new LinkedHashSet<>()).add(id);
+        }
+        return this;
+    }
+
+    private static Set<Integer> get(Map<Table, Set<Integer>> source, Table table) {
+        return source.getOrDefault(table, Collections.emptySet());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Table table : Table.values()) {
+            if (!isEmpty(table)) {
+                text.append(table).append(": +").append(getInserted(table))
+                    .append(" ~").append(getUpdated(table))
+                    .append(" -").append(getDeleted(table)).append("; ");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,104 @@
+import javax.persistence.EntityManager;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+// Плоские выгрузки проектов и задач для анализа (CSV, XLSX, JSON - см. TableExporter).
+// Строки читаются теми же страницами по id, что и XML (KeysetCursor), и сразу передаются формату.
+public final class TableExport {
+    private static final Logger logger = Logger.getLogger(TableExport.class);
+
+    // Выгружаемая таблица: проекция и названия столбцов в файле
+    public enum Extract {
+        PROJECTS("Проекты", "projects", "SELECT p.project_id, p.project_name, p.project_status, p.project_due_date, "
+                + "p.project_end_date, c.client_id, c.client_name FROM Project p LEFT JOIN p.client c", "p.project_id",
+            List.of("project_id", "project_name", "project_status", "project_due_date", "project_end_date",
+                "client_id", "client_name")),
+        TASKS("Задачи", "tasks", "SELECT t.task_id, t.task_name, t.task_description, t.task_status, t.due_date, "
+                + "p.project_id, p.project_name, e.employee_id, e.employee_name "
+                + "FROM Task t LEFT JOIN t.project p LEFT JOIN t.assignedEmployee e", "t.task_id",
+            List.of("task_id", "task_name", "task_description", "task_status", "due_date",
+                "project_id", "project_name", "employee_id", "employee_name"));
+
+        private final String title;
+        private final String fileName;
+        private final String select;
+        private final String key;
+        private final List<String> columns;
+
+        Extract(String title, String fileName, String select, String key, List<String> columns) {
+            this.title = title;
+            this.fileName = fileName;
+            this.select = select;
+            this.key = key;
+            this.columns = columns;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private TableExport() {
+    }
+
+    // Выгрузка в файл через временный файл рядом
+    public static ExportResult export(EntityManager em, Extract extract, TableExporter format, Path file)
+            throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ExportResult result;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            result = export(em, extract, format, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Выгрузка " + extract + " в " + format.getName() + " (" + file + "): " + result);
+        return result;
+    }
+
+    // Выгрузка в поток; страницы читаются в одной транзакции, как и в XmlExporter
+    public static ExportResult export(EntityManager em, Extract extract, TableExporter format, OutputStream target)
+            throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream counted = new CountingOutputStream(target);
+        BufferedOutputStream buffered = new BufferedOutputStream(counted, 1 << 16);
+        KeysetCursor cursor = new KeysetCursor(em, extract.select, XmlExporter.PAGE_SIZE, extract.key);
+        boolean ownTransaction = !em.getTransaction().isActive();
+        if (ownTransaction) {
+            em.getTransaction().begin();
+        }
+        try {
+            try (TableExporter.RowWriter writer = format.open(buffered, extract.fileName, extract.columns)) {
+                for (Object[] row = cursor.next(); row != null; row = cursor.next()) {
+                    writer.write(row);
+                }
+            }
+            buffered.flush();
+        } finally {
+            if (ownTransaction && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+        return new ExportResult(cursor.getRows(), counted.count, System.nanoTime() - start);
+    }
+}
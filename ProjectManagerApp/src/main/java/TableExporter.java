@@ -0,0 +1,26 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Формат плоской выгрузки (одна строка на запись): CSV, XLSX, JSON.
+// Строки подаются по одной (см. TableExport), формат пишет их сразу в поток, не накапливая в памяти.
+// Новый формат добавляется реализацией интерфейса и записью в formats()
+public interface TableExporter {
+    // Название для интерфейса и расширение файла без точки
+    String getName();
+
+    String getExtension();
+
+    // Начало выгрузки таблицы name со столбцами columns
+    RowWriter open(OutputStream out, String name, List<String> columns) throws IOException;
+
+    // Запись строк; close() дописывает окончание формата, но не закрывает сам поток
+    interface RowWriter extends Closeable {
+        void write(Object[] row) throws IOException;
+    }
+
+    static List<TableExporter> formats() {
+        return List.of(new CsvExporter(), new XlsxExporter(), new JsonExporter());
+    }
+}
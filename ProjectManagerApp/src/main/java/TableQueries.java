@@ -0,0 +1,122 @@
+import javax.persistence.EntityManager;
+import java.util.List;
+
+// Запросы для заполнения таблиц интерфейса (одна выборка на таблицу или страницу)
+public final class TableQueries {
+    static final String NOT_ASSIGNED = "Не назначен";
+
+    // Все столбцы таблицы проектов: клиент через LEFT JOIN,
+    // количество сотрудников и задач через SIZE() (коррелированные подзапросы COUNT)
+    private static final String PROJECT_SELECT = "SELECT new ProjectRow(p.project_id, p.project_name, p.project_status, "
+            + "p.project_due_date, p.project_end_date, c.client_name, SIZE(p.employees), SIZE(p.tasks))";
+    private static final String PROJECT_FROM = "FROM Project p LEFT JOIN p.client c";
+    private static final String PROJECT_OVERDUE =
+            "EXISTS (SELECT t FROM Task t WHERE t.project = p AND t.task_status = 'Просрочено')";
+
+    // Все столбцы таблицы задач: проект и сотрудник через LEFT JOIN
+    private static final String TASK_SELECT = "SELECT new TaskRow(t.task_id, t.task_name, t.task_description, "
+            + "t.task_status, t.due_date, p.project_name, e.employee_name)";
+    private static final String TASK_FROM = "FROM Task t LEFT JOIN t.project p LEFT JOIN t.assignedEmployee e";
+
+    // Подсказка Hibernate: результат запроса (список id) хранится в кэше запросов,
+    // сами сущности берутся из кэша второго уровня
+    private static final String CACHEABLE = "org.hibernate.cacheable";
+
+    private TableQueries() {
+    }
+
+    // Поля поиска по таблицам; первое поле - для слов без префикса "поле:"
+    static SearchIndex.Spec projectSearch() {
+        return new SearchIndex.Spec(new String[]{"название", "статус", "клиент"},
+            "SELECT p.project_id, p.project_name, p.project_status, c.client_name", PROJECT_FROM, "p.project_id");
+    }
+
+    static SearchIndex.Spec taskSearch() {
+        return new SearchIndex.Spec(new String[]{"название", "описание", "статус", "проект", "сотрудник"},
+            "SELECT t.task_id, t.task_name, t.task_description, t.task_status, p.project_name, e.employee_name",
+            TASK_FROM, "t.task_id");
+    }
+
+    static SearchIndex.Spec employeeSearch() {
+        return new SearchIndex.Spec(new String[]{"имя"},
+            "SELECT e.employee_id, e.employee_name", "FROM Employee e", "e.employee_id");
+    }
+
+    static SearchIndex.Spec clientSearch() {
+        return new SearchIndex.Spec(new String[]{"имя"},
+            "SELECT c.client_id, c.client_name", "FROM Client c", "c.client_id");
+    }
+
+    // Списки выбора в диалогах (клиент, проект, сотрудник): при повторном открытии диалога
+    // читаются из кэша запросов без обращения к БД, пока соответствующая таблица не изменится
+    public static List<Client> clientChoices(EntityManager em) {
+        return em.createQuery("SELECT c FROM Client c", Client.class)
+            .setHint(CACHEABLE, true)
+            .getResultList();
+    }
+
+    public static List<Project> projectChoices(EntityManager em) {
+        return em.createQuery("SELECT p FROM Project p", Project.class)
+            .setHint(CACHEABLE, true)
+            .getResultList();
+    }
+
+    public static List<Employee> employeeChoices(EntityManager em) {
+        return em.createQuery("SELECT e FROM Employee e", Employee.class)
+            .setHint(CACHEABLE, true)
+            .getResultList();
+    }
+
+    // Постраничный источник таблицы проектов
+    static TableSource<ProjectRow> projectSource(boolean showOverdueOnly) {
+        String[] columnNames = {"ID", "Название проекта", "Статус", "Дата сдачи", "Дата окончания", "Клиент", "Кол-во сотрудников", "Кол-во задач"};
+        return new TableSource<>(columnNames, ProjectRow.class, PROJECT_SELECT, PROJECT_FROM,
+            "p.project_id", showOverdueOnly ? PROJECT_OVERDUE : null,
+            ProjectRow::getProject_id, (project, column) -> {
+                switch (column) {
+                    case 0: return project.getProject_id();
+                    case 1: return project.getProject_name() != null ? project.getProject_name() : "";
+                    case 2: return project.getProject_status() != null ? project.getProject_status() : "";
+                    case 3: return project.getProject_due_date() != null ? DateFormats.display(project.getProject_due_date()) : "";
+                    case 4: return project.getProject_end_date() != null ? DateFormats.display(project.getProject_end_date()) : "";
+                    case 5: return project.getClient_name() != null ? project.getClient_name() : NOT_ASSIGNED;
+                    case 6: return project.getEmployee_count();
+                    default: return project.getTask_count();
+                }
+            });
+    }
+
+    // Постраничный источник таблицы задач
+    static TableSource<TaskRow> taskSource() {
+        String[] columnNames = {"ID", "Название задачи", "Описание", "Статус", "Срок", "Проект", "Сотрудник"};
+        return new TableSource<>(columnNames, TaskRow.class, TASK_SELECT, TASK_FROM,
+            "t.task_id", null,
+            TaskRow::getTask_id, (task, column) -> {
+                switch (column) {
+                    case 0: return task.getTask_id();
+                    case 1: return task.getTask_name();
+                    case 2: return task.getTask_description();
+                    case 3: return task.getTask_status();
+                    case 4: return task.getDue_date() != null ? DateFormats.display(task.getDue_date()) : NOT_ASSIGNED;
+                    case 5: return task.getProject_name() != null ? task.getProject_name() : NOT_ASSIGNED;
+                    default: return task.getEmployee_name() != null ? task.getEmployee_name() : NOT_ASSIGNED;
+                }
+            });
+    }
+
+    // Постраничный источник таблицы сотрудников
+    static TableSource<Object[]> employeeSource() {
+        String[] columnNames = {"ID", "Имя сотрудника"};
+        return new TableSource<>(columnNames, Object[].class, "SELECT e.employee_id, e.employee_name", "FROM Employee e",
+            "e.employee_id", null,
+            row -> (Integer) row[0], (row, column) -> row[column]);
+    }
+
+    // Постраничный источник таблицы клиентов
+    static TableSource<Object[]> clientSource() {
+        String[] columnNames = {"ID", "Имя клиента"};
+        return new TableSource<>(columnNames, Object[].class, "SELECT c.client_id, c.client_name", "FROM Client c",
+            "c.client_id", null,
+            row -> (Integer) row[0], (row, column) -> row[column]);
+    }
+}
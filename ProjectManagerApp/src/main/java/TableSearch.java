@@ -0,0 +1,188 @@
+import javax.persistence.EntityManager;
+import javax.swing.Timer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.log4j.Logger;
+
+// Поиск в таблице через индекс в памяти (SearchIndex).
+// Ввод обрабатывается с задержкой (debounce), найденные id передаются в постраничную модель.
+// Индекс строится в фоне при первом поиске и после полного обновления, правки применяются к нему точечно.
+// Для таблиц с полнотекстовым поиском в БД можно включить режим, в котором выборку и ранжирование делает сервер.
+public class TableSearch {
+    private static final Logger logger = Logger.getLogger(TableSearch.class);
+    static final int DEBOUNCE_MILLIS = 250;
+
+    private final String name;
+    private final PagedTableModel<?> model;
+    private final SearchIndex.Spec spec;
+    private final Timer debounce;
+    private SearchIndex index;
+    private boolean building;
+    private String query = "";
+    // Поиск в БД по тексту запроса (null - таблица ищется только в памяти)
+    private Function<String, PagedTableModel.IdPager> databaseSearch;
+    private boolean useDatabase;
+
+    public TableSearch(String name, PagedTableModel<?> model, SearchIndex.Spec spec) {
+        this.name = name;
+        this.model = model;
+        this.spec = spec;
+        this.debounce = new Timer(DEBOUNCE_MILLIS, e -> runSearch());
+        this.debounce.setRepeats(false);
+    }
+
+    public TableSearch(String name, PagedTableModel<?> model, SearchIndex.Spec spec,
+                       Function<String, PagedTableModel.IdPager> databaseSearch) {
+        this(name, model, spec);
+        this.databaseSearch = databaseSearch;
+    }
+
+    // Переключение между индексом в памяти и полнотекстовым поиском в БД
+    public void setUseDatabase(boolean useDatabase) {
+        if (databaseSearch == null || this.useDatabase == useDatabase) {
+            return;
+        }
+        this.useDatabase = useDatabase;
+        if (isActive()) {
+            debounce.restart();
+        }
+    }
+
+    public boolean supportsDatabase() {
+        return databaseSearch != null;
+    }
+
+    public boolean isUsingDatabase() {
+        return useDatabase;
+    }
+
+    // Новый текст запроса; поиск выполнится, когда ввод приостановится
+    public void setQuery(String text) {
+        query = text != null ? text.trim() : "";
+        debounce.restart();
+    }
+
+    public boolean isActive() {
+        return !query.isEmpty();
+    }
+
+    // Сброс поиска без перезагрузки модели (ее перезагрузит вызывающий код)
+    public void clear() {
+        debounce.stop();
+        query = "";
+        model.setIdOrder(null);
+    }
+
+    // Индекс устарел после полного обновления таблиц: перестраиваем его в фоне
+    public void invalidate() {
+        index = null;
+        if (isActive() && !useDatabase) {
+            buildIndex();
+        }
+    }
+
+    private void runSearch() {
+        if (!isActive()) {
+            if (model.setIdOrder(null)) {
+                model.reload(null, null);
+            }
+            return;
+        }
+        if (useDatabase) {
+            logger.info("Поиск \"" + query + "\" в таблице \"" + name + "\" через полнотекстовый поиск БД");
+            if (model.setIdPager(databaseSearch.apply(query))) {
+                model.reload(null, null);
+            }
+            return;
+        }
+        if (index == null) {
+            buildIndex();
+            return;
+        }
+        long start = System.nanoTime();
+        int[] ids = index.search(query);
+        logger.info(String.format("Поиск \"%s\" в таблице \"%s\": %d строк за %.3f мс",
+            query, name, ids.length, (System.nanoTime() - start) / 1_000_000.0));
+        if (model.setIdOrder(ids)) {
+            model.reload(null, null);
+        }
+    }
+
+    private void buildIndex() {
+        if (building) {
+            return;
+        }
+        building = true;
+        DataAccessExecutor.submit(name + ", индекс поиска", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return spec.build(em);
+            } finally {
+                em.close();
+            }
+        }, built -> {
+            building = false;
+            index = built;
+            logger.info("Индекс поиска таблицы \"" + name + "\" построен: " + built.size() + " строк");
+            runSearch();
+        }, e -> building = false);
+    }
+
+    // Точечное обновление индекса после правок; при активном поиске выборка пересчитывается,
+    // а если набор строк не изменился, модель обновляет только сами строки
+    public void applyChanges(Set<Integer> inserted, Set<Integer> updated, Set<Integer> deleted) {
+        if (isActive() && useDatabase) {
+            // Ранжирование выполняет сервер: после правок выборку проще запросить заново
+            model.reload(null, null);
+        }
+        boolean searching = isActive() && (index != null || useDatabase);
+        if (!searching) {
+            model.applyChanges(inserted, updated, deleted);
+        }
+        if (index == null) {
+            return;
+        }
+        SearchIndex current = index;
+        Set<Integer> fetchIds = new LinkedHashSet<>(inserted);
+        fetchIds.addAll(updated);
+        DataAccessExecutor.submit(name + ", индекс поиска", () -> {
+            if (fetchIds.isEmpty()) {
+                return List.<Object[]>of();
+            }
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return spec.fetch(em, fetchIds);
+            } finally {
+                em.close();
+            }
+        }, rows -> {
+            if (current != index) {
+                return;
+            }
+            for (Integer id : deleted) {
+                current.remove(id);
+            }
+            for (Integer id : fetchIds) {
+                current.remove(id);
+            }
+            for (Object[] row : rows) {
+                current.put((Integer) row[0], Arrays.copyOfRange(row, 1, row.length));
+            }
+            if (!searching || !isActive() || useDatabase) {
+                return;
+            }
+            if (model.setIdOrder(current.search(query))) {
+                model.reload(null, null);
+            } else {
+                model.applyChanges(Set.of(), updated, Set.of());
+            }
+        }, e -> {
+            if (searching) {
+                model.applyChanges(inserted, updated, deleted);
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+// Источник строк для постраничной таблицы: keyset-пагинация по первичному ключу
+// (WHERE id > :afterId ORDER BY id), дешевый COUNT и необязательное условие отбора
+class TableSource<R> {
+    // Значение afterId для первой страницы
+    static final int FIRST_PAGE = Integer.MIN_VALUE;
+
+    private final String[] columnNames;
+    private final Class<R> rowType;
+    private final String select;
+    private final String from;
+    private final String idPath;
+    private final String condition;
+    private final ToIntFunction<R> idOf;
+    private final BiFunction<R, Integer, Object> valueAt;
+
+    TableSource(String[] columnNames, Class<R> rowType, String select, String from, String idPath,
+                String condition, ToIntFunction<R> idOf, BiFunction<R, Integer, Object> valueAt) {
+        this.columnNames = columnNames;
+        this.rowType = rowType;
+        this.select = select;
+        this.from = from;
+        this.idPath = idPath;
+        this.condition = condition;
+        this.idOf = idOf;
+        this.valueAt = valueAt;
+    }
+
+    String[] getColumnNames() {
+        return columnNames;
+    }
+
+    // Есть ли у источника условие отбора (тогда не каждая строка таблицы БД попадает в выборку)
+    boolean isFiltered() {
+        return condition != null;
+    }
+
+    int idOf(R row) {
+        return idOf.applyAsInt(row);
+    }
+
+    Object valueAt(R row, int column) {
+        return valueAt.apply(row, column);
+    }
+
+    // Общее количество строк с учетом фильтров
+    long count(EntityManager em) {
+        TypedQuery<Long> query = em.createQuery("SELECT COUNT(" + idPath + ") " + from + where(null), Long.class);
+        return query.getSingleResult();
+    }
+
+    // Страница строк после указанного id
+    List<R> fetchPage(EntityManager em, int afterId, int limit) {
+        TypedQuery<R> query = em.createQuery(select + " " + from + where(idPath + " > :afterId")
+            + " ORDER BY " + idPath, rowType);
+        return query.setParameter("afterId", afterId).setMaxResults(limit).getResultList();
+    }
+
+    // Строки с указанными id, прошедшие фильтры; нужны для точечного обновления таблицы
+    List<R> fetchByIds(EntityManager em, Collection<Integer> ids) {
+        TypedQuery<R> query = em.createQuery(select + " " + from + where(idPath + " IN (:ids)"), rowType);
+        return query.setParameter("ids", ids).getResultList();
+    }
+
+    // Id из списка (в его порядке), строки которых проходят условие отбора; нужен, чтобы результат поиска
+    // по индексу в памяти не показывал строки, скрытые фильтром таблицы
+    int[] retainIds(EntityManager em, int[] ids) {
+        if (condition == null || ids.length == 0) {
+            return ids;
+        }
+        Set<Integer> matching = new HashSet<>(em.createQuery("SELECT " + idPath + " " + from + where(null), Integer.class)
+            .getResultList());
+        return Arrays.stream(ids).filter(matching::contains).toArray();
+    }
+
+    // Количество строк с меньшим id, то есть позиция строки с этим id в таблице
+    long countBefore(EntityManager em, int id) {
+        TypedQuery<Long> query = em.createQuery("SELECT COUNT(" + idPath + ") " + from
+            + where(idPath + " < :beforeId"), Long.class);
+        return query.setParameter("beforeId", id).getSingleResult();
+    }
+
+    // Id строки, стоящей на offset позиций дальше строки afterId; нужен для перехода к дальней странице.
+    // Читаются только id (по индексу) и только от ближайшей известной границы страницы, а не от начала таблицы:
+    // OFFSET остается, но пропускает лишь строки между этой границей и нужной страницей
+    Integer idAt(EntityManager em, int afterId, long offset) {
+        TypedQuery<Integer> query = em.createQuery("SELECT " + idPath + " " + from + where(idPath + " > :afterId")
+            + " ORDER BY " + idPath, Integer.class);
+        List<Integer> ids = query.setParameter("afterId", afterId).setFirstResult((int) offset).setMaxResults(1)
+            .getResultList();
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private String where(String keyset) {
+        StringBuilder where = new StringBuilder();
+        appendCondition(where, condition);
+        appendCondition(where, keyset);
+        return where.toString();
+    }
+
+    private static void appendCondition(StringBuilder where, String condition) {
+        if (condition != null) {
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append(condition);
+        }
+    }
+
+    // Экранирование спецсимволов LIKE, чтобы поиск был буквальным (поиск в БД без FULLTEXT, см. FullTextSearch)
+    static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.Date;
+
+// Строка таблицы задач с названием проекта и именем сотрудника (read-model, как ProjectRow)
+public class TaskRow {
+    private final int task_id;
+    private final String task_name;
+    private final String task_description;
+    private final String task_status;
+    private final Date due_date;
+    private final String project_name;
+    private final String employee_name;
+
+    // Конструктор используется в выражении SELECT new TaskRow(...)
+    public TaskRow(Integer task_id, String task_name, String task_description, String task_status,
+                   Date due_date, String project_name, String employee_name) {
+        this.task_id = task_id;
+        this.task_name = task_name;
+        this.task_description = task_description;
+        this.task_status = task_status;
+        this.due_date = due_date;
+        this.project_name = project_name;
+        this.employee_name = employee_name;
+    }
+
+    public int getTask_id() {
+        return task_id;
+    }
+
+    public String getTask_name() {
+        return task_name;
+    }
+
+    public String getTask_description() {
+        return task_description;
+    }
+
+    public String getTask_status() {
+        return task_status;
+    }
+
+    public Date getDue_date() {
+        return due_date;
+    }
+
+    public String getProject_name() {
+        return project_name;
+    }
+
+    public String getEmployee_name() {
+        return employee_name;
+    }
+}
@@ -4,45 +4,59 @@ import javax.persistence.*;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.*;
 // Импорты для работы с датами и форматированием
-import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.regex.PatternSyntaxException;
 // Импорты для работы с XML
-import org.w3c.dom.*;
-import javax.xml.parsers.*;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.*;
-import javax.xml.transform.stream.*;
 import java.io.*;
-import java.util.HashMap;
-// Импорты для генерации отчетов
-import net.sf.jasperreports.engine.*;
-import net.sf.jasperreports.engine.export.JRPdfExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.engine.data.JRXmlDataSource;
-import net.sf.jasperreports.export.SimplePdfExporterConfiguration;
+import java.nio.file.Path;
 import org.apache.log4j.Logger;
 
 // Основной класс пользовательского интерфейса для управления проектами
 public class UI extends JFrame {
     // Логгер для отслеживания действий пользователя
     private static final Logger logger = Logger.getLogger(UI.class);
+    // Шаблоны PDF-отчетов: компилируются в фоне при запуске (см. ReportCache)
+    static final List<Path> REPORT_TEMPLATES = List.of(
+        AppPaths.template("clients"),
+        AppPaths.template("employees"),
+        AppPaths.template("projects"),
+        AppPaths.template("tasks"));
     // Основные компоненты интерфейса
     private JTabbedPane tabbedPane;
     private JTable clientTable;
     private JTable employeeTable;
     private JTable taskTable;
     private JTable projectTable;
+    // Состояние флажка "Показать проекты с просроченными задачами": сохраняется при любом обновлении таблиц
+    private boolean showOverdueOnly;
+    // Постраничные модели таблиц: строки подгружаются из БД по мере прокрутки
+    private final PagedTableModel<Object[]> clientModel = new PagedTableModel<>("Клиенты", TableQueries.clientSource());
+    private final PagedTableModel<Object[]> employeeModel = new PagedTableModel<>("Сотрудники", TableQueries.employeeSource());
+    private final PagedTableModel<TaskRow> taskModel = new PagedTableModel<>("Задачи", TableQueries.taskSource());
+    private final PagedTableModel<ProjectRow> projectModel = new PagedTableModel<>("Проекты", TableQueries.projectSource(false));
+    // Поиск по таблицам через индекс в памяти (задачи и проекты - также полнотекстовый поиск в БД)
+    private final TableSearch clientSearch = new TableSearch("Клиенты", clientModel, TableQueries.clientSearch());
+    private final TableSearch employeeSearch = new TableSearch("Сотрудники", employeeModel, TableQueries.employeeSearch());
+    private final TableSearch taskSearch = new TableSearch("Задачи", taskModel, TableQueries.taskSearch(),
+        FullTextSearch::tasks);
+    private final TableSearch projectSearch = new TableSearch("Проекты", projectModel, TableQueries.projectSearch(),
+        query -> FullTextSearch.projects(query, showOverdueOnly));
+    // Фоновая загрузка таблиц
+    private static final int TABLE_COUNT = 4;
+    // Число id задач в одном UPDATE при переносе между проектами
+    private static final int MOVE_CHUNK = 1000;
+    private JProgressBar loadProgress;
+    private JLabel loadStatusLabel;
+    // Ход генерации пакета PDF-отчетов
+    private JProgressBar reportProgress;
+    private int refreshGeneration;
+    private int completedLoads;
 
     // Конструктор главного окна приложения
     public UI() {
@@ -52,6 +66,18 @@ public class UI extends JFrame {
         setSize(1000, 600);
         setLocationRelativeTo(null);
 
+        // Закрываем общую фабрику EntityManager при закрытии окна
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                logger.info("Завершение работы приложения");
+                OverdueSweeper.stop();
+                DataAccessExecutor.shutdown();
+                ReportService.shutdown();
+                PersistenceManager.shutdown();
+            }
+        });
+
         // Создаем панель с вкладками
         tabbedPane = new JTabbedPane();
         tabbedPane.addTab("Проекты", createProjectsPanel());
@@ -67,23 +93,11 @@ public class UI extends JFrame {
 
         // Кнопка обновления
         JButton refreshAllButton = new JButton("Обновить все таблицы");
-        refreshAllButton.addActionListener(e -> {
-            try {
-                refreshAllTables();
-            } catch (MyException ex) {
-                showErrorMessage(ex.getMessage());
-            }
-        });
+        refreshAllButton.addActionListener(e -> refreshAllTables());
 
         // Кнопка сохранения XML
         JButton saveAllToXMLButton = new JButton("Сохранить данные в XML");
-        saveAllToXMLButton.addActionListener(e -> {
-            try {
-                saveAllToXML();
-            } catch (Exception ex) {
-                showErrorMessage(ex.getMessage());
-            }
-        });
+        saveAllToXMLButton.addActionListener(e -> saveAllToXML());
         // Кнопка загрузки XML
         JButton loadFromXMLButton = new JButton("Загрузить данные из XML");
         loadFromXMLButton.addActionListener(e -> {
@@ -94,11 +108,49 @@ public class UI extends JFrame {
             }
         });
 
+        // Кнопки инкрементальной синхронизации: только изменения после прошлой выгрузки (см. DeltaSync)
+        JButton saveChangesButton = new JButton("Выгрузить изменения");
+        saveChangesButton.addActionListener(e -> saveChangesToXML());
+        JButton loadChangesButton = new JButton("Загрузить изменения");
+        loadChangesButton.addActionListener(e -> loadChangesFromXML());
+
+        // Кнопки резервной копии в компактном бинарном формате (см. BinarySnapshot)
+        JButton saveSnapshotButton = new JButton("Резервная копия");
+        saveSnapshotButton.addActionListener(e -> saveSnapshot());
+        JButton loadSnapshotButton = new JButton("Восстановить из копии");
+        loadSnapshotButton.addActionListener(e -> loadSnapshot());
+
+        // Кнопка выгрузки проектов и задач в CSV, XLSX или JSON
+        JButton exportTableButton = new JButton("Выгрузка для анализа");
+        exportTableButton.addActionListener(e -> exportForAnalysis());
+
+        // Кнопка пакетной генерации PDF: общие отчеты и отчеты по каждому клиенту и сотруднику
+        JButton reportBatchButton = new JButton("Пакет PDF-отчетов");
+        reportBatchButton.addActionListener(e -> generateReportBatch());
+
         // панель для размещения кнопок
         JPanel topButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         topButtonPanel.add(refreshAllButton);
         topButtonPanel.add(saveAllToXMLButton);
         topButtonPanel.add(loadFromXMLButton);
+        topButtonPanel.add(saveChangesButton);
+        topButtonPanel.add(loadChangesButton);
+        topButtonPanel.add(saveSnapshotButton);
+        topButtonPanel.add(loadSnapshotButton);
+        topButtonPanel.add(exportTableButton);
+        topButtonPanel.add(reportBatchButton);
+
+        // Индикатор фоновой загрузки таблиц и время загрузки каждой таблицы
+        loadProgress = new JProgressBar(0, TABLE_COUNT);
+        loadProgress.setStringPainted(true);
+        loadProgress.setVisible(false);
+        loadStatusLabel = new JLabel();
+        topButtonPanel.add(loadProgress);
+        topButtonPanel.add(loadStatusLabel);
+        reportProgress = new JProgressBar();
+        reportProgress.setStringPainted(true);
+        reportProgress.setVisible(false);
+        topButtonPanel.add(reportProgress);
 
         // панель для размещения кнопки обновления
         JPanel mainPanel = new JPanel(new BorderLayout());
@@ -106,6 +158,12 @@ public class UI extends JFrame {
         mainPanel.add(topButtonPanel, BorderLayout.NORTH);
 
         add(mainPanel);
+
+        // Первичная загрузка таблиц выполняется в фоне
+        refreshAllTables();
+
+        // После перевода задач в статус "Просрочено" перечитываем только задачи и проекты
+        OverdueSweeper.setListener(count -> SwingUtilities.invokeLater(this::refreshOverdueTables));
     }
 
     // Отображение главного окна приложения
@@ -116,7 +174,7 @@ public class UI extends JFrame {
     // Панель клиентов
     private JPanel createClientsPanel() {
         JPanel panel = new JPanel(new BorderLayout());
-        clientTable = new JTable();
+        clientTable = new JTable(clientModel);
         clientTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         // Установка слушателя для кликов мыши
@@ -131,7 +189,10 @@ public class UI extends JFrame {
                     } else if (e.getClickCount() == 2) {
                         // Двойной клик открывает проекты клиента
                         try {
-                            showClientProjects((Integer) clientTable.getValueAt(selectedRow, 0));
+                            Integer clientId = selectedId(clientTable, clientModel, selectedRow);
+                            if (clientId != null) {
+                                showClientProjects(clientId);
+                            }
                         } catch (MyException ex) {
                             showErrorMessage(ex.getMessage());
                         }
@@ -142,11 +203,6 @@ public class UI extends JFrame {
 
         // Запрещаем редактирование ячеек таблицы
         clientTable.setDefaultEditor(Object.class, null);
-        try {
-            updateClientTable();
-        } catch (MyException ex) {
-            showErrorMessage(ex.getMessage());
-        }
 
         // Добавляем панель поиска сверху
         panel.add(createSearchPanel(clientTable, "Поиск по имени клиента..."), BorderLayout.NORTH);
@@ -168,7 +224,10 @@ public class UI extends JFrame {
             int selectedRow = clientTable.getSelectedRow();
             if (selectedRow != -1) {
                 try {
-                    editClient((Integer)clientTable.getValueAt(selectedRow, 0));
+                    Integer clientId = selectedId(clientTable, clientModel, selectedRow);
+                    if (clientId != null) {
+                        editClient(clientId);
+                    }
                 } catch (MyException ex) {
                     showErrorMessage(ex.getMessage());
                 }
@@ -182,7 +241,10 @@ public class UI extends JFrame {
         deleteClientButton.addActionListener(e -> {
             int selectedRow = clientTable.getSelectedRow();
             if (selectedRow != -1) {
-                int clientId = (Integer)clientTable.getValueAt(selectedRow, 0);
+                Integer clientId = selectedId(clientTable, clientModel, selectedRow);
+                if (clientId == null) {
+                    return;
+                }
                 String clientName = (String)clientTable.getValueAt(selectedRow, 1);
                 int choice = JOptionPane.showConfirmDialog(
                     this,
@@ -207,7 +269,6 @@ public class UI extends JFrame {
         JButton generatePdfButton = new JButton("Сохранить в PDF");
         generatePdfButton.addActionListener(e -> {
             try {
-                saveAllToXML(); // Сначала сохраняем в XML
                 generatePdfReportClients();
             } catch (Exception ex) {
                 showErrorMessage("Ошибка при генерации отчета: " + ex.getMessage());
@@ -234,8 +295,7 @@ public class UI extends JFrame {
     //  окно с доп информацией о клиенте
     private void showClientProjects(int clientId) throws MyException {
         logger.info("Загрузка проектов клиента с ID: " + clientId);
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Client client = em.find(Client.class, clientId);
@@ -262,38 +322,8 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при загрузке проектов клиента: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
-        }
-    }
-    // Обновление таблицы клиентов
-    private void updateClientTable() throws MyException {
-        logger.info("Обновление таблицы клиентов");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
-
-        try {
-            em.getTransaction().begin();
-            List<Client> clients = em.createQuery("SELECT c FROM Client c", Client.class).getResultList();
-            String[] columnNames = {"ID", "Имя клиента"};
-            Object[][] data = new Object[clients.size()][2];
-            for (int i = 0; i < clients.size(); i++) {
-                Client client = clients.get(i);
-                data[i][0] = client.getClient_id();
-                data[i][1] = client.getClient_name();
-            }
-            clientTable.setModel(new javax.swing.table.DefaultTableModel(data, columnNames));
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-            throw new MyException("Ошибка при обновлении таблицы клиентов: " + e.getMessage());
-        } finally {
-            em.close();
-            emf.close();
         }
     }
-
     // Валидация имени
     private void validateName(String name) throws MyException {
         if (name == null || name.trim().isEmpty()) {
@@ -314,8 +344,7 @@ public class UI extends JFrame {
             String clientName = clientNameField.getText();
             validateName(clientName); // Валидация имени клиента
 
-            EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-            EntityManager em = emf.createEntityManager();
+            EntityManager em = PersistenceManager.createEntityManager();
 
             try {
                 em.getTransaction().begin();
@@ -323,24 +352,22 @@ public class UI extends JFrame {
                 newClient.setClient_name(clientName);
                 em.persist(newClient);
                 em.getTransaction().commit();
-                updateClientTable();
+                applyTableChanges(new TableChanges().inserted(TableChanges.Table.CLIENTS, newClient.getClient_id()));
                 logger.info("Создан новый клиент: " + clientName);
-            } catch (MyException e) {
+            } catch (Exception e) {
                 if (em.getTransaction().isActive()) {
                     em.getTransaction().rollback();
                 }
                 throw new MyException("Ошибка при добавлении клиента: " + e.getMessage());
             } finally {
                 em.close();
-                emf.close();
             }
         }
     }
     // Изменение клиента
     private void editClient(int clientId) throws MyException {
         logger.info("Пользователь открыл форму редактирования клиента");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Client client = em.find(Client.class, clientId);
@@ -361,7 +388,14 @@ public class UI extends JFrame {
                 em.getTransaction().begin();
                 client.setClient_name(newName);
                 em.getTransaction().commit();
-                updateClientTable();
+                // Имя клиента показывается и в таблице проектов
+                List<Integer> projectIds = em.createQuery(
+                    "SELECT p.project_id FROM Project p WHERE p.client.client_id = :clientId", Integer.class)
+                    .setParameter("clientId", clientId)
+                    .getResultList();
+                applyTableChanges(new TableChanges()
+                    .updated(TableChanges.Table.CLIENTS, clientId)
+                    .updated(TableChanges.Table.PROJECTS, projectIds));
                 logger.info("Клиент успешно отредактирован: " + newName);
             }
         } catch (Exception e) {
@@ -371,14 +405,12 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при изменении клиента: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
     // Удаление клиента
     private void deleteClient(int clientId) throws MyException {
         logger.info("Попытка удаления клиента");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Client client = em.find(Client.class, clientId);
@@ -395,15 +427,16 @@ public class UI extends JFrame {
                 .getResultList();
 
             // Обнуляем ссылки на клиента в проектах
+            TableChanges changes = new TableChanges().deleted(TableChanges.Table.CLIENTS, clientId);
             for (Project project : projects) {
                 project.setClient(null);
                 em.merge(project);
+                changes.updated(TableChanges.Table.PROJECTS, project.getProject_id());
             }
 
             em.remove(client);
             em.getTransaction().commit();
-            updateClientTable();
-            updateProjectTable(projectTable); // Обновляем таблицу проектов
+            applyTableChanges(changes);
             logger.info("Клиент успешно удален");
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
@@ -412,128 +445,79 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при удалении клиента: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Генерация PDF-отчета по клиентам
     public void generatePdfReportClients() {
-        logger.info("Пользователь начал генерацию PDF отчета");
-        try {
-            // Новый путь к файлу XML и обновленный XPath
-            String datasource = "C:/MEGA_OOP_PROJECT/all_data.xml";
-            String xpath = "/data/clients/client"; // Предполагаемая структура в all_data.xml
-            String template = "C:/MEGA_OOP_PROJECT/clients.jrxml";
-            String resultpath = "C:/MEGA_OOP_PROJECT/clients_report.pdf";
-
-            // Указание источника XML-данных
-            JRDataSource ds = new JRXmlDataSource(new File(datasource), xpath);
-            // Создание отчета на базе шаблона
-            JasperReport jasperReport = JasperCompileManager.compileReport(template);
-            // Заполнение отчета данными
-            JasperPrint print = JasperFillManager.fillReport(jasperReport, new HashMap<>(), ds);
-            // Генерация отчета в формате PDF
-            JRPdfExporter exporter = new JRPdfExporter();
-            exporter.setExporterInput(new SimpleExporterInput(print));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(resultpath));
-            SimplePdfExporterConfiguration configuration = new SimplePdfExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
-
-            JOptionPane.showMessageDialog(this, "Отчет успешно сохранен в " + resultpath);
-            logger.info("PDF отчет успешно сгенерирован");
-        } catch (JRException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Ошибка при генерации отчета: " + e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
-            logger.error("Ошибка при генерации PDF отчета: " + e.getMessage());
-        }
+        generatePdfReport(ReportJob.clients());
     }
     // Генерация PDF-отчета по сотрудникам
     private void generatePdfReportEmployees() {
-        logger.info("Пользователь начал генерацию PDF отчета по сотрудникам");
-        try {
-            String datasource = "C:/MEGA_OOP_PROJECT/all_data.xml";
-            String xpath = "/data/employees/employee";
-            String template = "C:/MEGA_OOP_PROJECT/employees.jrxml";
-            String resultpath = "C:/MEGA_OOP_PROJECT/employees_report.pdf";
-
-            JRDataSource ds = new JRXmlDataSource(new File(datasource), xpath);
-            JasperReport jasperReport = JasperCompileManager.compileReport(template);
-            JasperPrint print = JasperFillManager.fillReport(jasperReport, new HashMap<>(), ds);
-            JRPdfExporter exporter = new JRPdfExporter();
-            exporter.setExporterInput(new SimpleExporterInput(print));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(resultpath));
-            SimplePdfExporterConfiguration configuration = new SimplePdfExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
-
-            JOptionPane.showMessageDialog(this, "Отчет успешно сохранен в " + resultpath);
-            logger.info("PDF отчет по сотрудникам успешно сгенерирован");
-        } catch (JRException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Ошибка при генерации отчета: " + e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
-            logger.error("Ошибка при генерации PDF отчета по сотрудникам: " + e.getMessage());
-        }
+        generatePdfReport(ReportJob.employees());
     }
     // Генерация PDF-отчета по проектам
     private void generatePdfReportProjects() {
-        logger.info("Пользователь начал генерацию PDF отчета по проектам");
-        try {
-            String datasource = "C:/MEGA_OOP_PROJECT/all_data.xml";
-            String xpath = "/data/projects/project"; // Предполагаемая структура в all_data.xml
-            String template = "C:/MEGA_OOP_PROJECT/projects.jrxml";
-            String resultpath = "C:/MEGA_OOP_PROJECT/projects_report.pdf";
-
-            JRDataSource ds = new JRXmlDataSource(new File(datasource), xpath);
-            JasperReport jasperReport = JasperCompileManager.compileReport(template);
-            JasperPrint print = JasperFillManager.fillReport(jasperReport, new HashMap<>(), ds);
-            JRPdfExporter exporter = new JRPdfExporter();
-            exporter.setExporterInput(new SimpleExporterInput(print));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(resultpath));
-            SimplePdfExporterConfiguration configuration = new SimplePdfExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
-
-            JOptionPane.showMessageDialog(this, "Отчет успешно сохранен в " + resultpath);
-            logger.info("PDF отчет по проектам успешно сгенерирован");
-        } catch (JRException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Ошибка при генерации отчета: " + e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
-            logger.error("Ошибка при генерации PDF отчета по проектам: " + e.getMessage());
-        }
+        generatePdfReport(ReportJob.projects());
     }
     // Генерация PDF-отчета по задачам
     private void generatePdfReportTasks() {
-        logger.info("Пользователь начал генерацию PDF отчета по задачам");
-        try {
-            String datasource = "C:/MEGA_OOP_PROJECT/all_data.xml";
-            String xpath = "/data/tasks/task"; // Предполагаемая структура в all_data.xml
-            String template = "C:/MEGA_OOP_PROJECT/tasks.jrxml";
-            String resultpath = "C:/MEGA_OOP_PROJECT/tasks_report.pdf";
-
-            JRDataSource ds = new JRXmlDataSource(new File(datasource), xpath);
-            JasperReport jasperReport = JasperCompileManager.compileReport(template);
-            JasperPrint print = JasperFillManager.fillReport(jasperReport, new HashMap<>(), ds);
-            JRPdfExporter exporter = new JRPdfExporter();
-            exporter.setExporterInput(new SimpleExporterInput(print));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(resultpath));
-            SimplePdfExporterConfiguration configuration = new SimplePdfExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
-
-            JOptionPane.showMessageDialog(this, "Отчет успешно сохранен в " + resultpath);
-            logger.info("PDF отчет по задачам успешно сгенерирован");
-        } catch (JRException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Ошибка при генерации отчета: " + e.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
-            logger.error("Ошибка при генерации PDF отчета по задачам: " + e.getMessage());
-        }
+        generatePdfReport(ReportJob.tasks());
+    }
+
+    // Заполнение шаблона строками из БД и сохранение в PDF в фоне (см. ReportService)
+    private void generatePdfReport(ReportJob job) {
+        logger.info("Пользователь начал генерацию PDF отчета " + job.getTitle());
+        ReportService.submit(List.of(job), result -> { }, batch -> {
+            ReportService.JobResult result = batch.getResults().get(0);
+            if (result.isSuccess()) {
+                JOptionPane.showMessageDialog(this, "Отчет успешно сохранен в " + job.getOutput());
+            } else {
+                JOptionPane.showMessageDialog(this, "Ошибка при генерации отчета: " + result.getError().getMessage(),
+                    "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    // Пакет отчетов на конец месяца: список клиентов и сотрудников читается в фоне, затем задания
+    // выполняются параллельно, а ход выполнения показывается в верхней панели
+    private void generateReportBatch() {
+        logger.info("Пользователь запустил пакетную генерацию PDF отчетов");
+        Path dir = AppPaths.reportDir();
+        DataAccessExecutor.submit("Пакет отчетов", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return ReportJob.fullBatch(em, dir);
+            } finally {
+                em.close();
+            }
+        }, jobs -> {
+            reportProgress.setMaximum(jobs.size());
+            reportProgress.setValue(0);
+            reportProgress.setString("Отчеты: 0 из " + jobs.size());
+            reportProgress.setVisible(true);
+            ReportService.submit(jobs, result -> {
+                reportProgress.setValue(reportProgress.getValue() + 1);
+                reportProgress.setString("Отчеты: " + reportProgress.getValue() + " из " + jobs.size());
+            }, batch -> {
+                reportProgress.setVisible(false);
+                StringBuilder message = new StringBuilder("Сформировано отчетов: " + batch.getResults().size()
+                    + String.format(" за %.1f с", batch.getMillis() / 1000) + "\nКаталог: " + dir);
+                if (!batch.getFailed().isEmpty()) {
+                    message.append("\nОшибок: ").append(batch.getFailed().size());
+                    for (ReportService.JobResult failed : batch.getFailed()) {
+                        message.append("\n").append(failed.getJob()).append(": ").append(failed.getError().getMessage());
+                    }
+                }
+                JOptionPane.showMessageDialog(this, message.toString(), "Пакет отчетов",
+                    batch.getFailed().isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+            });
+        }, e -> showErrorMessage("Ошибка при подготовке пакета отчетов: " + e.getMessage()));
     }
 
     // Показать данные сотрудника
     private void showEmployeeData(int employeeId) throws MyException {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             // Найти сотрудника по его ID
@@ -582,14 +566,13 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при загрузке данных сотрудника: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
 
     }
     // Создание панели для работы с сотрудниками
     private JPanel createEmployeesPanel() {
         JPanel panel = new JPanel(new BorderLayout());
-        employeeTable = new JTable();
+        employeeTable = new JTable(employeeModel);
         employeeTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         // Добавляем слушатель для мыши на employeeTable
@@ -600,7 +583,10 @@ public class UI extends JFrame {
                     int selectedRow = employeeTable.getSelectedRow();
                     if (selectedRow != -1) {
                         try {
-                            int employeeId = (Integer) employeeTable.getValueAt(selectedRow, 0);
+                            Integer employeeId = selectedId(employeeTable, employeeModel, selectedRow);
+                            if (employeeId == null) {
+                                return;
+                            }
                             showEmployeeData(employeeId);
                         } catch (MyException ex) {
                             showErrorMessage(ex.getMessage());
@@ -613,11 +599,6 @@ public class UI extends JFrame {
         });
         // Запрещаем редактирование ячеек таблицы
         employeeTable.setDefaultEditor(Object.class, null);
-        try {
-            updateEmployeeTable();
-        } catch (MyException ex) {
-            showErrorMessage(ex.getMessage());
-        }
 
         // Добавляем панель поиска сверху
         panel.add(createSearchPanel(employeeTable, "Поиск по имени сотрудника..."), BorderLayout.NORTH);
@@ -639,7 +620,10 @@ public class UI extends JFrame {
             int selectedRow = employeeTable.getSelectedRow();
             if (selectedRow != -1) {
                 try {
-                    editEmployee((Integer)employeeTable.getValueAt(selectedRow, 0));
+                    Integer employeeId = selectedId(employeeTable, employeeModel, selectedRow);
+                    if (employeeId != null) {
+                        editEmployee(employeeId);
+                    }
                 } catch (MyException ex) {
                     showErrorMessage(ex.getMessage());
                 }
@@ -652,7 +636,10 @@ public class UI extends JFrame {
         deleteEmployeeButton.addActionListener(e -> {
             int selectedRow = employeeTable.getSelectedRow();
             if (selectedRow != -1) {
-                int employeeId = (Integer)employeeTable.getValueAt(selectedRow, 0);
+                Integer employeeId = selectedId(employeeTable, employeeModel, selectedRow);
+                if (employeeId == null) {
+                    return;
+                }
                 String employeeName = (String)employeeTable.getValueAt(selectedRow, 1);
                 int choice = JOptionPane.showConfirmDialog(
                     this,
@@ -677,7 +664,6 @@ public class UI extends JFrame {
         JButton savePdfButton = new JButton("Сохранить в PDF");
         savePdfButton.addActionListener(e -> {
             try {
-                saveAllToXML(); // Сначала сохраняем в XML
                 generatePdfReportEmployees();
             } catch (Exception ex) {
                 showErrorMessage("Ошибка при сохранении отчета: " + ex.getMessage());
@@ -700,40 +686,10 @@ public class UI extends JFrame {
         return panel;
     }
 
-    // Обновление данных в таблице сотрудников
-    private void updateEmployeeTable() throws MyException {
-        logger.info("Обновление таблицы сотрудников");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
-
-        try {
-            em.getTransaction().begin();
-            List<Employee> employees = em.createQuery("SELECT e FROM Employee e", Employee.class).getResultList();
-            String[] columnNames = {"ID", "Имя сотрудника"};
-            Object[][] data = new Object[employees.size()][2];
-            for (int i = 0; i < employees.size(); i++) {
-                Employee employee = employees.get(i);
-                data[i][0] = employee.getEmployee_id();
-                data[i][1] = employee.getEmployee_name();
-            }
-            employeeTable.setModel(new javax.swing.table.DefaultTableModel(data, columnNames));
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-            throw new MyException("Ошибка при обновлении таблицы сотрудников: " + e.getMessage());
-        } finally {
-            em.close();
-            emf.close();
-        }
-    }
-
     // Форма добавления нового сотрудника
     private void addNewEmployee() throws MyException {
         logger.info("Пользователь открыл форму создания нового сотрудника");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             JTextField employeeNameField = new JTextField();
@@ -749,7 +705,7 @@ public class UI extends JFrame {
                 newEmployee.setEmployee_name(employeeName);
                 em.persist(newEmployee);
                 em.getTransaction().commit();
-                updateEmployeeTable();
+                applyTableChanges(new TableChanges().inserted(TableChanges.Table.EMPLOYEES, newEmployee.getEmployee_id()));
                 logger.info("Создан новый сотрудник: " + employeeName);
             }
         } catch (MyException e) {
@@ -759,15 +715,13 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при добавлении сотрудника: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Форма редактирования данных сотрудника
     private void editEmployee(int employeeId) throws MyException {
         logger.info("Пользователь открыл форму редактирования сотрудника");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Employee employee = em.find(Employee.class, employeeId);
@@ -788,7 +742,14 @@ public class UI extends JFrame {
                 em.getTransaction().begin();
                 employee.setEmployee_name(newName);
                 em.getTransaction().commit();
-                updateEmployeeTable();
+                // Имя сотрудника показывается и в таблице задач
+                List<Integer> taskIds = em.createQuery(
+                    "SELECT t.task_id FROM Task t WHERE t.assignedEmployee.employee_id = :employeeId", Integer.class)
+                    .setParameter("employeeId", employeeId)
+                    .getResultList();
+                applyTableChanges(new TableChanges()
+                    .updated(TableChanges.Table.EMPLOYEES, employeeId)
+                    .updated(TableChanges.Table.TASKS, taskIds));
                 logger.info("Сотрудник успешно отредактирован: " + newName);
             }
         } catch (Exception e) {
@@ -798,14 +759,12 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при изменении сотрудника: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Удаление сотрудника из базы данных
     private void deleteEmployee(int employeeId) throws MyException {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
         try {
             em.getTransaction().begin();
             
@@ -815,9 +774,15 @@ public class UI extends JFrame {
             }
 
             // Обновляем все задачи, где был назначен этот сотрудник
+            TableChanges changes = new TableChanges().deleted(TableChanges.Table.EMPLOYEES, employeeId);
+            changes.updated(TableChanges.Table.TASKS, em.createQuery(
+                "SELECT t.task_id FROM Task t WHERE t.assignedEmployee = :employee", Integer.class)
+                .setParameter("employee", employee)
+                .getResultList());
             Query taskQuery = em.createQuery(
-                "UPDATE Task t SET t.assignedEmployee = NULL WHERE t.assignedEmployee = :employee");
+                "UPDATE Task t SET t.assignedEmployee = NULL, t.last_modified = :now WHERE t.assignedEmployee = :employee");
             taskQuery.setParameter("employee", employee);
+            taskQuery.setParameter("now", new Date(), TemporalType.TIMESTAMP);
             taskQuery.executeUpdate();
 
             // Сначала удаляем связи сотрудника с проектами
@@ -827,19 +792,17 @@ public class UI extends JFrame {
             List<Project> projects = projectQuery.getResultList();
             
             for (Project project : projects) {
-                project.getEmployees().remove(employee);
+                project.removeEmployee(employee);
                 em.merge(project);
+                changes.updated(TableChanges.Table.PROJECTS, project.getProject_id());
             }
 
             // Удаляем сотрудника
             em.remove(employee);
             em.getTransaction().commit();
 
-            // Обновляем все таблицы
-            updateEmployeeTable();
-            updateTaskTable(taskTable);
-            updateProjectTable(projectTable);
-            
+            // Обновляем только затронутые строки
+            applyTableChanges(changes);
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
@@ -847,7 +810,6 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при удалении сотрудника: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
     // Создание панели для работы с задачами
@@ -856,8 +818,7 @@ public class UI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Create the task table
-        String[] columnNames = {"ID", "Название задачи", "Описание", "Статус", "Проект", "Сотрудник"};
-        taskTable = new JTable();
+        taskTable = new JTable(taskModel);
         taskTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         // Добавляем слушатель для мыши на taskTable
@@ -874,14 +835,8 @@ public class UI extends JFrame {
             }
         });
 
-        try {
-            updateTaskTable(taskTable);
-        } catch (MyException ex) {
-            showErrorMessage(ex.getMessage());
-        }
-
         // Добавляем панель поиска сверху
-        panel.add(createSearchPanel(taskTable, "Поиск по названию задачи..."), BorderLayout.NORTH);
+        panel.add(createSearchPanel(taskTable, "Поиск по названию задачи (статус:, проект:, сотрудник:)..."), BorderLayout.NORTH);
         panel.add(new JScrollPane(taskTable), BorderLayout.CENTER);
 
 
@@ -902,7 +857,10 @@ public class UI extends JFrame {
             int selectedRow = taskTable.getSelectedRow();
             if (selectedRow != -1) {
                 try {
-                    editTask((Integer)taskTable.getValueAt(selectedRow, 0));
+                    Integer taskId = selectedId(taskTable, taskModel, selectedRow);
+                    if (taskId != null) {
+                        editTask(taskId);
+                    }
                 } catch (MyException ex) {
                     showErrorMessage(ex.getMessage());
                 }
@@ -915,7 +873,10 @@ public class UI extends JFrame {
         deleteTaskButton.addActionListener(e -> {
             int selectedRow = taskTable.getSelectedRow();
             if (selectedRow != -1) {
-                int taskId = (Integer)taskTable.getValueAt(selectedRow, 0);
+                Integer taskId = selectedId(taskTable, taskModel, selectedRow);
+                if (taskId == null) {
+                    return;
+                }
                 String taskName = (String)taskTable.getValueAt(selectedRow, 1);
                 int choice = JOptionPane.showConfirmDialog(
                     this,
@@ -940,7 +901,6 @@ public class UI extends JFrame {
         JButton savePdfButton = new JButton("Сохранить в PDF");
         savePdfButton.addActionListener(e -> {
             try {
-                saveAllToXML(); // Сначала сохраняем в XML
                 generatePdfReportTasks();
             } catch (Exception ex) {
                 showErrorMessage("Ошибка при сохранении отчета: " + ex.getMessage());
@@ -963,57 +923,15 @@ public class UI extends JFrame {
         return panel;
     }
 
-    // Обновление данных в таблице задач
-    private void updateTaskTable(JTable taskTable) throws MyException {
-        logger.info("Обновление таблицы задач");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
-
-        try {
-            em.getTransaction().begin();
-            List<Task> tasks = em.createQuery("SELECT t FROM Task t", Task.class).getResultList();
-            String[] columnNames = {"ID", "Название задачи", "Описание", "Статус", "Срок", "Проект", "Сотрудник"};
-            Object[][] data = new Object[tasks.size()][7];
-            for (int i = 0; i < tasks.size(); i++) {
-                Task task = tasks.get(i);
-                data[i][0] = task.getTask_id();
-                data[i][1] = task.getTask_name();
-                data[i][2] = task.getTask_description();
-                data[i][3] = task.getTask_status();
-                DateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
-                data[i][4] = task.getDueDate() != null ? dateFormat.format(task.getDueDate()) : "Не назначен";
-                data[i][5] = task.getProject() != null ? task.getProject().getProject_name() : "Не назначен";
-                data[i][6] = task.getAssignedEmployee() != null ? task.getAssignedEmployee().getEmployee_name() : "Не назначен";
-
-                // Проверка срока выполнения
-                if (task.getDueDate() != null && task.getDueDate().before(new Date()) && !task.getTask_status().equals("Завершено")) {
-                    task.setTask_status("Просрочено");
-                    em.merge(task);
-                }
-            }
-            taskTable.setModel(new javax.swing.table.DefaultTableModel(data, columnNames));
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
-            throw new MyException("Ошибка при обновлении таблицы задач: " + e.getMessage());
-        } finally {
-            em.close();
-            emf.close();
-        }
-    }
-
     // Форма добавления новой задачи
     private void addNewTask(JTable taskTable) throws MyException {
         logger.info("Пользователь открыл форму создания новой задачи");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             // Получаем списки проектов и сотрудников
-            List<Project> projects = em.createQuery("SELECT p FROM Project p", Project.class).getResultList();
-            List<Employee> employees = em.createQuery("SELECT e FROM Employee e", Employee.class).getResultList();
+            List<Project> projects = TableQueries.projectChoices(em);
+            List<Employee> employees = TableQueries.employeeChoices(em);
 
             // Создаем диалоговое окно для ввода данных
             JTextField taskNameField = new JTextField();
@@ -1094,7 +1012,9 @@ public class UI extends JFrame {
 
                     em.persist(newTask);
                     em.getTransaction().commit();
-                    updateTaskTable(taskTable);
+                    applyTableChanges(new TableChanges()
+                        .inserted(TableChanges.Table.TASKS, newTask.getTask_id())
+                        .updated(TableChanges.Table.PROJECTS, selectedProject != null ? selectedProject.getProject_id() : null));
                     logger.info("Создана новая задача: " + taskName);
                 } catch (Exception e) {
                     if (em.getTransaction().isActive()) {
@@ -1105,15 +1025,13 @@ public class UI extends JFrame {
             }
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Форма редактирования задачи
     private void editTask(int taskId) throws MyException {
         logger.info("Пользователь открыл форму редактирования задачи");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Task task = em.find(Task.class, taskId);
@@ -1129,7 +1047,7 @@ public class UI extends JFrame {
 
 
             // Project selection
-            List<Project> projects = em.createQuery("SELECT p FROM Project p", Project.class).getResultList();
+            List<Project> projects = TableQueries.projectChoices(em);
             JComboBox<Project> projectComboBox = new JComboBox<>(projects.toArray(new Project[0]));
             projectComboBox.setRenderer(new DefaultListCellRenderer() {
                 @Override
@@ -1146,7 +1064,7 @@ public class UI extends JFrame {
             }
 
             // Выбор сотрудника
-            List<Employee> employees = em.createQuery("SELECT e FROM Employee e", Employee.class).getResultList();
+            List<Employee> employees = TableQueries.employeeChoices(em);
             JComboBox<Employee> employeeComboBox = new JComboBox<>(employees.toArray(new Employee[0]));
             employeeComboBox.setRenderer(new DefaultListCellRenderer() {
                 @Override
@@ -1198,6 +1116,11 @@ public class UI extends JFrame {
                 }
 
                 try {
+                    // Количество задач меняется и у прежнего, и у нового проекта
+                    TableChanges changes = new TableChanges()
+                        .updated(TableChanges.Table.TASKS, taskId)
+                        .updated(TableChanges.Table.PROJECTS, task.getProject() != null ? task.getProject().getProject_id() : null)
+                        .updated(TableChanges.Table.PROJECTS, newProject != null ? newProject.getProject_id() : null);
                     em.getTransaction().begin();
                     task.setTask_name(newTaskName);
                     task.setTask_description(newTaskDescription);
@@ -1206,7 +1129,7 @@ public class UI extends JFrame {
                     task.setProject(newProject);
                     task.setAssignedEmployee(newEmployee);
                     em.getTransaction().commit();
-                    updateTaskTable(taskTable);
+                    applyTableChanges(changes);
                     logger.info("Задача успешно отредактирована: " + newTaskName);
                 } catch (Exception e) {
                     if (em.getTransaction().isActive()) {
@@ -1217,15 +1140,13 @@ public class UI extends JFrame {
             }
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Удаление задачи из базы данных
     private void deleteTask(int taskId) throws MyException {
         logger.info("Попытка удаления задачи");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Task task = em.find(Task.class, taskId);
@@ -1236,7 +1157,9 @@ public class UI extends JFrame {
             em.getTransaction().begin();
 
             // Удаляем связи
+            TableChanges changes = new TableChanges().deleted(TableChanges.Table.TASKS, taskId);
             if (task.getProject() != null) {
+                changes.updated(TableChanges.Table.PROJECTS, task.getProject().getProject_id());
                 task.getProject().getTasks().remove(task);
             }
             if (task.getAssignedEmployee() != null) {
@@ -1245,7 +1168,7 @@ public class UI extends JFrame {
 
             em.remove(task);
             em.getTransaction().commit();
-            updateTaskTable(taskTable);
+            applyTableChanges(changes);
             logger.info("Задача успешно удалена");
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
@@ -1254,7 +1177,6 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при удалении задачи: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
     // Создание панели для работы с проектами
@@ -1263,20 +1185,32 @@ public class UI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Create the project table
-        String[] columnNames = {"ID", "Название проекта", "Статус", "Дата сдачи", "Дата окончания", "Клиент", "Кол-во сотрудников", "Кол-во задач"};
-        projectTable = new JTable();
+        projectTable = new JTable(projectModel);
         projectTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
+        // Устанавливаем предпочтительную ширину столбцов
+        projectTable.getColumnModel().getColumn(0).setPreferredWidth(50);  // ID
+        projectTable.getColumnModel().getColumn(1).setPreferredWidth(150); // Название
+        projectTable.getColumnModel().getColumn(2).setPreferredWidth(100); // Статус
+        projectTable.getColumnModel().getColumn(3).setPreferredWidth(100); // Дата сдачи
+        projectTable.getColumnModel().getColumn(4).setPreferredWidth(100); // Дата окончания
+        projectTable.getColumnModel().getColumn(5).setPreferredWidth(150); // Клиент
+        projectTable.getColumnModel().getColumn(6).setPreferredWidth(100); // Кол-во сотрудников
+        projectTable.getColumnModel().getColumn(7).setPreferredWidth(100); // Кол-во задач
+
         // Add listener for checkbox
         JCheckBox overdueFilter = new JCheckBox("Показать проекты с просроченными задачами");
         overdueFilter.addActionListener(e -> {
-            try {
-                // Сбрасываем поисковый фильтр перед применением фильтра просроченных задач
-                projectTable.setRowSorter(null);
-                updateProjectTable(projectTable, overdueFilter.isSelected());
-            } catch (MyException ex) {
-                showErrorMessage(ex.getMessage());
+            // Сбрасываем поисковый фильтр перед применением фильтра просроченных задач
+            projectSearch.clear();
+            boolean showOverdueOnly = overdueFilter.isSelected();
+            if (!showOverdueOnly) {
+                reloadProjectTable(false);
+                return;
             }
+            // Перед показом просроченных актуализируем статусы задач
+            DataAccessExecutor.submit("Просроченные задачи", OverdueSweeper::sweepNow,
+                count -> reloadProjectTable(true), ex -> showErrorMessage(ex.getMessage()));
         });
 
         // Добавляем слушатель выбора строки
@@ -1293,7 +1227,10 @@ public class UI extends JFrame {
                     // Double click: show detailed information
                     int row = projectTable.getSelectedRow();
                     if (row != -1) {
-                        int projectId = (int) projectTable.getValueAt(row, 0); // Assuming ID is in the first column
+                        Integer projectId = selectedId(projectTable, projectModel, row);
+                        if (projectId == null) {
+                            return;
+                        }
                         try {
                             showProjectDetails(projectId);
                         } catch (MyException e1) {
@@ -1304,15 +1241,9 @@ public class UI extends JFrame {
             }
         });
 
-        try {
-            updateProjectTable(projectTable);
-        } catch (MyException ex) {
-            showErrorMessage(ex.getMessage());
-        }
-
         // Добавляем панель поиска сверху
         JTextField searchField = new JTextField(20);
-        searchField.putClientProperty("JTextField.placeholderText", "Поиск по названию проекта...");
+        searchField.putClientProperty("JTextField.placeholderText", "Поиск по названию проекта (статус:, клиент:)...");
         
         // Добавляем слушатель изменений в поле поиска
         searchField.getDocument().addDocumentListener(new DocumentListener() {
@@ -1344,6 +1275,7 @@ public class UI extends JFrame {
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         searchPanel.add(new JLabel("🔍"));
         searchPanel.add(searchField);
+        searchPanel.add(createDatabaseSearchBox(projectSearch));
         panel.add(searchPanel, BorderLayout.NORTH);
 
         panel.add(new JScrollPane(projectTable), BorderLayout.CENTER);
@@ -1365,8 +1297,10 @@ public class UI extends JFrame {
             int selectedRow = projectTable.getSelectedRow();
             if (selectedRow != -1) {
                 try {
-                    editProject((Integer)projectTable.getValueAt(selectedRow, 0));
-                    updateProjectTable(projectTable);
+                    Integer projectId = selectedId(projectTable, projectModel, selectedRow);
+                    if (projectId != null) {
+                        editProject(projectId);
+                    }
                 } catch (MyException ex) {
                     showErrorMessage(ex.getMessage());
                 }
@@ -1379,18 +1313,19 @@ public class UI extends JFrame {
         deleteProjectButton.addActionListener(e -> {
             int selectedRow = projectTable.getSelectedRow();
             if (selectedRow != -1) {
-                int projectId = (Integer)projectTable.getValueAt(selectedRow, 0);
+                Integer projectId = selectedId(projectTable, projectModel, selectedRow);
+                if (projectId == null) {
+                    return;
+                }
                 String projectName = (String)projectTable.getValueAt(selectedRow, 1);
                 
                 // Проверяем связанные задачи
-                EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-                EntityManager em = emf.createEntityManager();
+                EntityManager em = PersistenceManager.createEntityManager();
                 List<Task> tasks = em.createQuery(
                     "SELECT t FROM Task t WHERE t.project.project_id = :projectId", Task.class)
                     .setParameter("projectId", projectId)
                     .getResultList();
                 em.close();
-                emf.close();
 
                 String message = "Вы действительно хотите удалить проект \"" + projectName + "\"?";
                 if (!tasks.isEmpty()) {
@@ -1421,7 +1356,6 @@ public class UI extends JFrame {
         JButton savePdfButton = new JButton("Сохранить в PDF");
         savePdfButton.addActionListener(e -> {
             try {
-                saveAllToXML(); // Сначала сохраняем в XML
                 generatePdfReportProjects();
             } catch (Exception ex) {
                 showErrorMessage("Ошибка при сохранении отчета: " + ex.getMessage());
@@ -1447,8 +1381,7 @@ public class UI extends JFrame {
 
     // Отображение детальной информации о проекте
     private void showProjectDetails(int projectId) throws MyException {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             Project project = em.find(Project.class, projectId);
@@ -1495,116 +1428,34 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при получении деталей проекта: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Обновление таблицы проектов с фильтром по просроченным
     private void updateProjectTable(JTable projectTable, boolean showOverdueOnly) throws MyException {
-        logger.info("Обновление таблицы проектов");
         if (projectTable == null) {
             throw new MyException("Таблица проектов не инициализирована");
         }
-
-        EntityManagerFactory emf = null;
-        EntityManager em = null;
-
-        try {
-            emf = Persistence.createEntityManagerFactory("kursach_schema");
-            em = emf.createEntityManager();
-
-            // Сначала загружаем проекты с клиентами
-            String jpql = "SELECT DISTINCT p FROM Project p LEFT JOIN FETCH p.client";
-            if (showOverdueOnly) {
-                jpql += " WHERE EXISTS (SELECT t FROM Task t WHERE t.project = p AND t.task_status = 'Просрочено')";
-            }
-            List<Project> projects = em.createQuery(jpql, Project.class).getResultList();
-
-            if (projects == null) {
-                throw new MyException("Не удалось получить список проектов");
-            }
-
-            // Затем для каждого проекта инициализируем коллекции
-            for (Project project : projects) {
-                // Инициализируем коллекции, чтобы избежать LazyInitializationException
-                if (project.getEmployees() != null) {
-                    project.getEmployees().size();
-                }
-                if (project.getTasks() != null) {
-                    project.getTasks().size();
-                }
-            }
-
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
-            String[] columnNames = {"ID", "Название проекта", "Статус", "Дата сдачи", "Дата окончания", "Клиент", "Кол-во сотрудников", "Кол-во задач"};
-            Object[][] data = new Object[projects.size()][8];
-
-            for (int i = 0; i < projects.size(); i++) {
-                Project project = projects.get(i);
-                if (project != null) {
-                    data[i][0] = project.getProject_id();
-                    data[i][1] = project.getProject_name() != null ? project.getProject_name() : "";
-                    data[i][2] = project.getProject_status() != null ? project.getProject_status() : "";
-                    data[i][3] = project.getProject_due_date() != null ? dateFormat.format(project.getProject_due_date()) : "";
-                    data[i][4] = project.getProject_end_date() != null ? dateFormat.format(project.getProject_end_date()) : "";
-                    data[i][5] = project.getClient() != null ? project.getClient().getClient_name() : "Не назначен";
-                    data[i][6] = project.getEmployees() != null ? project.getEmployees().size() : 0;
-                    data[i][7] = project.getTasks() != null ? project.getTasks().size() : 0;
-                }
-            }
-
-            projectTable.setModel(new javax.swing.table.DefaultTableModel(data, columnNames) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false;
-                }
-
-                @Override
-                public Class<?> getColumnClass(int columnIndex) {
-                    if (columnIndex == 0) {
-                        return Integer.class;
-                    }
-                    return String.class;
-                }
-            });
-
-            // Устанавливаем предпочтительную ширину столбцов
-            projectTable.getColumnModel().getColumn(0).setPreferredWidth(50);  // ID
-            projectTable.getColumnModel().getColumn(1).setPreferredWidth(150); // Название
-            projectTable.getColumnModel().getColumn(2).setPreferredWidth(100); // Статус
-            projectTable.getColumnModel().getColumn(3).setPreferredWidth(100); // Дата сдачи
-            projectTable.getColumnModel().getColumn(4).setPreferredWidth(100); // Дата окончания
-            projectTable.getColumnModel().getColumn(5).setPreferredWidth(150); // Клиент
-            projectTable.getColumnModel().getColumn(6).setPreferredWidth(100); // Кол-во сотрудников
-            projectTable.getColumnModel().getColumn(7).setPreferredWidth(100); // Кол-во задач
-
-        } catch (Exception e) {
-            e.printStackTrace(); // Добавляем вывод стека ошибки для отладки
-            throw new MyException("Ошибка при обновлении таблицы проектов: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
-            if (emf != null) {
-                emf.close();
-            }
-        }
+        reloadProjectTable(showOverdueOnly);
     }
 
-    // Перегруженный метод для обратной совместимости
-    private void updateProjectTable(JTable projectTable) throws MyException {
-        updateProjectTable(projectTable, false);
+    // Перезагрузка модели проектов
+    // (все столбцы, включая количество сотрудников и задач, загружаются одним запросом на страницу)
+    private void reloadProjectTable(boolean showOverdueOnly) {
+        logger.info("Обновление таблицы проектов");
+        this.showOverdueOnly = showOverdueOnly;
+        projectModel.setSource(TableQueries.projectSource(showOverdueOnly));
+        projectModel.reload(null, e -> showErrorMessage("Ошибка при обновлении таблицы проектов: " + e.getMessage()));
     }
 
     // Форма добавления нового проекта
     private void addNewProject(JTable projectTable) throws MyException {
         logger.info("Пользователь открыл форму создания нового проекта");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
-            List<Client> clients = em.createQuery("SELECT c FROM Client c", Client.class).getResultList();
-            List<Employee> allEmployees = em.createQuery("SELECT e FROM Employee e", Employee.class).getResultList();
+            List<Client> clients = TableQueries.clientChoices(em);
+            List<Employee> allEmployees = TableQueries.employeeChoices(em);
             List<Task> unassignedTasks = em.createQuery("SELECT t FROM Task t WHERE t.project IS NULL", Task.class).getResultList();
 
             // Create form components
@@ -1709,14 +1560,17 @@ public class UI extends JFrame {
                         newProject.addEmployee(emp);
                     }
 
-                    // Add selected tasks
-                    for (Task task : selectedTasks) {
-                        newProject.addTask(task);
-                    }
-
                     em.persist(newProject);
+                    // Выбранные задачи переносятся пакетными UPDATE после вставки проекта
+                    em.flush();
+                    moveTasks(em, newProject, MembershipDiff.ids(selectedTasks, Task::getTask_id));
                     em.getTransaction().commit();
-                    updateProjectTable(projectTable);
+                    // Выбранные задачи теперь показывают новый проект
+                    TableChanges changes = new TableChanges().inserted(TableChanges.Table.PROJECTS, newProject.getProject_id());
+                    for (Task task : selectedTasks) {
+                        changes.updated(TableChanges.Table.TASKS, task.getTask_id());
+                    }
+                    applyTableChanges(changes);
                     logger.info("Создан новый проект: " + projectName);
                 } catch (Exception e) {
                     if (em.getTransaction().isActive()) {
@@ -1727,15 +1581,13 @@ public class UI extends JFrame {
             }
         } finally {
             em.close();
-            emf.close();
         }
     }
 
     // Форма редактирования проекта
     private void editProject(int projectId) throws MyException {
         logger.info("Пользователь открыл форму редактирования проекта");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             // Загружаем проект с клиентом
@@ -1773,8 +1625,8 @@ public class UI extends JFrame {
             }
 
             // Загружаем все возможные связанные сущности
-            List<Client> clients = em.createQuery("SELECT c FROM Client c", Client.class).getResultList();
-            List<Employee> allEmployees = em.createQuery("SELECT e FROM Employee e", Employee.class).getResultList();
+            List<Client> clients = TableQueries.clientChoices(em);
+            List<Employee> allEmployees = TableQueries.employeeChoices(em);
             List<Task> availableTasks = em.createQuery(
                 "SELECT t FROM Task t WHERE t.project IS NULL OR t.project.project_id = :projectId",
                 Task.class)
@@ -1812,17 +1664,8 @@ public class UI extends JFrame {
             });
 
             // Выбираем текущих сотрудников
-            int[] selectedEmployeeIndices = new int[project.getEmployees().size()];
-            int i = 0;
-            for (Employee emp : project.getEmployees()) {
-                for (int j = 0; j < allEmployees.size(); j++) {
-                    if (allEmployees.get(j).getEmployee_id() == emp.getEmployee_id()) {
-                        selectedEmployeeIndices[i++] = j;
-                        break;
-                    }
-                }
-            }
-            employeeList.setSelectedIndices(selectedEmployeeIndices);
+            employeeList.setSelectedIndices(
+                MembershipDiff.indicesOf(allEmployees, project.getEmployees(), Employee::getEmployee_id));
             JScrollPane employeeScrollPane = new JScrollPane(employeeList);
             employeeScrollPane.setPreferredSize(new Dimension(200, 100));
 
@@ -1842,17 +1685,7 @@ public class UI extends JFrame {
             });
 
             // Выбираем текущие задачи
-            int[] selectedTaskIndices = new int[project.getTasks().size()];
-            i = 0;
-            for (Task task : project.getTasks()) {
-                for (int j = 0; j < availableTasks.size(); j++) {
-                    if (availableTasks.get(j).getTask_id() == task.getTask_id()) {
-                        selectedTaskIndices[i++] = j;
-                        break;
-                    }
-                }
-            }
-            taskList.setSelectedIndices(selectedTaskIndices);
+            taskList.setSelectedIndices(MembershipDiff.indicesOf(availableTasks, project.getTasks(), Task::getTask_id));
             JScrollPane taskScrollPane = new JScrollPane(taskList);
             taskScrollPane.setPreferredSize(new Dimension(200, 100));
 
@@ -1906,6 +1739,10 @@ public class UI extends JFrame {
 
                 em.getTransaction().begin();
                 try {
+                    TableChanges changes = new TableChanges().updated(TableChanges.Table.PROJECTS, projectId);
+                    // При переименовании меняется столбец "Проект" у всех задач проекта
+                    boolean renamed = !newProjectName.equals(project.getProject_name());
+
                     // Automatically set end date when status changes to "Завершен"
                     if ("Завершен".equals(newProjectStatus)) {
                         SimpleDateFormat dateFormat1 = new SimpleDateFormat("dd.MM.yyyy");
@@ -1923,37 +1760,38 @@ public class UI extends JFrame {
                     }
                     project.setClient(newClient);
 
-                    // Обновляем список сотрудников
-                    List<Employee> currentEmployees = new ArrayList<>(project.getEmployees());
-                    for (Employee emp : currentEmployees) {
-                        if (!newEmployees.contains(emp)) {
-                            project.removeEmployee(emp);
-                        }
+                    // Обновляем состав сотрудников: меняются только строки employee_project добавленных и убранных
+                    MembershipDiff<Employee> employeeDiff =
+                        MembershipDiff.of(project.getEmployees(), newEmployees, Employee::getEmployee_id);
+                    for (Employee emp : employeeDiff.getRemoved()) {
+                        project.removeEmployee(emp);
                     }
-                    for (Employee emp : newEmployees) {
-                        if (!project.getEmployees().contains(emp)) {
-                            project.addEmployee(emp);
-                        }
+                    for (Employee emp : employeeDiff.getAdded()) {
+                        project.addEmployee(emp);
                     }
 
-                    // Обновляем список задач
-                    List<Task> currentTasks = new ArrayList<>(project.getTasks());
-                    for (Task task : currentTasks) {
-                        if (!newTasks.contains(task)) {
-                            project.removeTask(task);
+                    // Обновляем список задач: добавленные и убранные переносятся пакетными UPDATE по id
+                    MembershipDiff<Task> taskDiff = MembershipDiff.of(project.getTasks(), newTasks, Task::getTask_id);
+                    for (Task task : taskDiff.getAdded()) {
+                        // У прежнего проекта задачи уменьшается количество задач
+                        if (task.getProject() != null) {
+                            changes.updated(TableChanges.Table.PROJECTS, task.getProject().getProject_id());
                         }
                     }
-                    for (Task task : newTasks) {
-                        if (!project.getTasks().contains(task)) {
-                            project.addTask(task);
-                        }
+                    List<Integer> removedTaskIds = MembershipDiff.ids(taskDiff.getRemoved(), Task::getTask_id);
+                    List<Integer> addedTaskIds = MembershipDiff.ids(taskDiff.getAdded(), Task::getTask_id);
+                    moveTasks(em, null, removedTaskIds);
+                    moveTasks(em, project, addedTaskIds);
+                    changes.updated(TableChanges.Table.TASKS, removedTaskIds);
+                    changes.updated(TableChanges.Table.TASKS, addedTaskIds);
+                    if (renamed) {
+                        changes.updated(TableChanges.Table.TASKS, MembershipDiff.ids(taskDiff.getKept(), Task::getTask_id));
                     }
 
-                    em.merge(project);
                     em.getTransaction().commit();
 
-                    // Обновляем все таблицы
-                    refreshAllTables();
+                    // Обновляем только затронутые строки
+                    applyTableChanges(changes);
                     logger.info("Проект успешно отредактирован: " + newProjectName);
                 } catch (Exception e) {
                     if (em.getTransaction().isActive()) {
@@ -1966,15 +1804,27 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при изменении проекта: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
+        }
+    }
+
+    // Перенос задач в проект (или снятие с проекта при project == null) одним UPDATE на каждые MOVE_CHUNK id.
+    // Загруженные в em задачи не меняются: сразу после переноса транзакция фиксируется и em закрывается
+    private static void moveTasks(EntityManager em, Project project, List<Integer> taskIds) {
+        Date now = new Date();
+        for (int from = 0; from < taskIds.size(); from += MOVE_CHUNK) {
+            List<Integer> chunk = taskIds.subList(from, Math.min(taskIds.size(), from + MOVE_CHUNK));
+            em.createQuery("UPDATE Task t SET t.project = :project, t.last_modified = :now WHERE t.task_id IN :ids")
+                .setParameter("project", project)
+                .setParameter("now", now, TemporalType.TIMESTAMP)
+                .setParameter("ids", chunk)
+                .executeUpdate();
         }
     }
 
     // Удаление проекта из базы данных
     private void deleteProject(int projectId) throws MyException {
         logger.info("Попытка удаления проекта");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = PersistenceManager.createEntityManager();
 
         try {
             // Сначала загружаем сам проект
@@ -2005,15 +1855,17 @@ public class UI extends JFrame {
             }
 
             // Удаляем связи с задачами
+            TableChanges changes = new TableChanges().deleted(TableChanges.Table.PROJECTS, projectId);
             for (Task task : new ArrayList<>(project.getTasks())) {
                 project.removeTask(task);
                 // Удаляем саму задачу
                 em.remove(task);
+                changes.deleted(TableChanges.Table.TASKS, task.getTask_id());
             }
 
             em.remove(project);
             em.getTransaction().commit();
-            updateProjectTable(projectTable);
+            applyTableChanges(changes);
             logger.info("Проект успешно удален");
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
@@ -2022,519 +1874,250 @@ public class UI extends JFrame {
             throw new MyException("Ошибка при удалении проекта: " + e.getMessage());
         } finally {
             em.close();
-            emf.close();
         }
     }
+    // Точечное обновление таблиц после изменения данных: каждая модель перечитывает только затронутые строки
+    private void applyTableChanges(TableChanges changes) {
+        logger.info("Обновление строк таблиц: " + changes);
+        applyTableChanges(changes, TableChanges.Table.CLIENTS, clientSearch);
+        applyTableChanges(changes, TableChanges.Table.EMPLOYEES, employeeSearch);
+        applyTableChanges(changes, TableChanges.Table.TASKS, taskSearch);
+        applyTableChanges(changes, TableChanges.Table.PROJECTS, projectSearch);
+    }
+
+    // Изменения проходят через поиск таблицы: он обновляет свой индекс и передает их модели
+    private void applyTableChanges(TableChanges changes, TableChanges.Table table, TableSearch search) {
+        if (!changes.isEmpty(table)) {
+            search.applyChanges(changes.getInserted(table), changes.getUpdated(table), changes.getDeleted(table));
+        }
+    }
+
+    // Id выбранной строки (row - номер строки в представлении) или null, если ее страница еще загружается:
+    // постраничная модель держит в памяти не все строки и перечитывает их после обновления и поиска
+    private Integer selectedId(JTable table, PagedTableModel<?> model, int row) {
+        Integer id = model.getRowId(table.convertRowIndexToModel(row));
+        if (id == null) {
+            JOptionPane.showMessageDialog(this, "Строка еще загружается, повторите действие через секунду",
+                "Подождите", JOptionPane.INFORMATION_MESSAGE);
+        }
+        return id;
+    }
+
     // Метод для отображения сообщения об ошибке
     private void showErrorMessage(String message) {
         JOptionPane.showMessageDialog(this, message, "Ошибка", JOptionPane.ERROR_MESSAGE);
     }
-    // Обновление всех таблиц
-    private void refreshAllTables() throws MyException {
+    // Обновление всех таблиц: четыре модели перезагружаются параллельно вне потока EDT,
+    // повторное обновление отменяет еще не завершенные загрузки
+    private void refreshAllTables() {
         logger.info("Пользователь обновляет все таблицы");
-        try {
-            updateProjectTable(projectTable);
-            updateTaskTable(taskTable);
-            updateEmployeeTable();
-            updateClientTable();
-            logger.info("Все таблицы успешно обновлены");
-        } catch (Exception e) {
-            logger.error("Ошибка при обновлении таблиц: " + e.getMessage(), e);
-            throw new MyException("Ошибка при обновлении таблиц: " + e.getMessage());
+        int generation = ++refreshGeneration;
+        completedLoads = 0;
+        loadProgress.setValue(0);
+        loadProgress.setString("Загрузка таблиц...");
+        loadProgress.setVisible(true);
+
+        projectModel.setSource(TableQueries.projectSource(showOverdueOnly));
+        for (TableSearch search : List.of(projectSearch, taskSearch, employeeSearch, clientSearch)) {
+            search.invalidate();
         }
+        reloadForRefresh(generation, projectModel);
+        reloadForRefresh(generation, taskModel);
+        reloadForRefresh(generation, employeeModel);
+        reloadForRefresh(generation, clientModel);
     }
 
-    // Функция для сохранения всех сущностей в XML
-    private void saveAllToXML() {
-        logger.info("Пользователь начал экспорт данных в XML");
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
-
-        try {
-            em.getTransaction().begin();
-            List<Client> clients = em.createQuery("SELECT c FROM Client c", Client.class).getResultList();
-            List<Employee> employees = em.createQuery("SELECT e FROM Employee e", Employee.class).getResultList();
-            List<Project> projects = em.createQuery("SELECT p FROM Project p", Project.class).getResultList();
-            List<Task> tasks = em.createQuery("SELECT t FROM Task t", Task.class).getResultList();
-
-            DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-            Document doc = docBuilder.newDocument();
-
-            // Создаем корневой элемент
-            Element rootElement = doc.createElement("data");
-            doc.appendChild(rootElement);
-
-            // Добавляем клиентов
-            Element clientsElement = doc.createElement("clients");
-            rootElement.appendChild(clientsElement);
-            for (Client client : clients) {
-                Element clientElement = doc.createElement("client");
-
-                Element id = doc.createElement("client_id");
-                id.appendChild(doc.createTextNode(String.valueOf(client.getClient_id())));
-                clientElement.appendChild(id);
-
-                Element name = doc.createElement("client_name");
-                name.appendChild(doc.createTextNode(client.getClient_name()));
-                clientElement.appendChild(name);
+    // Обновление после фоновой проверки просроченных задач: статусы меняются только у задач,
+    // а от них зависит только фильтр проектов; клиенты и сотрудники не перечитываются
+    private void refreshOverdueTables() {
+        taskSearch.invalidate();
+        projectSearch.invalidate();
+        taskModel.reload(null, e -> showErrorMessage("Ошибка при обновлении таблицы задач: " + e.getMessage()));
+        reloadProjectTable(showOverdueOnly);
+    }
 
-                clientsElement.appendChild(clientElement);
+    // Перезагрузка одной модели в рамках общего обновления; результат устаревшего обновления не учитывается
+    private void reloadForRefresh(int generation, PagedTableModel<?> model) {
+        model.reload(() -> {
+            if (generation == refreshGeneration) {
+                tableLoadFinished();
             }
-
-            // Добавляем сотрудников
-            Element employeesElement = doc.createElement("employees");
-            rootElement.appendChild(employeesElement);
-            for (Employee employee : employees) {
-                Element employeeElement = doc.createElement("employee");
-
-                Element id = doc.createElement("employee_id");
-                id.appendChild(doc.createTextNode(String.valueOf(employee.getEmployee_id())));
-                employeeElement.appendChild(id);
-
-                Element name = doc.createElement("employee_name");
-                name.appendChild(doc.createTextNode(employee.getEmployee_name()));
-                employeeElement.appendChild(name);
-
-                employeesElement.appendChild(employeeElement);
+        }, e -> {
+            if (generation != refreshGeneration) {
+                return;
             }
+            tableLoadFinished();
+            showErrorMessage("Ошибка при обновлении таблиц: " + e.getMessage());
+        });
+    }
 
-            // Добавляем проекты
-            Element projectsElement = doc.createElement("projects");
-            rootElement.appendChild(projectsElement);
-            for (Project project : projects) {
-                Element projectElement = doc.createElement("project");
-
-                Element id = doc.createElement("project_id");
-                id.appendChild(doc.createTextNode(String.valueOf(project.getProject_id())));
-                projectElement.appendChild(id);
-
-                Element name = doc.createElement("project_name");
-                name.appendChild(doc.createTextNode(project.getProject_name()));
-                projectElement.appendChild(name);
-
-                Element status = doc.createElement("project_status");
-                status.appendChild(doc.createTextNode(project.getProject_status()));
-                projectElement.appendChild(status);
-
-                // Добавляем даты проекта
-                Element dueDate = doc.createElement("project_due_date");
-                if (project.getProject_due_date() != null) {
-                    dueDate.appendChild(doc.createTextNode(project.getProject_due_date().toString()));
-                }
-                projectElement.appendChild(dueDate);
-
-                Element endDate = doc.createElement("project_end_date");
-                if (project.getProject_end_date() != null) {
-                    endDate.appendChild(doc.createTextNode(project.getProject_end_date().toString()));
-                }
-                projectElement.appendChild(endDate);
-
-                // Добавляем информацию о клиенте
-                Element clientElement = doc.createElement("client");
-                Element clientId = doc.createElement("client_id");
-                clientId.appendChild(doc.createTextNode(String.valueOf(project.getClient().getClient_id())));
-                Element clientName = doc.createElement("client_name");
-                clientName.appendChild(doc.createTextNode(project.getClient().getClient_name()));
-                clientElement.appendChild(clientId);
-                clientElement.appendChild(clientName);
-                projectElement.appendChild(clientElement);
-
-                // Добавляем список сотрудников проекта с полной информацией
-                Element employeesElement2 = doc.createElement("employees");
-                for (Employee emp : project.getEmployees()) {
-                    Element employeeElement = doc.createElement("employee");
-                    
-                    Element empId = doc.createElement("employee_id");
-                    empId.appendChild(doc.createTextNode(String.valueOf(emp.getEmployee_id())));
-                    employeeElement.appendChild(empId);
-                    
-                    Element empName = doc.createElement("employee_name");
-                    empName.appendChild(doc.createTextNode(emp.getEmployee_name()));
-                    employeeElement.appendChild(empName);
-                    
-                    employeesElement2.appendChild(employeeElement);
-                }
-                projectElement.appendChild(employeesElement2);
-
-                // Добавляем список задач проекта с полной информацией
-                Element tasksElement = doc.createElement("tasks");
-                for (Task task : project.getTasks()) {
-                    Element taskElement = doc.createElement("task");
-                    
-                    Element taskId = doc.createElement("task_id");
-                    taskId.appendChild(doc.createTextNode(String.valueOf(task.getTask_id())));
-                    taskElement.appendChild(taskId);
-                    
-                    Element taskName = doc.createElement("task_name");
-                    taskName.appendChild(doc.createTextNode(task.getTask_name()));
-                    taskElement.appendChild(taskName);
-                    
-                    Element taskDesc = doc.createElement("task_description");
-                    taskDesc.appendChild(doc.createTextNode(task.getTask_description() != null ? task.getTask_description() : ""));
-                    taskElement.appendChild(taskDesc);
-                    
-                    Element taskStatus = doc.createElement("task_status");
-                    taskStatus.appendChild(doc.createTextNode(task.getTask_status()));
-                    taskElement.appendChild(taskStatus);
-                    
-                    Element taskDueDate = doc.createElement("due_date");
-                    if (task.getDueDate() != null) {
-                        taskDueDate.appendChild(doc.createTextNode(task.getDueDate().toString()));
-                    }
-                    taskElement.appendChild(taskDueDate);
-                    
-                    // Добавляем информацию о назначенном сотруднике
-                    Element taskEmployeeElement = doc.createElement("assigned_employee");
-                    Element taskEmpId = doc.createElement("employee_id");
-                    taskEmpId.appendChild(doc.createTextNode(String.valueOf(task.getAssignedEmployee().getEmployee_id())));
-                    Element taskEmpName = doc.createElement("employee_name");
-                    taskEmpName.appendChild(doc.createTextNode(task.getAssignedEmployee().getEmployee_name()));
-                    taskEmployeeElement.appendChild(taskEmpId);
-                    taskEmployeeElement.appendChild(taskEmpName);
-                    taskElement.appendChild(taskEmployeeElement);
-                    
-                    tasksElement.appendChild(taskElement);
-                }
-                projectElement.appendChild(tasksElement);
+    // Обновление индикатора после завершения загрузки одной таблицы
+    private void tableLoadFinished() {
+        completedLoads++;
+        loadProgress.setValue(completedLoads);
+        loadProgress.setString("Загружено " + completedLoads + " из " + TABLE_COUNT);
+        if (completedLoads == TABLE_COUNT) {
+            loadProgress.setVisible(false);
+            loadStatusLabel.setText(String.format("Проекты %d мс, задачи %d мс, сотрудники %d мс, клиенты %d мс",
+                DataAccessExecutor.getLastLatencyMillis("Проекты"),
+                DataAccessExecutor.getLastLatencyMillis("Задачи"),
+                DataAccessExecutor.getLastLatencyMillis("Сотрудники"),
+                DataAccessExecutor.getLastLatencyMillis("Клиенты")));
+            logger.info("Все таблицы успешно обновлены");
+        }
+    }
 
-                projectsElement.appendChild(projectElement);
+    // Функция для сохранения всех сущностей в XML (потоковая запись страницами, см. XmlExporter)
+    private void saveAllToXML() {
+        logger.info("Пользователь начал экспорт данных в XML");
+        Path filePath = AppPaths.dataFile();
+        DataAccessExecutor.submit("Экспорт в XML", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return XmlExporter.export(em, filePath);
+            } finally {
+                em.close();
             }
-
-            // Добавляем задачи
-            Element tasksElement = doc.createElement("tasks");
-            rootElement.appendChild(tasksElement);
-            for (Task task : tasks) {
-                Element taskElement = doc.createElement("task");
-
-                Element id = doc.createElement("task_id");
-                id.appendChild(doc.createTextNode(String.valueOf(task.getTask_id())));
-                taskElement.appendChild(id);
-
-                Element name = doc.createElement("task_name");
-                name.appendChild(doc.createTextNode(task.getTask_name()));
-                taskElement.appendChild(name);
-
-                Element description = doc.createElement("task_description");
-                description.appendChild(doc.createTextNode(task.getTask_description() != null ? task.getTask_description() : ""));
-                taskElement.appendChild(description);
-
-                Element status = doc.createElement("task_status");
-                status.appendChild(doc.createTextNode(task.getTask_status()));
-                taskElement.appendChild(status);
-
-                Element taskDueDate = doc.createElement("due_date");
-                if (task.getDueDate() != null) {
-                    taskDueDate.appendChild(doc.createTextNode(task.getDueDate().toString()));
-                }
-                taskElement.appendChild(taskDueDate);
-
-                // Добавляем информацию о проекте
-                Element projectElement = doc.createElement("project");
-                Element projectId = doc.createElement("project_id");
-                projectId.appendChild(doc.createTextNode(String.valueOf(task.getProject().getProject_id())));
-                Element projectName = doc.createElement("project_name");
-                projectName.appendChild(doc.createTextNode(task.getProject().getProject_name()));
-                projectElement.appendChild(projectId);
-                projectElement.appendChild(projectName);
-                taskElement.appendChild(projectElement);
-
-                // Добавляем информацию о назначенном сотруднике
-                Element employeeElement = doc.createElement("assigned_employee");
-                Element employeeId = doc.createElement("employee_id");
-                employeeId.appendChild(doc.createTextNode(String.valueOf(task.getAssignedEmployee().getEmployee_id())));
-                Element employeeName = doc.createElement("employee_name");
-                employeeName.appendChild(doc.createTextNode(task.getAssignedEmployee().getEmployee_name()));
-                employeeElement.appendChild(employeeId);
-                employeeElement.appendChild(employeeName);
-                taskElement.appendChild(employeeElement);
-
-                tasksElement.appendChild(taskElement);
-            }
-            // Сохраняем в файл
-            String filePath = "C:\\MEGA_OOP_PROJECT\\all_data.xml";
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-
-            DOMSource source = new DOMSource(doc);
-            StreamResult result = new StreamResult(new File(filePath));
-            transformer.transform(source, result);
-
+        }, result -> {
             JOptionPane.showMessageDialog(this, "Все данные успешно сохранены в XML файл:\n" + filePath,
                 "Успех", JOptionPane.INFORMATION_MESSAGE);
-            logger.info("Данные успешно экспортированы в XML: " + filePath);
-        } catch (Exception e) {
+            logger.info("Данные успешно экспортированы в XML: " + filePath + " (" + result + ")");
+        }, e -> {
             logger.error("Ошибка при экспорте в XML: " + e.getMessage(), e);
-            JOptionPane.showMessageDialog(this, "Ошибка при сохранении в XML: " + e.getMessage());
-        } finally {
-            em.close();
-            emf.close();
-        }
+            showErrorMessage("Ошибка при сохранении в XML: " + e.getMessage());
+        });
     }
 
-    // Функция для загрузки данных из XML
-    private void loadFromXML() {
-        logger.info("Пользователь начал импорт данных из XML");
-        File xmlFile = new File("C:\\MEGA_OOP_PROJECT\\all_data.xml");
-        if (!xmlFile.exists()) {
-            showErrorMessage("Файл XML не найден: " + xmlFile.getPath());
+    // Выгрузка строк, измененных после прошлой выгрузки, в all_data.delta.xml
+    private void saveChangesToXML() {
+        logger.info("Пользователь начал инкрементальную выгрузку в XML");
+        Path file = AppPaths.deltaFile();
+        DataAccessExecutor.submit("Выгрузка изменений", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return DeltaSync.standard().exportChanges(em, file);
+            } finally {
+                em.close();
+            }
+        }, result -> JOptionPane.showMessageDialog(this, "Изменения выгружены в " + file + "\n" + result,
+            "Успех", JOptionPane.INFORMATION_MESSAGE), e -> {
+            logger.error("Ошибка при выгрузке изменений: " + e.getMessage(), e);
+            showErrorMessage("Ошибка при выгрузке изменений: " + e.getMessage());
+        });
+    }
+
+    // Слияние изменений из all_data.delta.xml по id
+    private void loadChangesFromXML() {
+        logger.info("Пользователь начал загрузку изменений из XML");
+        Path file = AppPaths.deltaFile();
+        if (!file.toFile().exists()) {
+            showErrorMessage("Файл изменений не найден: " + file);
             return;
         }
+        DataAccessExecutor.submit("Загрузка изменений", () -> DeltaSync.standard().importChanges(file), report -> {
+            JOptionPane.showMessageDialog(this, "Изменения загружены из " + file, "Успех", JOptionPane.INFORMATION_MESSAGE);
+            logger.info("Изменения импортированы из XML: " + report);
+            refreshAllTables();
+        }, e -> {
+            logger.error("Ошибка при загрузке изменений: " + e.getMessage(), e);
+            showErrorMessage("Ошибка при загрузке изменений: " + e.getMessage());
+        });
+    }
 
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("kursach_schema");
-        EntityManager em = emf.createEntityManager();
-
-        try {
-            DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-            Document doc = docBuilder.parse(xmlFile);
-            doc.getDocumentElement().normalize();
-
-            em.getTransaction().begin();
-
-            // Загружаем клиентов
-            NodeList clientsList = doc.getElementsByTagName("client");
-            for (int i = 0; i < clientsList.getLength(); i++) {
-                Node node = clientsList.item(i);
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
-                    NodeList idNodes = element.getElementsByTagName("client_id");
-                    NodeList nameNodes = element.getElementsByTagName("client_name");
-                    
-                    if (idNodes.getLength() > 0 && nameNodes.getLength() > 0) {
-                        Node idNode = idNodes.item(0);
-                        Node nameNode = nameNodes.item(0);
-                        
-                        if (idNode != null && nameNode != null && 
-                            idNode.getTextContent() != null && !idNode.getTextContent().isEmpty() &&
-                            nameNode.getTextContent() != null && !nameNode.getTextContent().isEmpty()) {
-                            
-                            int clientId = Integer.parseInt(idNode.getTextContent());
-                            String clientName = nameNode.getTextContent();
-
-                            Client client = em.find(Client.class, clientId);
-                            if (client == null) {
-                                client = new Client();
-                            }
-                            client.setClient_id(clientId);
-                            client.setClient_name(clientName);
-                            em.merge(client);
-                        }
-                    }
-                }
-            }
-
-            // Загружаем сотрудников
-            NodeList employeesList = doc.getElementsByTagName("employee");
-            for (int i = 0; i < employeesList.getLength(); i++) {
-                Node node = employeesList.item(i);
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
-                    NodeList idNodes = element.getElementsByTagName("employee_id");
-                    NodeList nameNodes = element.getElementsByTagName("employee_name");
-                    
-                    if (idNodes.getLength() > 0 && nameNodes.getLength() > 0) {
-                        Node idNode = idNodes.item(0);
-                        Node nameNode = nameNodes.item(0);
-                        
-                        if (idNode != null && nameNode != null && 
-                            idNode.getTextContent() != null && !idNode.getTextContent().isEmpty() &&
-                            nameNode.getTextContent() != null && !nameNode.getTextContent().isEmpty()) {
-                            
-                            int employeeId = Integer.parseInt(idNode.getTextContent());
-                            String employeeName = nameNode.getTextContent();
-
-                            Employee employee = em.find(Employee.class, employeeId);
-                            if (employee == null) {
-                                employee = new Employee();
-                            }
-                            employee.setEmployee_id(employeeId);
-                            employee.setEmployee_name(employeeName);
-                            em.merge(employee);
-                        }
-                    }
-                }
+    // Сохранение бинарного снимка всех данных в all_data.snapshot
+    private void saveSnapshot() {
+        logger.info("Пользователь начал сохранение резервной копии");
+        Path file = AppPaths.snapshotFile();
+        DataAccessExecutor.submit("Резервная копия", () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return BinarySnapshot.save(em, file);
+            } finally {
+                em.close();
             }
+        }, result -> JOptionPane.showMessageDialog(this, "Резервная копия сохранена в " + file + "\n" + result,
+            "Успех", JOptionPane.INFORMATION_MESSAGE), e -> {
+            logger.error("Ошибка при сохранении резервной копии: " + e.getMessage(), e);
+            showErrorMessage("Ошибка при сохранении резервной копии: " + e.getMessage());
+        });
+    }
 
-            // Загружаем проекты
-            NodeList projectsList = doc.getElementsByTagName("project");
-            for (int i = 0; i < projectsList.getLength(); i++) {
-                Node node = projectsList.item(i);
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
-                    NodeList idNodes = element.getElementsByTagName("project_id");
-                    NodeList nameNodes = element.getElementsByTagName("project_name");
-                    NodeList statusNodes = element.getElementsByTagName("project_status");
-                    NodeList clientIdNodes = element.getElementsByTagName("client_id");
-                    
-                    if (idNodes.getLength() > 0 && nameNodes.getLength() > 0 && 
-                        statusNodes.getLength() > 0 && clientIdNodes.getLength() > 0) {
-                        
-                        Node idNode = idNodes.item(0);
-                        Node nameNode = nameNodes.item(0);
-                        Node statusNode = statusNodes.item(0);
-                        Node clientIdNode = clientIdNodes.item(0);
-                        
-                        if (idNode != null && nameNode != null && statusNode != null && clientIdNode != null &&
-                            idNode.getTextContent() != null && !idNode.getTextContent().isEmpty() &&
-                            nameNode.getTextContent() != null && !nameNode.getTextContent().isEmpty() &&
-                            statusNode.getTextContent() != null && !statusNode.getTextContent().isEmpty() &&
-                            clientIdNode.getTextContent() != null && !clientIdNode.getTextContent().isEmpty()) {
-                            
-                            int projectId = Integer.parseInt(idNode.getTextContent());
-                            String projectName = nameNode.getTextContent();
-                            String projectStatus = statusNode.getTextContent();
-                            int clientId = Integer.parseInt(clientIdNode.getTextContent());
-
-                            Project project = em.find(Project.class, projectId);
-                            if (project == null) {
-                                project = new Project();
-                            }
-                            project.setProject_id(projectId);
-                            project.setProject_name(projectName);
-                            project.setProject_status(projectStatus);
-
-                            // Загружаем даты проекта
-                            NodeList dueDateNodes = element.getElementsByTagName("project_due_date");
-                            if (dueDateNodes.getLength() > 0) {
-                                Node dueDateNode = dueDateNodes.item(0);
-                                if (dueDateNode != null && dueDateNode.getTextContent() != null && 
-                                    !dueDateNode.getTextContent().isEmpty()) {
-                                    try {
-                                        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-                                        Date dueDate = dateFormat.parse(dueDateNode.getTextContent());
-                                        project.setProject_due_date(dueDate);
-                                    } catch (ParseException e) {
-                                        logger.warn("Не удалось разобрать дату сдачи проекта: " + e.getMessage());
-                                    }
-                                }
-                            }
-
-                            NodeList endDateNodes = element.getElementsByTagName("project_end_date");
-                            if (endDateNodes.getLength() > 0) {
-                                Node endDateNode = endDateNodes.item(0);
-                                if (endDateNode != null && endDateNode.getTextContent() != null && 
-                                    !endDateNode.getTextContent().isEmpty()) {
-                                    try {
-                                        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-                                        Date endDate = dateFormat.parse(endDateNode.getTextContent());
-                                        project.setProject_end_date(endDate);
-                                    } catch (ParseException e) {
-                                        logger.warn("Не удалось разобрать дату окончания проекта: " + e.getMessage());
-                                    }
-                                }
-                            }
+    // Восстановление из all_data.snapshot: записи из копии перезаписывают одноименные по id
+    private void loadSnapshot() {
+        Path file = AppPaths.snapshotFile();
+        if (!file.toFile().exists()) {
+            showErrorMessage("Резервная копия не найдена: " + file);
+            return;
+        }
+        if (JOptionPane.showConfirmDialog(this, "Данные с теми же id будут заменены данными из копии. Продолжить?",
+                "Восстановление", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+        logger.info("Пользователь начал восстановление из резервной копии");
+        DataAccessExecutor.submit("Восстановление", () -> BinarySnapshot.load(file), result -> {
+            JOptionPane.showMessageDialog(this, "Данные восстановлены из " + file, "Успех",
+                JOptionPane.INFORMATION_MESSAGE);
+            logger.info("Восстановление из резервной копии: " + result);
+            refreshAllTables();
+        }, e -> {
+            logger.error("Ошибка при восстановлении из резервной копии: " + e.getMessage(), e);
+            showErrorMessage("Ошибка при восстановлении из резервной копии: " + e.getMessage());
+        });
+    }
 
-                            Client client = em.find(Client.class, clientId);
-                            if (client != null) {
-                                project.setClient(client);
-                            }
+    // Выгрузка таблицы в выбранном формате (см. TableExport); файл пишется в фоне в каталог exports
+    private void exportForAnalysis() {
+        JComboBox<TableExport.Extract> extractBox = new JComboBox<>(TableExport.Extract.values());
+        JComboBox<String> formatBox = new JComboBox<>();
+        List<TableExporter> formats = TableExporter.formats();
+        for (TableExporter format : formats) {
+            formatBox.addItem(format.getName());
+        }
+        JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
+        panel.add(new JLabel("Данные:"));
+        panel.add(extractBox);
+        panel.add(new JLabel("Формат:"));
+        panel.add(formatBox);
+        if (JOptionPane.showConfirmDialog(this, panel, "Выгрузка для анализа", JOptionPane.OK_CANCEL_OPTION)
+                != JOptionPane.OK_OPTION) {
+            return;
+        }
+        TableExport.Extract extract = (TableExport.Extract) extractBox.getSelectedItem();
+        TableExporter format = formats.get(formatBox.getSelectedIndex());
+        Path file = AppPaths.exportDir().resolve(extract.getFileName() + "." + format.getExtension());
+        logger.info("Пользователь начал выгрузку " + extract + " в " + format.getName());
 
-                            em.merge(project);
-                        }
-                    }
-                }
+        DataAccessExecutor.submit("Выгрузка " + format.getName(), () -> {
+            EntityManager em = PersistenceManager.createEntityManager();
+            try {
+                return TableExport.export(em, extract, format, file);
+            } finally {
+                em.close();
             }
+        }, result -> JOptionPane.showMessageDialog(this, "Данные выгружены в " + file + "\n" + result,
+            "Успех", JOptionPane.INFORMATION_MESSAGE), e -> {
+            logger.error("Ошибка при выгрузке в " + format.getName() + ": " + e.getMessage(), e);
+            showErrorMessage("Ошибка при выгрузке: " + e.getMessage());
+        });
+    }
 
-            // Загружаем задачи
-            NodeList tasksList = doc.getElementsByTagName("task");
-            for (int i = 0; i < tasksList.getLength(); i++) {
-                Node node = tasksList.item(i);
-                if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    Element element = (Element) node;
-                    NodeList idNodes = element.getElementsByTagName("task_id");
-                    NodeList nameNodes = element.getElementsByTagName("task_name");
-                    NodeList statusNodes = element.getElementsByTagName("task_status");
-                    NodeList projectIdNodes = element.getElementsByTagName("project_id");
-                    NodeList employeeIdNodes = element.getElementsByTagName("employee_id");
-                    
-                    if (idNodes.getLength() > 0 && nameNodes.getLength() > 0 && 
-                        statusNodes.getLength() > 0 && projectIdNodes.getLength() > 0 && 
-                        employeeIdNodes.getLength() > 0) {
-                        
-                        Node idNode = idNodes.item(0);
-                        Node nameNode = nameNodes.item(0);
-                        Node statusNode = statusNodes.item(0);
-                        Node projectIdNode = projectIdNodes.item(0);
-                        Node employeeIdNode = employeeIdNodes.item(0);
-                        
-                        if (idNode != null && nameNode != null && statusNode != null && 
-                            projectIdNode != null && employeeIdNode != null &&
-                            idNode.getTextContent() != null && !idNode.getTextContent().isEmpty() &&
-                            nameNode.getTextContent() != null && !nameNode.getTextContent().isEmpty() &&
-                            statusNode.getTextContent() != null && !statusNode.getTextContent().isEmpty() &&
-                            projectIdNode.getTextContent() != null && !projectIdNode.getTextContent().isEmpty() &&
-                            employeeIdNode.getTextContent() != null && !employeeIdNode.getTextContent().isEmpty()) {
-                            
-                            int taskId = Integer.parseInt(idNode.getTextContent());
-                            String taskName = nameNode.getTextContent();
-                            String taskStatus = statusNode.getTextContent();
-                            int projectId = Integer.parseInt(projectIdNode.getTextContent());
-                            int employeeId = Integer.parseInt(employeeIdNode.getTextContent());
-
-                            Task task = em.find(Task.class, taskId);
-                            if (task == null) {
-                                task = new Task();
-                            }
-                            task.setTask_id(taskId);
-                            task.setTask_name(taskName);
-                            task.setTask_status(taskStatus);
-
-                            // Загружаем описание задачи
-                            NodeList descNodes = element.getElementsByTagName("task_description");
-                            if (descNodes.getLength() > 0) {
-                                Node descNode = descNodes.item(0);
-                                if (descNode != null) {
-                                    String description = descNode.getTextContent();
-                                    task.setTask_description(description != null ? description : "");
-                                }
-                            }
-
-                            // Загружаем дату выполнения
-                            NodeList dueDateNodes = element.getElementsByTagName("due_date");
-                            if (dueDateNodes.getLength() > 0) {
-                                Node dueDateNode = dueDateNodes.item(0);
-                                if (dueDateNode != null && dueDateNode.getTextContent() != null && 
-                                    !dueDateNode.getTextContent().isEmpty()) {
-                                    try {
-                                        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-                                        Date dueDate = dateFormat.parse(dueDateNode.getTextContent());
-                                        task.setDueDate(dueDate);
-                                    } catch (ParseException e) {
-                                        logger.warn("Не удалось разобрать дату выполнения задачи: " + e.getMessage());
-                                    }
-                                }
-                            }
-
-                            Project project = em.find(Project.class, projectId);
-                            if (project != null) {
-                                task.setProject(project);
-                            }
-
-                            Employee employee = em.find(Employee.class, employeeId);
-                            if (employee != null) {
-                                task.setAssignedEmployee(employee);
-                            }
-
-                            em.merge(task);
-                        }
-                    }
-                }
-            }
+    // Функция для загрузки данных из XML: конвейер разбора и пакетной записи в фоне (см. ImportPipeline)
+    private void loadFromXML() {
+        logger.info("Пользователь начал импорт данных из XML");
+        File xmlFile = AppPaths.dataFile().toFile();
+        if (!xmlFile.exists()) {
+            showErrorMessage("Файл XML не найден: " + xmlFile.getPath());
+            return;
+        }
 
-            em.getTransaction().commit();
+        DataAccessExecutor.submit("Импорт XML", () -> ImportPipeline.importFile(xmlFile.toPath()), report -> {
             JOptionPane.showMessageDialog(this, "Данные успешно загружены из XML файла.", "Успех", JOptionPane.INFORMATION_MESSAGE);
-            logger.info("Данные успешно импортированы из XML.");
-        } catch (Exception e) {
+            logger.info("Данные успешно импортированы из XML: " + report);
+            refreshAllTables();
+        }, e -> {
             logger.error("Ошибка при импорте из XML: " + e.getMessage(), e);
             showErrorMessage("Ошибка при загрузке из XML: " + e.getMessage());
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
-            emf.close();
-        }
+        });
     }
 
     // Добавляем метод для создания панели поиска
@@ -2563,23 +2146,34 @@ public class UI extends JFrame {
 
         searchPanel.add(new JLabel("🔍"));
         searchPanel.add(searchField);
+        if (searchFor(table).supportsDatabase()) {
+            searchPanel.add(createDatabaseSearchBox(searchFor(table)));
+        }
         return searchPanel;
     }
 
-    // Метод для фильтрации таблицы
+    // Переключатель полнотекстового поиска в БД (по словам, с ранжированием по релевантности)
+    private JCheckBox createDatabaseSearchBox(TableSearch search) {
+        JCheckBox databaseSearch = new JCheckBox("Искать в БД");
+        databaseSearch.setToolTipText("Полнотекстовый поиск на сервере: слова по префиксу, лучшие совпадения сверху");
+        databaseSearch.addActionListener(e -> search.setUseDatabase(databaseSearch.isSelected()));
+        return databaseSearch;
+    }
+
+    // Метод для фильтрации таблицы: запрос уходит в индекс поиска таблицы
+    // (буквальное совпадение подстроки, "поле:значение", поиск после паузы во вводе)
     private void filterTable(String searchText, JTable table) {
-        if (searchText.length() == 0) {
-            table.setRowSorter(null);
-        } else {
-            TableRowSorter<TableModel> sorter = new TableRowSorter<>(table.getModel());
-            table.setRowSorter(sorter);
+        searchFor(table).setQuery(searchText);
+    }
 
-            try {
-                // Создаем фильтр, который ищет текст в колонке с именем (обычно это колонка 1)
-                sorter.setRowFilter(RowFilter.regexFilter("(?i)" + searchText, 1));
-            } catch (PatternSyntaxException pse) {
-                System.err.println("Bad regex pattern");
-            }
+    private TableSearch searchFor(JTable table) {
+        if (table == clientTable) {
+            return clientSearch;
+        } else if (table == employeeTable) {
+            return employeeSearch;
+        } else if (table == taskTable) {
+            return taskSearch;
         }
+        return projectSearch;
     }
 }
\ No newline at end of file
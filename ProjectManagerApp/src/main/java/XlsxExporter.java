@@ -0,0 +1,97 @@
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+// XLSX через потоковую книгу SXSSF: в памяти только последние WINDOW строк, остальные уходят
+// во временный файл (сжатый), поэтому выгрузка всей БД не зависит от размера кучи.
+// Лист Excel вмещает 1 048 576 строк; при переполнении выгрузка продолжается на следующем листе
+public class XlsxExporter implements TableExporter {
+    // Число строк в памяти (можно переопределить -Dexport.xlsx.window=...)
+    static final int WINDOW = Integer.getInteger("export.xlsx.window", 100);
+    static final int MAX_ROWS = 1_048_576;
+
+    @Override
+    public String getName() {
+        return "Excel (XLSX)";
+    }
+
+    @Override
+    public String getExtension() {
+        return "xlsx";
+    }
+
+    @Override
+    public RowWriter open(OutputStream out, String name, List<String> columns) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW);
+        workbook.setCompressTempFiles(true);
+        CellStyle header = workbook.createCellStyle();
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        header.setFont(bold);
+        CellStyle date = workbook.createCellStyle();
+        date.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+        return new RowWriter() {
+            private Sheet sheet;
+            private int rowIndex;
+            private int sheets;
+
+            @Override
+            public void write(Object[] values) throws IOException {
+                if (sheet == null || rowIndex == MAX_ROWS) {
+                    newSheet();
+                }
+                Row row = sheet.createRow(rowIndex++);
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value == null) {
+                        continue;
+                    }
+                    Cell cell = row.createCell(i);
+                    if (value instanceof Number) {
+                        cell.setCellValue(((Number) value).doubleValue());
+                    } else if (value instanceof Date) {
+                        cell.setCellValue((Date) value);
+                        cell.setCellStyle(date);
+                    } else {
+                        cell.setCellValue(value.toString());
+                    }
+                }
+            }
+
+            // Новый лист с заголовком (второй и следующие - "name 2", "name 3", ...)
+            private void newSheet() {
+                sheets++;
+                sheet = workbook.createSheet(sheets == 1 ? name : name + " " + sheets);
+                rowIndex = 0;
+                Row row = sheet.createRow(rowIndex++);
+                for (int i = 0; i < columns.size(); i++) {
+                    Cell cell = row.createCell(i);
+                    cell.setCellValue(columns.get(i));
+                    cell.setCellStyle(header);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (sheet == null) {
+                        newSheet();
+                    }
+                    workbook.write(out);
+                } finally {
+                    // Удаление временных файлов SXSSF
+                    workbook.dispose();
+                    workbook.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,263 @@
+import javax.persistence.EntityManager;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.log4j.Logger;
+
+// Потоковая выгрузка всех данных в XML (схема all_data.xml: clients, employees, projects, tasks).
+// Строки читаются страницами по id (keyset) в виде проекций, без загрузки сущностей,
+// и сразу пишутся через StAX, поэтому расход памяти не зависит от объема данных.
+// Сотрудники и задачи внутри проектов идут отдельными курсорами (KeysetCursor), упорядоченными по id проекта.
+// Инкрементальная выгрузка (since != null) пишет ту же схему, но только строки с last_modified > since;
+// у измененного проекта состав сотрудников выгружается целиком, так как импорт заменяет его полностью.
+public class XmlExporter {
+    private static final Logger logger = Logger.getLogger(XmlExporter.class);
+    // Размер страницы чтения из БД (можно переопределить -Dxml.export.page=...)
+    static final int PAGE_SIZE = Integer.getInteger("xml.export.page", 1000);
+    private static final String INDENT = "    ";
+
+    private static final String CLIENT_SELECT = "SELECT c.client_id, c.client_name FROM Client c";
+    private static final String EMPLOYEE_SELECT = "SELECT e.employee_id, e.employee_name FROM Employee e";
+    private static final String PROJECT_SELECT = "SELECT p.project_id, p.project_name, p.project_status, "
+            + "p.project_due_date, p.project_end_date, c.client_id, c.client_name FROM Project p LEFT JOIN p.client c";
+    private static final String MEMBER_SELECT = "SELECT p.project_id, e.employee_id, e.employee_name "
+            + "FROM Project p JOIN p.employees e";
+    private static final String PROJECT_TASK_SELECT = "SELECT p.project_id, t.task_id, t.task_name, t.task_description, "
+            + "t.task_status, t.due_date, e.employee_id, e.employee_name "
+            + "FROM Task t JOIN t.project p LEFT JOIN t.assignedEmployee e";
+    private static final String TASK_SELECT = "SELECT t.task_id, t.task_name, t.task_description, t.task_status, "
+            + "t.due_date, p.project_id, p.project_name, e.employee_id, e.employee_name "
+            + "FROM Task t LEFT JOIN t.project p LEFT JOIN t.assignedEmployee e";
+
+    private final EntityManager em;
+    private final XMLStreamWriter xml;
+    private final Date since;
+    private int depth;
+    private final List<KeysetCursor> cursors = new ArrayList<>();
+
+    private XmlExporter(EntityManager em, XMLStreamWriter xml, Date since) {
+        this.em = em;
+        this.xml = xml;
+        this.since = since;
+    }
+
+    // Выгрузка в файл: пишем во временный файл рядом и заменяем им старый только после успешной записи
+    public static ExportResult export(EntityManager em, Path file) throws IOException, XMLStreamException {
+        return export(em, file, null);
+    }
+
+    // Выгрузка строк, измененных после since (null - все строки)
+    public static ExportResult export(EntityManager em, Path file, Date since) throws IOException, XMLStreamException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ExportResult result;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            result = export(em, out, since);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Экспорт в " + file + ": " + result);
+        return result;
+    }
+
+    // Выгрузка в поток; все страницы читаются в одной транзакции, чтобы файл был согласованным снимком
+    public static ExportResult export(EntityManager em, OutputStream target) throws XMLStreamException {
+        return export(em, target, null);
+    }
+
+    public static ExportResult export(EntityManager em, OutputStream target, Date since) throws XMLStreamException {
+        long start = System.nanoTime();
+        CountingOutputStream counted = new CountingOutputStream(target);
+        BufferedOutputStream buffered = new BufferedOutputStream(counted, 1 << 16);
+        XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(buffered, "UTF-8");
+        XmlExporter exporter = new XmlExporter(em, xml, since);
+        boolean ownTransaction = !em.getTransaction().isActive();
+        if (ownTransaction) {
+            em.getTransaction().begin();
+        }
+        try {
+            exporter.writeDocument();
+            xml.close();
+            buffered.flush();
+        } catch (IOException e) {
+            throw new XMLStreamException("Ошибка записи XML: " + e.getMessage(), e);
+        } finally {
+            if (ownTransaction && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+        return new ExportResult(exporter.rows(), counted.count, System.nanoTime() - start);
+    }
+
+    // Курсор, строки которого входят в счетчик выгруженных строк (каждая запись считается один раз)
+    private KeysetCursor cursor(String select, String changed, String... keys) {
+        KeysetCursor cursor = createCursor(select, changed, keys);
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    // changed - сущность, по времени изменения которой отбираются строки при инкрементальной выгрузке
+    private KeysetCursor createCursor(String select, String changed, String... keys) {
+        if (since == null) {
+            return new KeysetCursor(em, select, PAGE_SIZE, keys);
+        }
+        return new KeysetCursor(em, select + " WHERE " + changed + ".last_modified > :since", PAGE_SIZE, keys)
+            .setParameter("since", since);
+    }
+
+    private long rows() {
+        long rows = 0;
+        for (KeysetCursor cursor : cursors) {
+            rows += cursor.getRows();
+        }
+        return rows;
+    }
+
+    private void writeDocument() throws XMLStreamException {
+        xml.writeStartDocument("UTF-8", "1.0");
+        open("data");
+        if (since != null) {
+            // Атрибут только для сведения: импорт обрабатывает полную и инкрементальную выгрузку одинаково
+            xml.writeAttribute("since", since.toInstant().toString());
+        }
+
+        open("clients");
+        KeysetCursor clients = cursor(CLIENT_SELECT, "c", "c.client_id");
+        for (Object[] row = clients.next(); row != null; row = clients.next()) {
+            open("client");
+            leaf("client_id", row[0]);
+            leaf("client_name", row[1]);
+            close();
+        }
+        close();
+
+        open("employees");
+        KeysetCursor employees = cursor(EMPLOYEE_SELECT, "e", "e.employee_id");
+        for (Object[] row = employees.next(); row != null; row = employees.next()) {
+            writeEmployee("employee", row[0], row[1]);
+        }
+        close();
+
+        writeProjects();
+        writeTasks();
+
+        close();
+        xml.writeEndDocument();
+    }
+
+    private void writeProjects() throws XMLStreamException {
+        open("projects");
+        KeysetCursor projects = cursor(PROJECT_SELECT, "p", "p.project_id");
+        KeysetCursor members = cursor(MEMBER_SELECT, "p", "p.project_id", "e.employee_id");
+        // Задачи внутри проекта повторяют раздел tasks и в счетчик строк не входят
+        KeysetCursor tasks = createCursor(PROJECT_TASK_SELECT, "t", "p.project_id", "t.task_id");
+        for (Object[] row = projects.next(); row != null; row = projects.next()) {
+            int projectId = (Integer) row[0];
+            open("project");
+            leaf("project_id", row[0]);
+            leaf("project_name", row[1]);
+            leaf("project_status", row[2]);
+            leaf("project_due_date", row[3]);
+            leaf("project_end_date", row[4]);
+            writeReference("client", row[5], row[6], "client_id", "client_name");
+
+            open("employees");
+            for (Object[] member = members.nextFor(projectId); member != null; member = members.nextFor(projectId)) {
+                writeEmployee("employee", member[1], member[2]);
+            }
+            close();
+
+            open("tasks");
+            for (Object[] task = tasks.nextFor(projectId); task != null; task = tasks.nextFor(projectId)) {
+                open("task");
+                leaf("task_id", task[1]);
+                leaf("task_name", task[2]);
+                leaf("task_description", task[3]);
+                leaf("task_status", task[4]);
+                leaf("due_date", task[5]);
+                writeEmployee("assigned_employee", task[6], task[7]);
+                close();
+            }
+            close();
+
+            close();
+        }
+        close();
+    }
+
+    private void writeTasks() throws XMLStreamException {
+        open("tasks");
+        KeysetCursor tasks = cursor(TASK_SELECT, "t", "t.task_id");
+        for (Object[] row = tasks.next(); row != null; row = tasks.next()) {
+            open("task");
+            leaf("task_id", row[0]);
+            leaf("task_name", row[1]);
+            leaf("task_description", row[2]);
+            leaf("task_status", row[3]);
+            leaf("due_date", row[4]);
+            writeReference("project", row[5], row[6], "project_id", "project_name");
+            writeEmployee("assigned_employee", row[7], row[8]);
+            close();
+        }
+        close();
+    }
+
+    private void writeEmployee(String element, Object id, Object name) throws XMLStreamException {
+        writeReference(element, id, name, "employee_id", "employee_name");
+    }
+
+    // Вложенная ссылка из пары id/название (клиент проекта, проект задачи, сотрудник)
+    private void writeReference(String element, Object id, Object name, String idElement, String nameElement)
+            throws XMLStreamException {
+        open(element);
+        leaf(idElement, id);
+        leaf(nameElement, name);
+        close();
+    }
+
+    // Элементы с отступом в 4 пробела, как раньше выводил Transformer
+    private void open(String name) throws XMLStreamException {
+        newline();
+        xml.writeStartElement(name);
+        depth++;
+    }
+
+    private void close() throws XMLStreamException {
+        depth--;
+        newline();
+        xml.writeEndElement();
+    }
+
+    // Пустое значение (null) записывается пустым элементом, даты - в формате yyyy-MM-dd
+    private void leaf(String name, Object value) throws XMLStreamException {
+        newline();
+        if (value == null) {
+            xml.writeEmptyElement(name);
+            return;
+        }
+        xml.writeStartElement(name);
+        xml.writeCharacters(value.toString());
+        xml.writeEndElement();
+    }
+
+    private void newline() throws XMLStreamException {
+        xml.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) {
+            xml.writeCharacters(INDENT);
+        }
+    }
+}
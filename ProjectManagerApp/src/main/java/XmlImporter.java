@@ -0,0 +1,632 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.log4j.Logger;
+
+// Потоковая загрузка all_data.xml (схема XmlExporter) в БД.
+// Файл читается через StAX по одной записи, записью считается только прямой потомок раздела
+// (вложенные <client>, <employee>, <task> внутри проекта - это ссылки, а не отдельные записи).
+// Существование id проверяется по множествам id, загруженным одним запросом на таблицу,
+// вставки и изменения идут пакетами JDBC, а фиксация - частями по CHUNK_SIZE записей.
+public class XmlImporter {
+    private static final Logger logger = Logger.getLogger(XmlImporter.class);
+    // Размер пакета JDBC и части, после которой выполняется commit (-Dxml.import.batch, -Dxml.import.chunk)
+    static final int BATCH_SIZE = Integer.getInteger("xml.import.batch", 500);
+    static final int CHUNK_SIZE = Integer.getInteger("xml.import.chunk", 5000);
+
+    private XmlImporter() {
+    }
+
+    public static Result importFile(Path file) throws IOException, XMLStreamException, SQLException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            Result result = importFrom(in);
+            logger.info("Импорт из " + file + ": " + result);
+            return result;
+        }
+    }
+
+    // Загрузка из потока через отдельное соединение пула; при ошибке откатывается только текущая часть,
+    // а уже зафиксированные части остаются (повторный импорт того же файла обновит их, а не продублирует)
+    public static Result importFrom(InputStream in) throws XMLStreamException, SQLException {
+        long start = System.nanoTime();
+        RecordReader reader = new RecordReader(in);
+        try (Connection connection = PersistenceManager.getDataSource().getConnection()) {
+            IdSets ids = IdSets.load(connection);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (BatchWriter writer = new BatchWriter(connection, BATCH_SIZE, ids)) {
+                long skipped = 0;
+                int sinceCommit = 0;
+                for (Record record = reader.next(); record != null; record = reader.next()) {
+                    Row row = Row.of(record);
+                    if (row == null) {
+                        skipped++;
+                        continue;
+                    }
+                    writer.write(row);
+                    if (++sinceCommit >= CHUNK_SIZE) {
+                        writer.commit();
+                        sinceCommit = 0;
+                    }
+                }
+                writer.commit();
+                return new Result(writer.getInserted(), writer.getUpdated(), skipped, writer.getCommits(),
+                    System.nanoTime() - start);
+            } catch (SQLException | XMLStreamException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                reader.close();
+                // Строки записаны мимо Hibernate (в том числе уже зафиксированные части при ошибке):
+                // счетчики id сдвигаются за id из файла (см. IdGenerators), кэш сбрасывается
+                IdGenerators.advanceAfterImport();
+                PersistenceManager.evictCaches();
+            }
+        }
+    }
+
+    // Вид записи по имени раздела и элемента; level - уровень по внешним ключам
+    // (записи уровня можно писать только после всех записей меньших уровней)
+    enum Type {
+        CLIENT("clients", "client", 0),
+        EMPLOYEE("employees", "employee", 0),
+        PROJECT("projects", "project", 1),
+        TASK("tasks", "task", 2);
+
+        static final int LEVELS = 3;
+
+        private final String section;
+        private final String element;
+        final int level;
+
+        Type(String section, String element, int level) {
+            this.section = section;
+            this.element = element;
+            this.level = level;
+        }
+
+        static Type of(String section, String element) {
+            for (Type type : values()) {
+                if (type.section.equals(section) && type.element.equals(element)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Одна запись файла: значения листовых элементов по пути внутри записи ("client/client_id")
+    // и id сотрудников проекта
+    static class Record {
+        private static final String MEMBER_PATH = "employees/employee/employee_id";
+
+        final Type type;
+        private final Map<String, String> values = new HashMap<>();
+        final List<Integer> members = new ArrayList<>();
+
+        Record(Type type) {
+            this.type = type;
+        }
+
+        void leaf(String path, String text) {
+            if (type == Type.PROJECT && MEMBER_PATH.equals(path)) {
+                Integer id = parseId(text);
+                if (id != null) {
+                    members.add(id);
+                }
+            } else {
+                values.putIfAbsent(path, text);
+            }
+        }
+
+        // Значение или null, если элемента нет или он пустой
+        String get(String path) {
+            String value = values.get(path);
+            return value == null || value.isEmpty() ? null : value;
+        }
+
+        Integer getId(String path) {
+            return parseId(values.get(path));
+        }
+
+        private static Integer parseId(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                int id = Integer.parseInt(text.trim());
+                // Id из БД всегда положительные; 0 и отрицательные - такая же ошибка, как нечисловой id
+                if (id > 0) {
+                    return id;
+                }
+            } catch (NumberFormatException e) {
+                // предупреждение ниже
+            }
+            logger.warn("Некорректный id в XML: " + text);
+            return null;
+        }
+
+        // Дата в формате yyyy-MM-dd; некорректная дата пропускается с предупреждением, как раньше
+        java.sql.Date getDate(String path) {
+            String text = get(path);
+            if (text == null) {
+                return null;
+            }
+            try {
+                return java.sql.Date.valueOf(text.trim());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Не удалось разобрать дату " + path + ": " + text);
+                return null;
+            }
+        }
+
+        // Описание задачи: пустой элемент - пустая строка, отсутствующий элемент - без изменений
+        String getText(String path) {
+            return values.get(path);
+        }
+    }
+
+    // Проверенная и преобразованная запись, готовая к записи в БД
+    static final class Row {
+        final Type type;
+        final int id;
+        final String name;
+        final String status;
+        // Описание задачи: пустой элемент - пустая строка, отсутствующий элемент (null) - без изменений
+        final String description;
+        final java.sql.Date dueDate;
+        final java.sql.Date endDate;
+        // Клиент проекта или проект задачи
+        final Integer parentId;
+        // Исполнитель задачи
+        final Integer employeeId;
+        final List<Integer> members;
+
+        Row(Type type, int id, String name, String status, String description, java.sql.Date dueDate,
+                    java.sql.Date endDate, Integer parentId, Integer employeeId, List<Integer> members) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+            this.status = status;
+            this.description = description;
+            this.dueDate = dueDate;
+            this.endDate = endDate;
+            this.parentId = parentId;
+            this.employeeId = employeeId;
+            this.members = members;
+        }
+
+        // Преобразование записи; null, если нет обязательных полей (те же, что проверял прежний импорт)
+        static Row of(Record record) {
+            switch (record.type) {
+                case CLIENT:
+                    return named(record, "client_id", "client_name");
+                case EMPLOYEE:
+                    return named(record, "employee_id", "employee_name");
+                case PROJECT: {
+                    Integer id = record.getId("project_id");
+                    String name = record.get("project_name");
+                    String status = record.get("project_status");
+                    if (id == null || name == null || status == null) {
+                        return null;
+                    }
+                    return new Row(Type.PROJECT, id, name, status, null, record.getDate("project_due_date"),
+                        record.getDate("project_end_date"), record.getId("client/client_id"), null, record.members);
+                }
+                default: {
+                    Integer id = record.getId("task_id");
+                    String name = record.get("task_name");
+                    String status = record.get("task_status");
+                    if (id == null || name == null || status == null) {
+                        return null;
+                    }
+                    return new Row(Type.TASK, id, name, status, record.getText("task_description"),
+                        record.getDate("due_date"), null, record.getId("project/project_id"),
+                        record.getId("assigned_employee/employee_id"), List.of());
+                }
+            }
+        }
+
+        private static Row named(Record record, String idPath, String namePath) {
+            Integer id = record.getId(idPath);
+            String name = record.get(namePath);
+            return id == null || name == null ? null
+                : new Row(record.type, id, name, null, null, null, null, null, null, List.of());
+        }
+    }
+
+    // Id записей по таблицам: существующие в БД и уже отправленные на запись из файла.
+    // Общие для всех потоков записи, поэтому доступ синхронизирован.
+    // Хеш-множество, а не BitSet по значению id: один id около Integer.MAX_VALUE
+    // не должен выделять сотни мегабайт
+    static class IdSets {
+        private final Map<Type, Set<Integer>> ids = new EnumMap<>(Type.class);
+
+        // Все существующие id - по одному запросу на таблицу вместо em.find на каждую запись
+        static IdSets load(Connection connection) throws SQLException {
+            IdSets sets = new IdSets();
+            sets.load(connection, Type.CLIENT, "SELECT client_id FROM Client");
+            sets.load(connection, Type.EMPLOYEE, "SELECT employee_id FROM Employee");
+            sets.load(connection, Type.PROJECT, "SELECT project_id FROM Project");
+            sets.load(connection, Type.TASK, "SELECT task_id FROM Task");
+            return sets;
+        }
+
+        private void load(Connection connection, Type type, String sql) throws SQLException {
+            Set<Integer> set = new HashSet<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(sql)) {
+                while (result.next()) {
+                    set.add(result.getInt(1));
+                }
+            }
+            ids.put(type, set);
+        }
+
+        // true, если id новый (запись нужно вставить, а не изменить)
+        synchronized boolean add(Type type, int id) {
+            return ids.get(type).add(id);
+        }
+
+        synchronized boolean contains(Type type, Integer id) {
+            return id != null && ids.get(type).contains(id);
+        }
+    }
+
+    // Чтение записей по одной: data / раздел / запись
+    static class RecordReader implements AutoCloseable {
+        private final XMLStreamReader reader;
+        private String section;
+        private int depth;
+
+        RecordReader(InputStream in) throws XMLStreamException {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            this.reader = factory.createXMLStreamReader(in);
+        }
+
+        // Следующая запись или null в конце файла
+        Record next() throws XMLStreamException {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 2) {
+                        section = reader.getLocalName();
+                    } else if (depth == 3) {
+                        Type type = Type.of(section, reader.getLocalName());
+                        if (type == null) {
+                            skipElement();
+                        } else {
+                            Record record = new Record(type);
+                            readElement(record, "");
+                            depth--;
+                            return record;
+                        }
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            return null;
+        }
+
+        // Чтение элемента до его закрывающего тега; задачи внутри проекта пропускаются,
+        // они есть в разделе tasks вместе со ссылкой на проект
+        private void readElement(Record record, String path) throws XMLStreamException {
+            StringBuilder text = new StringBuilder();
+            boolean hasChildren = false;
+            while (true) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    hasChildren = true;
+                    String child = path.isEmpty() ? reader.getLocalName() : path + "/" + reader.getLocalName();
+                    if (record.type == Type.PROJECT && "tasks".equals(child)) {
+                        skipElement();
+                    } else {
+                        readElement(record, child);
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    text.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (!hasChildren && !path.isEmpty()) {
+                        record.leaf(path, text.toString());
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void skipElement() throws XMLStreamException {
+            int level = 1;
+            while (level > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    level++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    level--;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws XMLStreamException {
+            reader.close();
+        }
+    }
+
+    // Запись в БД пакетами; перед выполнением пакеты идут в порядке внешних ключей
+    // (клиенты, сотрудники, проекты, состав проектов, задачи), поэтому ссылки всегда уже вставлены
+    static class BatchWriter implements AutoCloseable {
+        private final Connection connection;
+        private final int batchSize;
+        private final IdSets ids;
+        private final List<Batch> batches = new ArrayList<>();
+        private final Batch insertClient;
+        private final Batch updateClient;
+        private final Batch insertEmployee;
+        private final Batch updateEmployee;
+        private final Batch insertProject;
+        private final Batch updateProject;
+        private final Batch deleteMembers;
+        // Время изменения для всех строк, записанных этим писателем (см. DeltaSync)
+        private final Timestamp modified;
+        private final Batch insertMember;
+        private final Batch insertTask;
+        private final Batch updateTask;
+        private int pending;
+        private long inserted;
+        private long updated;
+        private long commits;
+
+        BatchWriter(Connection connection, int batchSize, IdSets ids) throws SQLException {
+            this.connection = connection;
+            this.batchSize = batchSize;
+            this.ids = ids;
+            modified = new Timestamp(System.currentTimeMillis());
+            insertClient = batch("INSERT INTO Client (client_name, last_modified, client_id) VALUES (?, ?, ?)");
+            updateClient = batch("UPDATE Client SET client_name = ?, last_modified = ? WHERE client_id = ?");
+            insertEmployee = batch("INSERT INTO Employee (employee_name, last_modified, employee_id) VALUES (?, ?, ?)");
+            updateEmployee = batch("UPDATE Employee SET employee_name = ?, last_modified = ? WHERE employee_id = ?");
+            insertProject = batch("INSERT INTO Project (project_name, project_status, project_due_date, "
+                + "project_end_date, client_id, last_modified, project_id) VALUES (?, ?, ?, ?, ?, ?, ?)");
+            updateProject = batch("UPDATE Project SET project_name = ?, project_status = ?, "
+                + "project_due_date = COALESCE(?, project_due_date), project_end_date = COALESCE(?, project_end_date), "
+                + "client_id = COALESCE(?, client_id), last_modified = ? WHERE project_id = ?");
+            deleteMembers = batch("DELETE FROM employee_project WHERE project_id = ?");
+            insertMember = batch("INSERT INTO employee_project (project_id, employee_id) VALUES (?, ?)");
+            insertTask = batch("INSERT INTO Task (task_name, task_description, task_status, due_date, "
+                + "project_id, employee_id, last_modified, task_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            updateTask = batch("UPDATE Task SET task_name = ?, task_description = COALESCE(?, task_description), "
+                + "task_status = ?, due_date = COALESCE(?, due_date), project_id = COALESCE(?, project_id), "
+                + "employee_id = COALESCE(?, employee_id), last_modified = ? WHERE task_id = ?");
+        }
+
+        private Batch batch(String sql) throws SQLException {
+            Batch batch = new Batch(connection.prepareStatement(sql));
+            batches.add(batch);
+            return batch;
+        }
+
+        // Ссылки на записи, которых нет ни в БД, ни в файле, не меняются
+        void write(Row row) throws SQLException {
+            switch (row.type) {
+                case CLIENT:
+                    writeNamed(row, insertClient, updateClient);
+                    break;
+                case EMPLOYEE:
+                    writeNamed(row, insertEmployee, updateEmployee);
+                    break;
+                case PROJECT:
+                    writeProject(row);
+                    break;
+                case TASK:
+                    writeTask(row);
+                    break;
+            }
+            if (pending >= batchSize) {
+                flush();
+            }
+        }
+
+        private void writeNamed(Row row, Batch insert, Batch update) throws SQLException {
+            Batch target = upsert(row, insert, update);
+            target.statement.setString(1, row.name);
+            target.statement.setTimestamp(2, modified);
+            target.statement.setInt(3, row.id);
+            add(target);
+        }
+
+        private void writeProject(Row row) throws SQLException {
+            Batch target = upsert(row, insertProject, updateProject);
+            PreparedStatement statement = target.statement;
+            statement.setString(1, row.name);
+            statement.setString(2, row.status);
+            setDate(statement, 3, row.dueDate);
+            setDate(statement, 4, row.endDate);
+            setReference(statement, 5, row.parentId, Type.CLIENT);
+            statement.setTimestamp(6, modified);
+            statement.setInt(7, row.id);
+            add(target);
+
+            // Состав проекта берется из файла целиком
+            if (target == updateProject) {
+                deleteMembers.statement.setInt(1, row.id);
+                add(deleteMembers);
+            }
+            Set<Integer> added = new HashSet<>();
+            for (Integer employeeId : row.members) {
+                if (ids.contains(Type.EMPLOYEE, employeeId) && added.add(employeeId)) {
+                    insertMember.statement.setInt(1, row.id);
+                    insertMember.statement.setInt(2, employeeId);
+                    add(insertMember);
+                }
+            }
+        }
+
+        private void writeTask(Row row) throws SQLException {
+            Batch target = upsert(row, insertTask, updateTask);
+            PreparedStatement statement = target.statement;
+            statement.setString(1, row.name);
+            if (row.description != null) {
+                statement.setString(2, row.description);
+            } else {
+                statement.setNull(2, Types.VARCHAR);
+            }
+            statement.setString(3, row.status);
+            setDate(statement, 4, row.dueDate);
+            setReference(statement, 5, row.parentId, Type.PROJECT);
+            setReference(statement, 6, row.employeeId, Type.EMPLOYEE);
+            statement.setTimestamp(7, modified);
+            statement.setInt(8, row.id);
+            add(target);
+        }
+
+        private Batch upsert(Row row, Batch insert, Batch update) {
+            if (ids.add(row.type, row.id)) {
+                inserted++;
+                return insert;
+            }
+            updated++;
+            return update;
+        }
+
+        private static void setDate(PreparedStatement statement, int index, java.sql.Date date) throws SQLException {
+            if (date != null) {
+                statement.setDate(index, date);
+            } else {
+                statement.setNull(index, Types.DATE);
+            }
+        }
+
+        private void setReference(PreparedStatement statement, int index, Integer id, Type type) throws SQLException {
+            if (ids.contains(type, id)) {
+                statement.setInt(index, id);
+            } else {
+                statement.setNull(index, Types.INTEGER);
+            }
+        }
+
+        private void add(Batch batch) throws SQLException {
+            batch.statement.addBatch();
+            batch.size++;
+            pending++;
+        }
+
+        void flush() throws SQLException {
+            for (Batch batch : batches) {
+                if (batch.size > 0) {
+                    batch.statement.executeBatch();
+                    batch.size = 0;
+                }
+            }
+            pending = 0;
+        }
+
+        void commit() throws SQLException {
+            flush();
+            connection.commit();
+            commits++;
+        }
+
+        long getInserted() {
+            return inserted;
+        }
+
+        long getUpdated() {
+            return updated;
+        }
+
+        long getCommits() {
+            return commits;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (Batch batch : batches) {
+                batch.statement.close();
+            }
+        }
+    }
+
+    // Подготовленный запрос и число добавленных в пакет строк
+    private static class Batch {
+        final PreparedStatement statement;
+        int size;
+
+        Batch(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    // Итог импорта: вставленные, измененные и пропущенные записи, число фиксаций и время
+    public static class Result {
+        private final long inserted;
+        private final long updated;
+        private final long skipped;
+        private final long commits;
+        private final long nanos;
+
+        Result(long inserted, long updated, long skipped, long commits, long nanos) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.skipped = skipped;
+            this.commits = commits;
+            this.nanos = nanos;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getCommits() {
+            return commits;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return (inserted + updated) * 1_000_000_000.0 / Math.max(1, nanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("добавлено %d, обновлено %d, пропущено %d, фиксаций %d, %.0f мс (%.0f записей/с)",
+                inserted, updated, skipped, commits, getMillis(), getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+-- Исходная схема в том виде, в каком ее создавал hbm2ddl.auto=update для текущих сущностей (Entities.java).
+-- Выполняется и на БД, созданной раньше через hbm2ddl: существующие таблицы не трогаются (IF NOT EXISTS),
+-- создаются только недостающие. Синтаксис общий для MySQL и H2 в режиме MySQL
+
+CREATE TABLE IF NOT EXISTS Client (
+    client_id INT NOT NULL,
+    client_name VARCHAR(255),
+    last_modified DATETIME(6),
+    PRIMARY KEY (client_id)
+);
+
+CREATE TABLE IF NOT EXISTS Employee (
+    employee_id INT NOT NULL,
+    employee_name VARCHAR(255),
+    last_modified DATETIME(6),
+    PRIMARY KEY (employee_id)
+);
+
+CREATE TABLE IF NOT EXISTS Project (
+    project_id INT NOT NULL,
+    project_name VARCHAR(255),
+    project_status VARCHAR(255),
+    project_due_date DATE,
+    project_end_date DATE,
+    last_modified DATETIME(6),
+    client_id INT,
+    PRIMARY KEY (project_id),
+    CONSTRAINT fk_project_client FOREIGN KEY (client_id) REFERENCES Client (client_id)
+);
+
+CREATE TABLE IF NOT EXISTS employee_project (
+    project_id INT NOT NULL,
+    employee_id INT NOT NULL,
+    PRIMARY KEY (project_id, employee_id),
+    CONSTRAINT fk_employee_project_project FOREIGN KEY (project_id) REFERENCES Project (project_id),
+    CONSTRAINT fk_employee_project_employee FOREIGN KEY (employee_id) REFERENCES Employee (employee_id)
+);
+
+CREATE TABLE IF NOT EXISTS Task (
+    task_id INT NOT NULL,
+    task_name VARCHAR(255),
+    task_description VARCHAR(255),
+    task_status VARCHAR(255),
+    due_date DATE,
+    last_modified DATETIME(6),
+    project_id INT,
+    employee_id INT,
+    PRIMARY KEY (task_id),
+    CONSTRAINT fk_task_project FOREIGN KEY (project_id) REFERENCES Project (project_id),
+    CONSTRAINT fk_task_employee FOREIGN KEY (employee_id) REFERENCES Employee (employee_id)
+);
+
+-- Счетчики id сущностей (см. IdGenerators)
+CREATE TABLE IF NOT EXISTS id_sequences (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val BIGINT,
+    PRIMARY KEY (sequence_name)
+);
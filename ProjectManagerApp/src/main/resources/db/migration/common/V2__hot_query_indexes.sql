@@ -0,0 +1,26 @@
+-- Индексы для условий, по которым таблицы фильтруются постоянно (hbm2ddl их не создавал)
+
+-- Фильтр "только просроченные" (EXISTS по задачам проекта со статусом), SIZE(p.tasks) и перенос задач проекта.
+-- Индекс начинается с project_id, поэтому заменяет и индекс внешнего ключа
+CREATE INDEX idx_task_project_status ON Task (project_id, task_status);
+
+-- Задачи сотрудника (отчет по сотруднику, снятие назначений при удалении)
+CREATE INDEX idx_task_employee ON Task (employee_id);
+
+-- Проверка просроченных задач (OverdueSweeper: due_date < сегодня)
+CREATE INDEX idx_task_due_date ON Task (due_date);
+
+-- Проекты сотрудника: первичный ключ employee_project начинается с project_id и по сотруднику не помогает
+CREATE INDEX idx_employee_project_employee ON employee_project (employee_id, project_id);
+
+-- Точный поиск и сортировка по имени (поиск по словам в проектах и задачах - FULLTEXT, см. миграции MySQL)
+CREATE INDEX idx_client_name ON Client (client_name);
+CREATE INDEX idx_employee_name ON Employee (employee_name);
+CREATE INDEX idx_project_name ON Project (project_name);
+CREATE INDEX idx_task_name ON Task (task_name);
+
+-- Инкрементальная выгрузка (DeltaSync: last_modified > отметки)
+CREATE INDEX idx_client_last_modified ON Client (last_modified);
+CREATE INDEX idx_employee_last_modified ON Employee (last_modified);
+CREATE INDEX idx_project_last_modified ON Project (last_modified);
+CREATE INDEX idx_task_last_modified ON Task (last_modified);
@@ -0,0 +1,35 @@
+-- Столбцы last_modified (инкрементальная выгрузка, см. DeltaSync) для БД, созданных через hbm2ddl
+-- до их появления. В MySQL нет ADD COLUMN IF NOT EXISTS, и команда выбирается по information_schema.
+-- В H2 (тесты) схема всегда создается с нуля версией 1, где столбцы уже есть
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'Client' AND column_name = 'last_modified') = 0,
+    'ALTER TABLE Client ADD COLUMN last_modified DATETIME(6)',
+    'DO 0');
+PREPARE ddl_statement FROM @ddl;
+EXECUTE ddl_statement;
+DEALLOCATE PREPARE ddl_statement;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'Employee' AND column_name = 'last_modified') = 0,
+    'ALTER TABLE Employee ADD COLUMN last_modified DATETIME(6)',
+    'DO 0');
+PREPARE ddl_statement FROM @ddl;
+EXECUTE ddl_statement;
+DEALLOCATE PREPARE ddl_statement;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'Project' AND column_name = 'last_modified') = 0,
+    'ALTER TABLE Project ADD COLUMN last_modified DATETIME(6)',
+    'DO 0');
+PREPARE ddl_statement FROM @ddl;
+EXECUTE ddl_statement;
+DEALLOCATE PREPARE ddl_statement;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'Task' AND column_name = 'last_modified') = 0,
+    'ALTER TABLE Task ADD COLUMN last_modified DATETIME(6)',
+    'DO 0');
+PREPARE ddl_statement FROM @ddl;
+EXECUTE ddl_statement;
+DEALLOCATE PREPARE ddl_statement;
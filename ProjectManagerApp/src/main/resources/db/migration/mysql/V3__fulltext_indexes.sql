@@ -0,0 +1,19 @@
+-- Индексы FULLTEXT для полнотекстового поиска (FullTextSearch), только MySQL.
+-- Раньше их создавал сам поиск при первом запросе, поэтому на существующей БД они могут уже быть:
+-- в MySQL нет CREATE INDEX IF NOT EXISTS, и команда выбирается по information_schema
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'Project' AND index_name = 'ft_project_name') = 0,
+    'ALTER TABLE Project ADD FULLTEXT INDEX ft_project_name (project_name)',
+    'DO 0');
+PREPARE ddl_statement FROM @ddl;
+EXECUTE ddl_statement;
+DEALLOCATE PREPARE ddl_statement;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'Task' AND index_name = 'ft_task_text') = 0,
+    'ALTER TABLE Task ADD FULLTEXT INDEX ft_task_text (task_name, task_description)',
+    'DO 0');
+PREPARE ddl_statement FROM @ddl;
+EXECUTE ddl_statement;
+DEALLOCATE PREPARE ddl_statement;